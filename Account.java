@@ -4,55 +4,33 @@ package socialmedia;
 import java.io.Serializable;
 
 public class Account implements Serializable {
-	// account ID based off previous account ID + 1 - must be unique
+	// account ID handed out by the platform's AccountCollection - must be unique
 	private final int myID;
-	
-	private static int nextID = 1;
-		
+
 	// account's description
 	private String description;
 	
 	// string handle, aka username, for account - must be unique
 	private String stringHandle;
 
+	// number of actionable posts (original posts and comments) created by the account
+	private int postCount = 0;
+
+	// number of endorsements received by the account's actionable posts
+	private int endorsementCount = 0;
 
 
-	/**
-	 * Constructor for account
-	 * @param handle account's handle
-	 */
-	public Account(String handle) {
-		myID = nextID;
-		nextID += 1;
-		this.stringHandle = handle;
-	}
 
 	/**
 	 * Constructor for account
+	 * @param id account's ID, from AccountCollection.newAccountID or a saved platform
 	 * @param handle account's handle
 	 * @param description account's description
 	 */
-	public Account(String handle, String description) {
-		myID = nextID;
-		nextID += 1;
+	public Account(int id, String handle, String description) {
+		myID = id;
 		this.stringHandle = handle;
-		this.description = description;		
-	}
-
-	/**
-	 * Get nextID for the platform saving
-	 * @return nextID
-	 */
-	public static int getNextID() {
-		return nextID;
-	}
-
-	/**
-	 * Change nextID when loading platform
-	 * @param value nextID value from file being loaded
-	 */
-	public static void setNextID(int value) {
-		nextID = value;
+		this.description = description;
 	}
 
 	/**
@@ -79,6 +57,37 @@ public class Account implements Serializable {
 		return description;
 	}
 
+	/**
+	 * Returns the number of actionable posts created by the account
+	 * @return post count
+	 */
+	public int getPostCount() {
+		return postCount;
+	}
+
+	/**
+	 * Returns the number of endorsements received by the account's posts
+	 * @return endorsement count
+	 */
+	public int getEndorsementCount() {
+		return endorsementCount;
+	}
+
+	/**
+	 * Change the number of actionable posts created by the account
+	 * @param change amount to add (negative when posts are removed)
+	 */
+	public void changePostCount(int change) {
+		postCount += change;
+	}
+
+	/**
+	 * Change the number of endorsements received by the account's posts
+	 * @param change amount to add (negative when endorsements are removed)
+	 */
+	public void changeEndorsementCount(int change) {
+		endorsementCount += change;
+	}
 
 	/**
 	 * Change the account's handle
@@ -96,12 +105,6 @@ public class Account implements Serializable {
 		this.description = description;	
 	}
 
-	/**
-	 * Set nextID back to 1 for when platform is erased
-	 */
-	public static void resetNextID() {
-		nextID = 1;
-	}
 
 
 	
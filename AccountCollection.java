@@ -1,12 +1,87 @@
 package socialmedia;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class AccountCollection implements Serializable {
-	// account list
-	ArrayList<Account> accounts = new ArrayList<>();
+	// accounts indexed by ID, kept in creation order
+	LinkedHashMap<Integer, Account> accounts = new LinkedHashMap<>();
+
+	// ID of the next account created in this collection - each platform hands out its own IDs
+	private final AtomicInteger nextID;
+	// gap between the IDs handed out, so platforms sharing a stride but starting at different IDs never clash
+	private final int idStride;
+
+	// accounts indexed by handle - must be kept in step with the accounts map
+	private HashMap<String, Account> handles = new HashMap<>();
+
+	// accounts ordered from most to least endorsed - an account must be taken out before its endorsements change
+	private TreeSet<Account> endorsementRanking = new TreeSet<>(new EndorsementOrder());
+
+	// accounts left out of the ranking until the end of a batch, or null when not in a batch
+	private transient HashSet<Account> unranked;
+
+	/**
+	 * Constructor for an empty collection, handing out IDs 1, 2, 3 and so on
+	 */
+	public AccountCollection() {
+		this(1, 1);
+	}
+
+	/**
+	 * Constructor for an empty collection, handing out IDs firstID, firstID + idStride, firstID + 2 * idStride and so on
+	 * @param firstID ID of the first account
+	 * @param idStride gap between IDs
+	 */
+	public AccountCollection(int firstID, int idStride) {
+		this.nextID = new AtomicInteger(firstID);
+		this.idStride = idStride;
+	}
+
+	/**
+	 * Orders accounts by number of endorsements received (highest first), with ties going to the oldest account
+	 */
+	private static class EndorsementOrder implements Comparator<Account>, Serializable {
+		@Override
+		public int compare(Account a, Account b) {
+			if (a.getEndorsementCount() != b.getEndorsementCount()) {
+				return Integer.compare(b.getEndorsementCount(), a.getEndorsementCount());
+			}
+			return Integer.compare(a.getID(), b.getID());
+		}
+	}
+
+	/**
+	 * Hand out the ID for a new account. IDs are allocated atomically, without locking
+	 * @return the new ID
+	 */
+	public int newAccountID() {
+		return nextID.getAndAdd(idStride);
+	}
+
+	/**
+	 * Get the ID the next new account will be given, for saving the platform
+	 * @return nextID
+	 */
+	public int getNextID() {
+		return nextID.get();
+	}
+
+	/**
+	 * Change the ID the next new account will be given, when loading the platform
+	 * @param value nextID value from file being loaded
+	 */
+	public void setNextID(int value) {
+		nextID.set(value);
+	}
 
 	/**
 	 * Check if passed handle belongs to another account
@@ -14,12 +89,7 @@ public class AccountCollection implements Serializable {
 	 * @return boolean value representing if the account handle already exists
 	 */
 	public boolean checkHandleExists(String handle) {
-		for(Account acc: accounts) {
-			if(acc.getStringHandle().equals(handle)) {
-				return true;
-			}
-		}
-		return false;
+		return handles.containsKey(handle);
 	}
 
 	/**
@@ -46,7 +116,13 @@ public class AccountCollection implements Serializable {
 	 * @return ID of account created
 	 */
 	public int addAccount(Account account)  {
-		accounts.add(account);
+		accounts.put(account.getID(), account);
+		handles.put(account.getStringHandle(), account);
+		if (unranked != null) {
+			unranked.add(account);
+		} else {
+			endorsementRanking.add(account);
+		}
 		return account.getID();
 	}
 
@@ -64,7 +140,118 @@ public class AccountCollection implements Serializable {
 	 * @param account account's handle
 	 */
 	public void removeAccount(Account account) {
-		accounts.remove(account);
+		accounts.remove(account.getID());
+		handles.remove(account.getStringHandle());
+		endorsementRanking.remove(account);
+		if (unranked != null) {
+			unranked.remove(account);
+		}
+	}
+
+	/**
+	 * Change the number of endorsements received by an account, keeping the ranking in order
+	 * @param account account whose posts were endorsed or lost endorsements
+	 * @param change amount to add (negative when endorsements are removed)
+	 */
+	public void changeEndorsementCount(Account account, int change) {
+		if (change == 0) {
+			return;
+		}
+		if (unranked != null) {
+			// Leave the account out of the ranking until the batch ends, however many times it changes
+			if (!unranked.contains(account) && endorsementRanking.remove(account)) {
+				unranked.add(account);
+			}
+			account.changeEndorsementCount(change);
+			return;
+		}
+		boolean ranked = endorsementRanking.remove(account);
+		account.changeEndorsementCount(change);
+		if (ranked) {
+			endorsementRanking.add(account);
+		}
+	}
+
+	/**
+	 * Start a batch: until endBatch, accounts that are added or change endorsements are left out of the
+	 * ranking, so an account endorsed many times in the batch is only put back in order once
+	 */
+	public void beginBatch() {
+		if (unranked == null) {
+			unranked = new HashSet<>();
+		}
+	}
+
+	/**
+	 * End a batch, putting the accounts left out since beginBatch back into the ranking
+	 */
+	public void endBatch() {
+		if (unranked != null) {
+			endorsementRanking.addAll(unranked);
+			unranked = null;
+		}
+	}
+
+	/**
+	 * Get the account with the most endorsements, the oldest account winning any tie
+	 * @return id of the most endorsed account, or -1 if there are no accounts
+	 */
+	public int getMostEndorsedAccount() {
+		if (endorsementRanking.isEmpty()) {
+			return -1;
+		}
+		return endorsementRanking.first().getID();
+	}
+
+	/**
+	 * Get the k most endorsed accounts, most endorsed first
+	 * @param k maximum number of accounts to return
+	 * @return ids of up to k accounts, in order of endorsements
+	 */
+	public int[] getMostEndorsedAccounts(int k) {
+		int[] ids = new int[Math.max(0, Math.min(k, endorsementRanking.size()))];
+		Iterator<Account> it = endorsementRanking.iterator();
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = it.next().getID();
+		}
+		return ids;
+	}
+
+	/**
+	 * Iterate over the accounts from most to least endorsed, the oldest account first within a tie
+	 * @return iterator over the accounts, which must not be used after the collection changes
+	 */
+	public Iterator<Account> rankingIterator() {
+		return Collections.unmodifiableSet(endorsementRanking).iterator();
+	}
+
+	/**
+	 * Change the handle of an account, moving it to its new handle in the index
+	 * @param account account to be renamed
+	 * @param handle new account handle
+	 */
+	public void changeAccountHandle(Account account, String handle) {
+		handles.remove(account.getStringHandle());
+		account.setAccountHandle(handle);
+		handles.put(handle, account);
+	}
+
+	/**
+	 * Finds the account with the given handle
+	 * @param handle account's handle
+	 * @return the account, or null if no account has this handle
+	 */
+	public Account getAccountFromHandle(String handle) {
+		return handles.get(handle);
+	}
+
+	/**
+	 * Finds the account with the given ID
+	 * @param id account's id
+	 * @return the account, or null if no account has this ID
+	 */
+	public Account getAccountFromID(int id) {
+		return accounts.get(id);
 	}
 
 	/**
@@ -73,13 +260,12 @@ public class AccountCollection implements Serializable {
 	 * @return account's id
 	 */
 	public int getIDFromHandle(String handle) {
-		for(Account acc: accounts) {
-			if(acc.getStringHandle().equals(handle)) {
-				return acc.getID();
-			}
+		Account acc = handles.get(handle);
+		if(acc == null) {
+			// ID of -1 indicates that the account was not found
+			return -1;
 		}
-		// ID of -1 indicates that the account was not found
-		return -1;
+		return acc.getID();
 	}
 
 
@@ -0,0 +1,542 @@
+package socialmedia;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * AsyncSocialMedia is an asynchronous front end to a SocialMedia: every call submits a command and
+ * returns a CompletableFuture of its result straight away.
+ * <p>
+ * Commands wait in a bounded queue. A single writer thread takes them off in order and applies them
+ * to the platform, which no other thread touches, so the platform is used without any locks. The writer
+ * takes every command waiting at once and applies them as one batch, so the endorsement rankings are
+ * only put in order once per batch and a burst of commands costs little more than one.
+ * <p>
+ * After each batch the writer publishes the platform's totals and only then hands the batch's futures
+ * to an executor to be completed, so once a caller's future completes its change is in the totals, and
+ * callbacks chained on the futures never hold up the writer. Batches are completed in the order they were
+ * run. The totals are read without waiting for the writer. Calls that show accounts and posts are commands
+ * too, so they see every change submitted before them.
+ * <p>
+ * A command that throws, even an Error, only fails its own future. If the writer itself fails, every
+ * command waiting is failed and nothing more can be submitted.
+ * <p>
+ * When the queue is full, submitting a command waits until the writer makes room.
+ */
+public class AsyncSocialMedia implements Closeable {
+	private final SocialMedia platform;
+	private final ArrayBlockingQueue<Submitted<?>> queue;
+	private final Thread writer;
+	private final Executor completer;
+
+	// shared while submitting and held alone by close, so nothing can be queued after the writer is told to stop
+	private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock();
+	private boolean closed = false;
+
+	// totals as of the last batch, replaced after every batch
+	private volatile PlatformTotals totals;
+
+	// what stopped the writer, if it failed rather than being closed
+	private volatile Throwable writerFailure;
+
+	// completion of the last batch handed to the completer, which each batch waits for so batches complete in order
+	private volatile CompletableFuture<Void> completions = CompletableFuture.completedFuture(null);
+
+	// queued by close, after the last command
+	private static final Submitted<Void> STOP = new Submitted<>(platform -> null);
+
+	/**
+	 * A change to or query of the platform, run on the writer thread
+	 */
+	private interface Command<T> {
+		T run(SocialMedia platform) throws Exception;
+	}
+
+	/**
+	 * A command waiting in the queue, with the future of its result
+	 */
+	private static final class Submitted<T> {
+		private final Command<T> command;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private T result;
+		private Throwable failure;
+
+		/**
+		 * Constructor for a command about to be queued
+		 * @param command command to run
+		 */
+		Submitted(Command<T> command) {
+			this.command = command;
+		}
+
+		/**
+		 * Run the command, keeping its result or exception until the batch is finished
+		 * @param platform platform to run the command on
+		 */
+		void run(SocialMedia platform) {
+			try {
+				result = command.run(platform);
+			} catch (Throwable e) {
+				failure = e;
+			}
+		}
+
+		/**
+		 * Mark the command as failed, whether or not it ran
+		 * @param cause why it failed
+		 */
+		void fail(Throwable cause) {
+			failure = cause;
+		}
+
+		/**
+		 * Complete the future with the result or exception kept by run
+		 */
+		void complete() {
+			if (failure != null) {
+				future.completeExceptionally(failure);
+			} else {
+				future.complete(result);
+			}
+		}
+	}
+
+	/**
+	 * Constructor for an empty platform
+	 * @param capacity most commands that can wait in the queue
+	 */
+	public AsyncSocialMedia(int capacity) {
+		this(new SocialMedia(), capacity);
+	}
+
+	/**
+	 * Constructor for a platform wrapping an existing one, which must not be used directly afterwards,
+	 * completing futures on the common pool
+	 * @param platform platform to be wrapped
+	 * @param capacity most commands that can wait in the queue
+	 */
+	public AsyncSocialMedia(SocialMedia platform, int capacity) {
+		this(platform, capacity, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for a platform wrapping an existing one, which must not be used directly afterwards
+	 * @param platform platform to be wrapped
+	 * @param capacity most commands that can wait in the queue
+	 * @param completer executor the futures are completed on, and so their callbacks run on
+	 */
+	public AsyncSocialMedia(SocialMedia platform, int capacity, Executor completer) {
+		this.platform = platform;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.totals = new PlatformTotals(platform);
+		// If the executor refuses a batch, the writer completes it itself rather than leave callers waiting
+		this.completer = task -> {
+			try {
+				completer.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
+			}
+		};
+
+		writer = new Thread(this::writeLoop, "platform-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queue a command, waiting for room in the queue if it is full
+	 * @param command command to run
+	 * @return future completed with the command's result, or with the exception it threw
+	 */
+	private <T> CompletableFuture<T> submit(Command<T> command) {
+		Submitted<T> submitted = new Submitted<>(command);
+
+		submitLock.readLock().lock();
+		try {
+			if (writerFailure != null) {
+				throw new IllegalStateException("The platform's writer has failed", writerFailure);
+			}
+			if (closed) {
+				throw new IllegalStateException("This platform is closed");
+			}
+			queue.put(submitted);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			submitted.future.completeExceptionally(e);
+		} finally {
+			submitLock.readLock().unlock();
+		}
+		return submitted.future;
+	}
+
+	/**
+	 * Body of the writer thread: takes every command waiting, runs them as one batch, publishes
+	 * the totals and then hands the batch's futures to the completer
+	 */
+	private void writeLoop() {
+		boolean stopping = false;
+
+		while (!stopping) {
+			ArrayList<Submitted<?>> batch = new ArrayList<>();
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				// only close stops the writer
+				continue;
+			}
+
+			try {
+				queue.drainTo(batch);
+				platform.beginBatch();
+				try {
+					for (Submitted<?> submitted: batch) {
+						if (submitted == STOP) {
+							stopping = true;
+						} else {
+							submitted.run(platform);
+						}
+					}
+				} finally {
+					platform.endBatch();
+				}
+				totals = new PlatformTotals(platform);
+			} catch (Throwable e) {
+				// The platform may be half way through a change, so nothing more is run on it
+				writerFailure = e;
+				for (Submitted<?> submitted: batch) {
+					submitted.fail(e);
+				}
+				stopping = true;
+			} finally {
+				completeInOrder(batch);
+			}
+		}
+
+		if (writerFailure != null) {
+			failWaiting();
+		}
+	}
+
+	/**
+	 * Complete the futures of a batch on the completer, once every batch before it has been completed
+	 * @param batch commands run in the batch
+	 */
+	private void completeInOrder(ArrayList<Submitted<?>> batch) {
+		completions = completions.handleAsync((ignored, failure) -> {
+			for (Submitted<?> submitted: batch) {
+				if (submitted != STOP) {
+					submitted.complete();
+				}
+			}
+			return null;
+		}, completer);
+	}
+
+	/**
+	 * After the writer has failed, fail every command waiting and stop any more being submitted. Submitters
+	 * waiting for room hold the submit lock, so the queue is emptied until they have all given it up
+	 */
+	private void failWaiting() {
+		ArrayList<Submitted<?>> waiting = new ArrayList<>();
+		boolean locked = false;
+		while (!locked) {
+			queue.drainTo(waiting);
+			try {
+				locked = submitLock.writeLock().tryLock(1, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				// only the lock can end the wait
+			}
+		}
+		try {
+			closed = true;
+			queue.drainTo(waiting);
+		} finally {
+			submitLock.writeLock().unlock();
+		}
+
+		IllegalStateException failure = new IllegalStateException("The platform's writer has failed", writerFailure);
+		for (Submitted<?> submitted: waiting) {
+			submitted.fail(failure);
+		}
+		completeInOrder(waiting);
+	}
+
+	/**
+	 * Submit the creation of an account with just a handle, see SocialMedia.createAccount(String)
+	 * @param handle account's handle.
+	 * @return future of the ID of the created account
+	 */
+	public CompletableFuture<Integer> createAccount(String handle) {
+		return submit(platform -> platform.createAccount(handle));
+	}
+
+	/**
+	 * Submit the creation of an account with a handle and description, see SocialMedia.createAccount(String, String)
+	 * @param handle      account's handle.
+	 * @param description account's description.
+	 * @return future of the ID of the created account
+	 */
+	public CompletableFuture<Integer> createAccount(String handle, String description) {
+		return submit(platform -> platform.createAccount(handle, description));
+	}
+
+	/**
+	 * Submit the removal of an account based on the id passed through, see SocialMedia.removeAccount(int)
+	 * @param id ID of the account.
+	 * @return future completed once the account is removed
+	 */
+	public CompletableFuture<Void> removeAccount(int id) {
+		return submit(platform -> {
+			platform.removeAccount(id);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit the removal of an account based on the handle passed through, see SocialMedia.removeAccount(String)
+	 * @param handle account's handle.
+	 * @return future completed once the account is removed
+	 */
+	public CompletableFuture<Void> removeAccount(String handle) {
+		return submit(platform -> {
+			platform.removeAccount(handle);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit a change of the account's handle to a new handle, see SocialMedia.changeAccountHandle
+	 * @param oldHandle account's old handle.
+	 * @param newHandle account's new handle.
+	 * @return future completed once the handle is changed
+	 */
+	public CompletableFuture<Void> changeAccountHandle(String oldHandle, String newHandle) {
+		return submit(platform -> {
+			platform.changeAccountHandle(oldHandle, newHandle);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit a change of the account's description, see SocialMedia.updateAccountDescription
+	 * @param handle      handle to identify the account.
+	 * @param description new text for description.
+	 * @return future completed once the description is changed
+	 */
+	public CompletableFuture<Void> updateAccountDescription(String handle, String description) {
+		return submit(platform -> {
+			platform.updateAccountDescription(handle, description);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit a request for the details of an account, see SocialMedia.showAccount
+	 * @param handle handle to identify the account.
+	 * @return future of the String that holds the id, handle, description, no. posts & no. endorsements
+	 */
+	public CompletableFuture<String> showAccount(String handle) {
+		return submit(platform -> platform.showAccount(handle));
+	}
+
+	/**
+	 * Submit the creation of a post, see SocialMedia.createPost
+	 * @param handle  handle to identify the account.
+	 * @param message post message.
+	 * @return future of the ID of the post
+	 */
+	public CompletableFuture<Integer> createPost(String handle, String message) {
+		return submit(platform -> platform.createPost(handle, message));
+	}
+
+	/**
+	 * Submit the creation of an endorsement post, see SocialMedia.endorsePost
+	 * @param handle of the account endorsing a post.
+	 * @param id     of the post being endorsed.
+	 * @return future of the ID of the endorsement post
+	 */
+	public CompletableFuture<Integer> endorsePost(String handle, int id) {
+		return submit(platform -> platform.endorsePost(handle, id));
+	}
+
+	/**
+	 * Submit the creation of a comment post, see SocialMedia.commentPost
+	 * @param handle  of the account commenting a post.
+	 * @param id      of the post being commented.
+	 * @param message the comment post message.
+	 * @return future of the ID of the comment post
+	 */
+	public CompletableFuture<Integer> commentPost(String handle, int id, String message) {
+		return submit(platform -> platform.commentPost(handle, id, message));
+	}
+
+	/**
+	 * Submit the removal of a post, see SocialMedia.deletePost
+	 * @param id ID of post to be removed.
+	 * @return future completed once the post is removed
+	 */
+	public CompletableFuture<Void> deletePost(int id) {
+		return submit(platform -> {
+			platform.deletePost(id);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit a request for the details of a post, see SocialMedia.showIndividualPost
+	 * @param id of the post to be shown.
+	 * @return future of the String that holds the id, handle, no. endorsements & no. comments and message
+	 */
+	public CompletableFuture<String> showIndividualPost(int id) {
+		return submit(platform -> platform.showIndividualPost(id));
+	}
+
+	/**
+	 * Submit a request for the details of a post and all of its children, see SocialMedia.showPostChildrenDetails
+	 * @param id of the post to be shown.
+	 * @return future of the formatted details of the post and its children
+	 */
+	public CompletableFuture<StringBuilder> showPostChildrenDetails(int id) {
+		return submit(platform -> platform.showPostChildrenDetails(id));
+	}
+
+	/**
+	 * Submit the emptying of the platform, see SocialMedia.erasePlatform
+	 * @return future completed once the platform is empty
+	 */
+	public CompletableFuture<Void> erasePlatform() {
+		return submit(platform -> {
+			platform.erasePlatform();
+			return null;
+		});
+	}
+
+	/**
+	 * Submit a save of the platform's contents. The contents are captured in order with the other
+	 * commands and written on a background thread, see SocialMedia.savePlatformInBackground
+	 * @param filename location of the file to be saved
+	 * @return future completed once the file is saved, or completed with an IOException if it could not be saved
+	 */
+	public CompletableFuture<Void> savePlatform(String filename) {
+		return submit(platform -> platform.savePlatformInBackground(filename)).thenCompose(saved -> saved);
+	}
+
+	/**
+	 * Submit a load of the platform's contents from a file, see SocialMedia.loadPlatform(String)
+	 * @param filename location of the file to be loaded
+	 * @return future completed once the file is loaded
+	 */
+	public CompletableFuture<Void> loadPlatform(String filename) {
+		return submit(platform -> {
+			platform.loadPlatform(filename);
+			return null;
+		});
+	}
+
+	/**
+	 * Submit the opening of a read-only view of the platform, see SocialMedia.openView. The view shows every
+	 * change submitted before it, and works out its counts on the thread that queries it rather than the writer
+	 * @return future of the view
+	 */
+	public CompletableFuture<PlatformView> openView() {
+		return submit(platform -> platform.openView());
+	}
+
+	/**
+	 * Number of accounts as of the last batch, without waiting for the writer
+	 * @return number of accounts
+	 */
+	public int getNumberOfAccounts() {
+		return totals.numOfAccounts;
+	}
+
+	/**
+	 * Total number of original posts as of the last batch, without waiting for the writer
+	 * @return num of original posts
+	 */
+	public int getTotalOriginalPosts() {
+		return totals.originalPosts;
+	}
+
+	/**
+	 * Total number of endorsements as of the last batch, without waiting for the writer
+	 * @return num of endorsements
+	 */
+	public int getTotalEndorsmentPosts() {
+		return totals.endorsementPosts;
+	}
+
+	/**
+	 * Total number of comments as of the last batch, without waiting for the writer
+	 * @return num of comments
+	 */
+	public int getTotalCommentPosts() {
+		return totals.commentPosts;
+	}
+
+	/**
+	 * Most endorsed post as of the last batch, without waiting for the writer
+	 * @return id of the most endorsed post
+	 */
+	public int getMostEndorsedPost() {
+		return totals.mostEndorsedPost;
+	}
+
+	/**
+	 * Most endorsed account as of the last batch, without waiting for the writer
+	 * @return id of the most endorsed account
+	 */
+	public int getMostEndorsedAccount() {
+		return totals.mostEndorsedAccount;
+	}
+
+	/**
+	 * Stop accepting commands, wait for the writer to finish the commands already queued, then stop it
+	 * and wait for their futures to be completed
+	 */
+	@Override
+	public void close() {
+		boolean interrupted = false;
+
+		submitLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			// The writer keeps taking commands, or empties the queue if it has failed, so there is soon room for the stop
+			while (true) {
+				try {
+					queue.put(STOP);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			submitLock.writeLock().unlock();
+		}
+
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		// The writer has handed over its last batch, so this is the last completion
+		completions.handle((ignored, failure) -> null).join();
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package socialmedia;
+
+import java.util.Arrays;
+
+/**
+ * BatchResult is the outcome of a batch call such as SocialMedia.createPosts: for each item of the
+ * batch, in order, either the ID it was given or the exception that stopped it
+ */
+public class BatchResult {
+	private final int[] ids;
+	private final Exception[] errors;
+	private int numOfErrors = 0;
+
+	/**
+	 * Constructor for the result of a batch, filled in as the batch runs
+	 * @param size number of items in the batch
+	 */
+	BatchResult(int size) {
+		ids = new int[size];
+		Arrays.fill(ids, -1);
+		errors = new Exception[size];
+	}
+
+	/**
+	 * Record that an item was created
+	 * @param index position of the item in the batch
+	 * @param id ID the item was given
+	 */
+	void succeeded(int index, int id) {
+		ids[index] = id;
+	}
+
+	/**
+	 * Record that an item could not be created
+	 * @param index position of the item in the batch
+	 * @param error exception that stopped it
+	 */
+	void failed(int index, Exception error) {
+		errors[index] = error;
+		numOfErrors++;
+	}
+
+	/**
+	 * Returns the number of items in the batch
+	 * @return number of items
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the ID given to each item of the batch
+	 * @return IDs in the order of the batch, -1 for items that could not be created
+	 */
+	public int[] getIDs() {
+		return ids;
+	}
+
+	/**
+	 * Returns the exception that stopped each item of the batch
+	 * @return exceptions in the order of the batch, null for items that were created
+	 */
+	public Exception[] getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Returns the number of items that could not be created
+	 * @return number of errors
+	 */
+	public int getNumOfErrors() {
+		return numOfErrors;
+	}
+}
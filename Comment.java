@@ -1,41 +1,75 @@
 package socialmedia;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 
 //INHERIT PostParent
 public class Comment extends PostsParent{
-	protected String postType;
-	protected final String message;
+	protected String message;
 	protected int postID;	//post comment is attached to
 
+	// where the message is stored in a memory-mapped snapshot, until it is first read
+	private transient MappedSnapshot mappedSnapshot;
+	private transient long mappedOffset;
+
 	/**
 	 * Constructor for comment
-	 * @param handle the account's handle that the post belongs to
-	 * @param ID the post ID the comment is associated to
+	 * @param id the comment's ID
+	 * @param accountID the ID of the account that the post belongs to
+	 * @param postID the post ID the comment is associated to, or -1 if it has been orphaned
 	 * @param message the comment's message
 	 */
-	public Comment (String handle, int ID, String message) {
-		super(handle);
-		postType = "comment";
-		postID = ID;
+	public Comment (int id, int accountID, int postID, String message) {
+		super(id, accountID);
+		this.postID = postID;
 		this.message = message;
 	}
 
+	/**
+	 * Constructor for a comment loaded from a memory-mapped snapshot, which decodes its message when first read
+	 * @param id the comment's ID
+	 * @param accountID the ID of the account that the post belongs to
+	 * @param postID the post ID the comment is associated to, or -1 if it has been orphaned
+	 * @param snapshot the mapped snapshot file
+	 * @param offset position of the message in the snapshot
+	 */
+	public Comment (int id, int accountID, int postID, MappedSnapshot snapshot, long offset) {
+		super(id, accountID);
+		this.postID = postID;
+		this.mappedSnapshot = snapshot;
+		this.mappedOffset = offset;
+	}
+
 	/**
 	 * Returns comment's message
 	 * @return message
 	 */
 	@Override
 	public String getMessage() {
+		// Decode the message from the mapped snapshot the first time it is needed
+		if (message == null && mappedSnapshot != null) {
+			message = mappedSnapshot.getString(mappedOffset);
+		}
 		return message;
 	}
 
+	/**
+	 * Decodes the message before serialising, as the mapped snapshot is not serialised
+	 * @param out stream the comment is written to
+	 * @throws IOException if the comment cannot be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getMessage();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * Returns the type of post: original, comment, or endorsement
-	 * @return string of the post type
+	 * @return the post type
 	 */
 	@Override
-	public String getType() {
-		return postType;
+	public PostType getType() {
+		return PostType.COMMENT;
 	}
 
 	/**
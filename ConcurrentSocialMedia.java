@@ -0,0 +1,624 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ConcurrentSocialMedia is a SocialMediaPlatform that can be called from any number of threads at once.
+ * <p>
+ * It wraps a SocialMedia behind a single read-write lock: calls that only read the platform share the read
+ * lock and run in parallel, while calls that change it hold the write lock, which is only held for the change
+ * itself. After every change the totals and most endorsed IDs are published in one immutable object,
+ * so the analytics calls read them without taking the lock at all. The last view opened is published too,
+ * and handed out without taking the lock until the platform next changes.
+ * <p>
+ * Every other read takes the read lock, so it waits while a change is being made, and a change waits for the
+ * reads already running: showAccount, showIndividualPost, showPostChildrenDetails, showPostChildrenPage,
+ * getMostEndorsedAccounts, getMostEndorsedPosts, and openView once the platform has changed. SocialMedia's
+ * indexes are not safe to read during a change, so they cannot be read without the lock; for reads that must
+ * never wait, open a view and query that.
+ * <p>
+ * The lock is deliberately coarse. A change to one account or post can move the rankings, totals and indexes
+ * of the whole platform, so changes are made one at a time and their throughput is that of one thread, however
+ * many are calling. There are no striped locks or concurrent indexes. For changes that scale with threads,
+ * use ShardedSocialMedia, which gives each shard of the accounts its own lock, or AsyncSocialMedia, which
+ * batches changes on one writer thread.
+ */
+public class ConcurrentSocialMedia implements SocialMediaPlatform {
+	private final SocialMedia platform;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// totals as of the last change, replaced after every change
+	private volatile PlatformTotals totals;
+	// view opened since the last change, or null if none has been - only set while holding the read lock,
+	// so it can never be set to a view from before a change
+	private volatile PlatformView view;
+
+	/**
+	 * Constructor for an empty platform
+	 */
+	public ConcurrentSocialMedia() {
+		this(new SocialMedia());
+	}
+
+	/**
+	 * Constructor for a platform wrapping an existing one, which must not be used directly afterwards
+	 * @param platform platform to be wrapped
+	 */
+	public ConcurrentSocialMedia(SocialMedia platform) {
+		this.platform = platform;
+		this.totals = new PlatformTotals(platform);
+	}
+
+	/**
+	 * Publish the totals after a change, and stop handing out the view from before it. Must be called while
+	 * holding the write lock
+	 */
+	private void publishTotals() {
+		totals = new PlatformTotals(platform);
+		view = null;
+	}
+
+	/**
+	 * Create an account with just a handle, holding the write lock
+	 */
+	@Override
+	public int createAccount(String handle) throws IllegalHandleException, InvalidHandleException {
+		lock.writeLock().lock();
+		try {
+			int id = platform.createAccount(handle);
+			publishTotals();
+			return id;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Create an account with a handle and description, holding the write lock
+	 */
+	@Override
+	public int createAccount(String handle, String description) throws IllegalHandleException, InvalidHandleException {
+		lock.writeLock().lock();
+		try {
+			int id = platform.createAccount(handle, description);
+			publishTotals();
+			return id;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an account based on the id passed through, holding the write lock
+	 */
+	@Override
+	public void removeAccount(int id) throws AccountIDNotRecognisedException {
+		lock.writeLock().lock();
+		try {
+			platform.removeAccount(id);
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an account based on the handle passed through, holding the write lock
+	 */
+	@Override
+	public void removeAccount(String handle) throws HandleNotRecognisedException {
+		lock.writeLock().lock();
+		try {
+			platform.removeAccount(handle);
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the account's handle to a new handle, holding the write lock
+	 */
+	@Override
+	public void changeAccountHandle(String oldHandle, String newHandle)
+			throws HandleNotRecognisedException, IllegalHandleException, InvalidHandleException {
+		lock.writeLock().lock();
+		try {
+			platform.changeAccountHandle(oldHandle, newHandle);
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the account's description, holding the write lock
+	 */
+	@Override
+	public void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException {
+		lock.writeLock().lock();
+		try {
+			platform.updateAccountDescription(handle, description);
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the details of an account as a string, holding the read lock
+	 */
+	@Override
+	public String showAccount(String handle) throws HandleNotRecognisedException {
+		lock.readLock().lock();
+		try {
+			return platform.showAccount(handle);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Create a post with a message from given handle, holding the write lock
+	 */
+	@Override
+	public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
+		lock.writeLock().lock();
+		try {
+			int id = platform.createPost(handle, message);
+			publishTotals();
+			return id;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates an endorsement post of an existing post, holding the write lock
+	 */
+	@Override
+	public int endorsePost(String handle, int id)
+			throws HandleNotRecognisedException, PostIDNotRecognisedException, NotActionablePostException {
+		lock.writeLock().lock();
+		try {
+			int endorsementID = platform.endorsePost(handle, id);
+			publishTotals();
+			return endorsementID;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates a comment post referring to an existing post, holding the write lock
+	 */
+	@Override
+	public int commentPost(String handle, int id, String message) throws HandleNotRecognisedException,
+			PostIDNotRecognisedException, NotActionablePostException, InvalidPostException {
+		lock.writeLock().lock();
+		try {
+			int commentID = platform.commentPost(handle, id, message);
+			publishTotals();
+			return commentID;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Create many accounts in one batch, see SocialMedia.createAccounts. The write lock is taken and the totals
+	 * are published once for the whole batch
+	 * @param handles handle of each account
+	 * @param descriptions description of each account, or null for none of them to have a description
+	 * @return the ID of each account, or the exception that stopped it
+	 */
+	public BatchResult createAccounts(String[] handles, String[] descriptions) {
+		lock.writeLock().lock();
+		try {
+			BatchResult result = platform.createAccounts(handles, descriptions);
+			publishTotals();
+			return result;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Create many posts in one batch, see SocialMedia.createPosts. The write lock is taken and the totals
+	 * are published once for the whole batch
+	 * @param handles handle of the account creating each post
+	 * @param messages message of each post
+	 * @return the ID of each post, or the exception that stopped it
+	 */
+	public BatchResult createPosts(String[] handles, String[] messages) {
+		lock.writeLock().lock();
+		try {
+			BatchResult result = platform.createPosts(handles, messages);
+			publishTotals();
+			return result;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Create many endorsements in one batch, see SocialMedia.endorsePosts. The write lock is taken and the totals
+	 * are published once for the whole batch
+	 * @param handles handle of the account endorsing each post
+	 * @param ids ID of each post being endorsed
+	 * @return the ID of each endorsement post, or the exception that stopped it
+	 */
+	public BatchResult endorsePosts(String[] handles, int[] ids) {
+		lock.writeLock().lock();
+		try {
+			BatchResult result = platform.endorsePosts(handles, ids);
+			publishTotals();
+			return result;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Create many comments in one batch, see SocialMedia.commentPosts. The write lock is taken and the totals
+	 * are published once for the whole batch
+	 * @param handles handle of the account commenting each post
+	 * @param ids ID of each post being commented
+	 * @param messages message of each comment
+	 * @return the ID of each comment post, or the exception that stopped it
+	 */
+	public BatchResult commentPosts(String[] handles, int[] ids, String[] messages) {
+		lock.writeLock().lock();
+		try {
+			BatchResult result = platform.commentPosts(handles, ids, messages);
+			publishTotals();
+			return result;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the given post from the platform, holding the write lock
+	 */
+	@Override
+	public void deletePost(int id) throws PostIDNotRecognisedException {
+		lock.writeLock().lock();
+		try {
+			platform.deletePost(id);
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the details of a post as a string, holding the read lock
+	 */
+	@Override
+	public String showIndividualPost(int id) throws PostIDNotRecognisedException {
+		lock.readLock().lock();
+		try {
+			return platform.showIndividualPost(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the details of a post and all of its children, holding the read lock
+	 */
+	@Override
+	public StringBuilder showPostChildrenDetails(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		lock.readLock().lock();
+		try {
+			return platform.showPostChildrenDetails(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the details of a post and all of its children, see SocialMedia.showPostChildrenDetails(int, Appendable).
+	 * The read lock is held while writing, so a slow destination holds up changes to the platform
+	 * @param id of the post to be shown.
+	 * @param out where the details are written
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 * @throws IOException if writing to out fails
+	 */
+	public void showPostChildrenDetails(int id, Appendable out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException {
+		lock.readLock().lock();
+		try {
+			platform.showPostChildrenDetails(id, out);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets one page of the details of a post and its children, see SocialMedia.showPostChildrenPage
+	 * @param id of the post at the top of the thread
+	 * @param cursor where to carry on from, or null to start at the top of the thread
+	 * @param maxDepth deepest level of children to include
+	 * @param maxPosts most posts to include on the page
+	 * @return the page
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 */
+	public ThreadPage showPostChildrenPage(int id, ThreadCursor cursor, int maxDepth, int maxPosts)
+			throws PostIDNotRecognisedException, NotActionablePostException {
+		lock.readLock().lock();
+		try {
+			return platform.showPostChildrenPage(id, cursor, maxDepth, maxPosts);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of accounts as of the last change, without taking the lock
+	 */
+	@Override
+	public int getNumberOfAccounts() {
+		return totals.numOfAccounts;
+	}
+
+	/**
+	 * Get total number of original posts as of the last change, without taking the lock
+	 */
+	@Override
+	public int getTotalOriginalPosts() {
+		return totals.originalPosts;
+	}
+
+	/**
+	 * Get total number of endorsements as of the last change, without taking the lock
+	 */
+	@Override
+	public int getTotalEndorsmentPosts() {
+		return totals.endorsementPosts;
+	}
+
+	/**
+	 * Get total number of comments as of the last change, without taking the lock
+	 */
+	@Override
+	public int getTotalCommentPosts() {
+		return totals.commentPosts;
+	}
+
+	/**
+	 * Get the most endorsed post as of the last change, without taking the lock
+	 */
+	@Override
+	public int getMostEndorsedPost() {
+		return totals.mostEndorsedPost;
+	}
+
+	/**
+	 * Get the most endorsed account as of the last change, without taking the lock
+	 */
+	@Override
+	public int getMostEndorsedAccount() {
+		return totals.mostEndorsedAccount;
+	}
+
+	/**
+	 * Identifies and returns the k accounts with the highest number of endorsements
+	 * @param k maximum number of accounts to return
+	 * @return ids of up to k accounts, most endorsed first
+	 */
+	public int[] getMostEndorsedAccounts(int k) {
+		lock.readLock().lock();
+		try {
+			return platform.getMostEndorsedAccounts(k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Identifies and returns the k posts with the highest number of endorsements
+	 * @param k maximum number of posts to return
+	 * @return ids of up to k posts, most endorsed first
+	 */
+	public int[] getMostEndorsedPosts(int k) {
+		lock.readLock().lock();
+		try {
+			return platform.getMostEndorsedPosts(k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Opens a read-only view of the platform as it is now, see SocialMedia.openView. The view opened since the
+	 * last change is handed out without taking the lock. Otherwise the changes since the last view are copied
+	 * under the read lock; the view works out its counts without holding up writers
+	 * @return view of the current version of the platform
+	 */
+	public PlatformView openView() {
+		PlatformView current = view;
+		if (current != null) {
+			return current;
+		}
+
+		lock.readLock().lock();
+		try {
+			// Readers opening a view at the same time may each capture one, which is harmless
+			current = platform.openView();
+			view = current;
+			return current;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Empties this SocialMediaPlatform of its contents and resets all internal counters, holding the write lock
+	 */
+	@Override
+	public void erasePlatform() {
+		lock.writeLock().lock();
+		try {
+			platform.erasePlatform();
+			publishTotals();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform’s contents into a snapshot file. Changes wait until the file is written,
+	 * so savePlatformInBackground is better while the platform is in use
+	 * @param filename location of the file to be saved
+	 * @throws IOException if there is a problem experienced when trying to save the store contents to the file
+	 */
+	@Override
+	public void savePlatform(String filename) throws IOException {
+		// Saving is a checkpoint for savePlatformDelta, which changes the platform
+		lock.writeLock().lock();
+		try {
+			platform.savePlatform(filename);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform’s contents into a snapshot file on a background thread. Changes only
+	 * wait while the contents are captured, not while the file is written
+	 * @param filename location of the file to be saved
+	 * @return future completed once the file is saved, or completed with an IOException if it could not be saved
+	 */
+	public CompletableFuture<Void> savePlatformInBackground(String filename) {
+		lock.writeLock().lock();
+		try {
+			return platform.savePlatformInBackground(filename);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Saves the accounts and posts changed since the last checkpoint into a delta snapshot file,
+	 * see SocialMedia.savePlatformDelta
+	 * @param filename location of the file to be saved
+	 * @throws IOException if there is a problem experienced when trying to save the changes to the file
+	 */
+	public void savePlatformDelta(String filename) throws IOException {
+		lock.writeLock().lock();
+		try {
+			platform.savePlatformDelta(filename);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with the contents stored in the file, holding the write lock
+	 */
+	@Override
+	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
+		lock.writeLock().lock();
+		try {
+			platform.loadPlatform(filename);
+		} finally {
+			publishTotals();
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with a snapshot file and the delta snapshot
+	 * files saved after it, see SocialMedia.loadPlatform(String, String...)
+	 * @param filename location of the snapshot file to be loaded
+	 * @param deltaFilenames locations of the delta snapshot files to be applied, oldest first
+	 * @throws IOException if there is a problem experienced when trying to load the files
+	 */
+	public void loadPlatform(String filename, String... deltaFilenames) throws IOException {
+		lock.writeLock().lock();
+		try {
+			platform.loadPlatform(filename, deltaFilenames);
+		} finally {
+			publishTotals();
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents by memory-mapping a snapshot file,
+	 * see SocialMedia.mapPlatform
+	 * @param filename location of the snapshot file to be loaded
+	 * @throws IOException if there is a problem experienced when trying to map the file
+	 */
+	public void mapPlatform(String filename) throws IOException {
+		lock.writeLock().lock();
+		try {
+			platform.mapPlatform(filename);
+		} finally {
+			publishTotals();
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces this SocialMediaPlatform’s contents with a snapshot and journal, then journals every change,
+	 * see SocialMedia.openJournal(String, String, long, long)
+	 * @param snapshotFilename location of the snapshot the journal is compacted into
+	 * @param journalFilename location of the journal file
+	 * @param syncIntervalMillis time to let changes build up before each batch is written and synced
+	 * @param compactionThreshold size in bytes after which the journal is compacted into the snapshot
+	 * @throws IOException if the snapshot or journal cannot be read, or the journal does not match the snapshot
+	 */
+	public void openJournal(String snapshotFilename, String journalFilename, long syncIntervalMillis,
+			long compactionThreshold) throws IOException {
+		lock.writeLock().lock();
+		try {
+			platform.openJournal(snapshotFilename, journalFilename, syncIntervalMillis, compactionThreshold);
+		} finally {
+			publishTotals();
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Waits until every change made so far has been synced to the journal. No lock is held while waiting,
+	 * so many threads waiting at once are covered by the same sync
+	 * @throws IOException if the journal could not be written
+	 */
+	public void syncJournal() throws IOException {
+		platform.syncJournal();
+	}
+
+	/**
+	 * Starts compacting the journal into its snapshot on a background thread, see
+	 * SocialMedia.compactJournalInBackground
+	 * @return future completed once the journal is compacted, or completed with an IOException if it could not be
+	 */
+	public CompletableFuture<Void> compactJournalInBackground() {
+		lock.writeLock().lock();
+		try {
+			return platform.compactJournalInBackground();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes and syncs the rest of the journal, then stops journalling changes
+	 * @throws IOException if the journal could not be written
+	 */
+	public void closeJournal() throws IOException {
+		lock.writeLock().lock();
+		try {
+			platform.closeJournal();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
@@ -2,27 +2,26 @@ package socialmedia;
 
 //INHERIT PostParent
 public class Endorsement extends PostsParent{
-	protected String postType;
 	protected int postID;
 
 	/**
 	 * Constructor for endorsement
-	 * @param handle the account's handle that the post belongs to
-	 * @param ID the post ID the endorsement is associated to
+	 * @param id the endorsement's ID
+	 * @param accountID the ID of the account that the post belongs to
+	 * @param postID the post ID the endorsement is associated to
 	 */
-	public Endorsement (String handle, int ID) {
-		super(handle);
-		postID = ID;
-		postType = "endorsement";
+	public Endorsement (int id, int accountID, int postID) {
+		super(id, accountID);
+		this.postID = postID;
 	}
 
 	/**
 	 * Returns the type of post: original, comment, or endorsement
-	 * @return string of the post type
+	 * @return the post type
 	 */
 	@Override
-	public String getType() {
-		return postType;
+	public PostType getType() {
+		return PostType.ENDORSEMENT;
 	}
 
 	/**
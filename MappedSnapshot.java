@@ -0,0 +1,138 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MappedSnapshot is a snapshot file memory-mapped as a run of segments, as one mapping cannot be larger
+ * than 2 GiB. Values are read by their position in the whole file, and a value or string that crosses
+ * the end of a segment is put together from the segments either side.
+ * <p>
+ * Reads never move a segment's position, so any number of threads can read at once. The mappings stay
+ * valid after the file is closed.
+ */
+public class MappedSnapshot {
+	// bytes in each segment but the last, a power of two no larger than a mapping can be
+	public static final int SEGMENT_SIZE = 1 << 30;
+
+	private final ByteBuffer[] segments;
+	private final int segmentSize;
+	private final long size;
+
+	/**
+	 * Constructor for a snapshot mapped from an open file
+	 * @param channel the file, open for reading
+	 * @param segmentSize bytes in each segment but the last
+	 * @throws IOException if the file cannot be mapped
+	 */
+	MappedSnapshot(FileChannel channel, int segmentSize) throws IOException {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("A segment needs at least one byte");
+		}
+		this.segmentSize = segmentSize;
+		this.size = channel.size();
+
+		long numOfSegments = (size + segmentSize - 1) / segmentSize;
+		if (numOfSegments > Integer.MAX_VALUE) {
+			throw new IOException("This snapshot is too large to be mapped in segments of " + segmentSize + " bytes");
+		}
+		segments = new ByteBuffer[(int) numOfSegments];
+		for (int i = 0; i < segments.length; i++) {
+			long start = (long) i * segmentSize;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+		}
+	}
+
+	/**
+	 * Get the size of the mapped file
+	 * @return size in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Read a byte
+	 * @param position position of the byte in the file
+	 * @return the byte
+	 */
+	public byte getByte(long position) {
+		return segments[(int) (position / segmentSize)].get((int) (position % segmentSize));
+	}
+
+	/**
+	 * Read a big-endian int
+	 * @param position position of the int's first byte in the file
+	 * @return the int
+	 */
+	public int getInt(long position) {
+		ByteBuffer segment = segments[(int) (position / segmentSize)];
+		int offset = (int) (position % segmentSize);
+		if (offset + 4 <= segment.limit()) {
+			return segment.getInt(offset);
+		}
+		return (int) getAcross(position, 4);
+	}
+
+	/**
+	 * Read a big-endian long
+	 * @param position position of the long's first byte in the file
+	 * @return the long
+	 */
+	public long getLong(long position) {
+		ByteBuffer segment = segments[(int) (position / segmentSize)];
+		int offset = (int) (position % segmentSize);
+		if (offset + 8 <= segment.limit()) {
+			return segment.getLong(offset);
+		}
+		return getAcross(position, 8);
+	}
+
+	/**
+	 * Read a big-endian value that crosses the end of a segment, a byte at a time
+	 * @param position position of the value's first byte in the file
+	 * @param bytes size of the value, at most 8
+	 * @return the value
+	 */
+	private long getAcross(long position, int bytes) {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value = (value << 8) | (getByte(position + i) & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Copy bytes out of the file, from as many segments as they cross
+	 * @param position position of the first byte in the file
+	 * @param bytes array filled with the bytes
+	 */
+	public void get(long position, byte[] bytes) {
+		int copied = 0;
+		while (copied < bytes.length) {
+			ByteBuffer segment = segments[(int) (position / segmentSize)];
+			int offset = (int) (position % segmentSize);
+			int length = Math.min(bytes.length - copied, segment.limit() - offset);
+			segment.get(offset, bytes, copied, length);
+			copied += length;
+			position += length;
+		}
+	}
+
+	/**
+	 * Decode a string written into the snapshot
+	 * @param position position of the string's length in the file
+	 * @return the string, or null if a null string was written
+	 */
+	public String getString(long position) {
+		int length = getInt(position);
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		get(position + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
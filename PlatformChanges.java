@@ -0,0 +1,185 @@
+package socialmedia;
+
+import java.io.Serializable;
+import java.util.TreeSet;
+
+/**
+ * PlatformChanges records which accounts and posts of a platform have been created, changed or removed
+ * since its last checkpoint, so that a delta snapshot only has to save those. It also records those changed
+ * since the last image was captured, so that PlatformImageCache only has to copy those
+ */
+public class PlatformChanges implements Serializable {
+	// whether the platform was emptied since the checkpoint, so the changes replace everything before them
+	private boolean cleared = true;
+
+	// IDs of changed accounts and posts, in order of creation
+	private TreeSet<Integer> accountIDs = new TreeSet<>();
+	private TreeSet<Integer> postIDs = new TreeSet<>();
+
+	// counts every change, save and load, so a copy of the platform is out of date once it moves on
+	private long version = 0;
+
+	// identity of the file saved or loaded at the checkpoint, which the next delta records as its base - 0 if none
+	private long checkpointID = 0;
+
+	// whether changes since the last capture are being recorded, which stops when the platform is emptied or
+	// replaced and is not kept when serialised, as the next capture copies everything then
+	private transient boolean capturing = false;
+	private transient TreeSet<Integer> uncapturedAccountIDs;
+	private transient TreeSet<Integer> uncapturedPostIDs;
+
+	/**
+	 * Record that an account was created, changed or removed
+	 * @param id account's id
+	 */
+	public void accountChanged(int id) {
+		version++;
+		accountIDs.add(id);
+		if (capturing) {
+			uncapturedAccountIDs.add(id);
+		}
+	}
+
+	/**
+	 * Record that a post was created, changed or removed
+	 * @param id post id
+	 */
+	public void postChanged(int id) {
+		version++;
+		postIDs.add(id);
+		if (capturing) {
+			uncapturedPostIDs.add(id);
+		}
+	}
+
+	/**
+	 * Record that a batch of accounts was created
+	 * @param ids accounts' ids, in order of creation
+	 */
+	public void accountsChanged(int[] ids) {
+		version++;
+		for (int id: ids) {
+			accountIDs.add(id);
+		}
+		if (capturing) {
+			for (int id: ids) {
+				uncapturedAccountIDs.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Record that a batch of posts was created
+	 * @param ids post ids, in order of creation
+	 */
+	public void postsChanged(int[] ids) {
+		version++;
+		for (int id: ids) {
+			postIDs.add(id);
+		}
+		if (capturing) {
+			for (int id: ids) {
+				uncapturedPostIDs.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Record that the platform was emptied, which replaces every change before it
+	 */
+	public void erase() {
+		version++;
+		cleared = true;
+		accountIDs = new TreeSet<>();
+		postIDs = new TreeSet<>();
+		capturing = false;
+		uncapturedAccountIDs = null;
+		uncapturedPostIDs = null;
+	}
+
+	/**
+	 * Record that the platform's contents were saved or loaded, so start again with no changes
+	 * @param fileID identity of the file saved or loaded, or 0 if it has none
+	 */
+	public void checkpoint(long fileID) {
+		version++;
+		checkpointID = fileID;
+		cleared = false;
+		accountIDs = new TreeSet<>();
+		postIDs = new TreeSet<>();
+	}
+
+	/**
+	 * Record that an image of the platform was captured, so start recording changes since it again
+	 */
+	public void captured() {
+		capturing = true;
+		uncapturedAccountIDs = new TreeSet<>();
+		uncapturedPostIDs = new TreeSet<>();
+	}
+
+	/**
+	 * Check whether the changes since the last capture are known. They are not before the first capture,
+	 * or after the platform was emptied or replaced
+	 * @return boolean value representing if getUncapturedAccountIDs and getUncapturedPostIDs can be used
+	 */
+	public boolean isCapturing() {
+		return capturing;
+	}
+
+	/**
+	 * Get the IDs of accounts created, changed or removed since the last capture, see isCapturing
+	 * @return account ids, in order of creation
+	 */
+	public TreeSet<Integer> getUncapturedAccountIDs() {
+		return uncapturedAccountIDs;
+	}
+
+	/**
+	 * Get the IDs of posts created, changed or removed since the last capture, see isCapturing
+	 * @return post ids, in order of creation
+	 */
+	public TreeSet<Integer> getUncapturedPostIDs() {
+		return uncapturedPostIDs;
+	}
+
+	/**
+	 * Check whether the platform was emptied since the checkpoint
+	 * @return boolean value representing if the changes replace everything before them
+	 */
+	public boolean isCleared() {
+		return cleared;
+	}
+
+	/**
+	 * Get the identity of the file saved or loaded at the checkpoint, which a delta saved now follows
+	 * @return identity of the file, or 0 if it has none
+	 */
+	public long getCheckpointID() {
+		return checkpointID;
+	}
+
+	/**
+	 * Get the platform's version, which moves on whenever the platform may have changed
+	 * @return version number
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the IDs of accounts created, changed or removed since the checkpoint
+	 * @return account ids, in order of creation
+	 */
+	public TreeSet<Integer> getAccountIDs() {
+		return accountIDs;
+	}
+
+	/**
+	 * Get the IDs of posts created, changed or removed since the checkpoint
+	 * @return post ids, in order of creation
+	 */
+	public TreeSet<Integer> getPostIDs() {
+		return postIDs;
+	}
+}
@@ -0,0 +1,255 @@
+package socialmedia;
+
+import java.util.Arrays;
+
+/**
+ * PlatformImage is a point-in-time copy of a platform's accounts and posts, which can be saved
+ * while the platform carries on changing.
+ * <p>
+ * An image holds what can change about each account and post, its handle and description or the post it
+ * points to, in slots in order of creation. Posts themselves are kept by reference, as their IDs, authors
+ * and messages never change, so no message is copied or decoded. Slots of accounts and posts removed since
+ * they were copied may be empty. The slots are shared with PlatformImageCache and the images captured before
+ * and after, so capturing an image only copies what changed since the last one, see PlatformImageCache.
+ * <p>
+ * An image can also hold just the changes since a checkpoint: the accounts and posts created or changed
+ * since then, and the IDs of those removed.
+ */
+public class PlatformImage {
+	private final int nextAccountID;
+	private final int nextPostID;
+	private final long journalSequence;
+
+	// PlatformImageCache.AccountEntry and PlatformImageCache.PostEntry, in order of creation
+	private final PlatformImageCache.Frozen accounts;
+	private final PlatformImageCache.Frozen posts;
+
+	// only set in an image of changes
+	private final long baseID;
+	private final boolean cleared;
+	private final int[] removedAccountIDs;
+	private final int[] removedPostIDs;
+
+	/**
+	 * Constructor for image, see PlatformImageCache.capture and captureChanges
+	 * @param nextAccountID nextID of accounts
+	 * @param nextPostID nextID of posts
+	 * @param journalSequence sequence number of the last journal record in the image
+	 * @param accounts slots of the accounts, in order of creation
+	 * @param posts slots of the posts, comments and endorsements, in order of creation
+	 * @param baseID identity of the file saved or loaded at the checkpoint
+	 * @param cleared whether the platform was emptied since the checkpoint
+	 * @param removedAccountIDs IDs of accounts removed since the checkpoint
+	 * @param removedPostIDs IDs of posts removed since the checkpoint
+	 */
+	PlatformImage(int nextAccountID, int nextPostID, long journalSequence, PlatformImageCache.Frozen accounts,
+			PlatformImageCache.Frozen posts, long baseID, boolean cleared, int[] removedAccountIDs,
+			int[] removedPostIDs) {
+		this.nextAccountID = nextAccountID;
+		this.nextPostID = nextPostID;
+		this.journalSequence = journalSequence;
+		this.accounts = accounts;
+		this.posts = posts;
+		this.baseID = baseID;
+		this.cleared = cleared;
+		this.removedAccountIDs = removedAccountIDs;
+		this.removedPostIDs = removedPostIDs;
+	}
+
+	/**
+	 * Capture the accounts and posts of a platform that changed since its last checkpoint, in order of creation.
+	 * Only the changed accounts and posts are read
+	 * @param allAccounts accounts of the platform
+	 * @param allPosts posts of the platform
+	 * @param changes IDs of the accounts and posts changed since the checkpoint
+	 * @param nextAccountID nextID of accounts
+	 * @param nextPostID nextID of posts
+	 * @param journalSequence sequence number of the last journal record the platform contains, or 0
+	 * @return the image of the changes
+	 */
+	public static PlatformImage captureChanges(AccountCollection allAccounts, PostCollection allPosts,
+			PlatformChanges changes, int nextAccountID, int nextPostID, long journalSequence) {
+
+		// Changed accounts that no longer exist were removed
+		PlatformImageCache.Slots changedAccounts = new PlatformImageCache.Slots();
+		int[] removedAccounts = new int[changes.getAccountIDs().size()];
+		int numRemovedAccounts = 0;
+		for (int id: changes.getAccountIDs()) {
+			Account acc = allAccounts.getAccountFromID(id);
+			if (acc == null) {
+				removedAccounts[numRemovedAccounts++] = id;
+			} else {
+				changedAccounts.put(id, new PlatformImageCache.AccountEntry(acc));
+			}
+		}
+
+		PlatformImageCache.Slots changedPosts = new PlatformImageCache.Slots();
+		int[] removedPosts = new int[changes.getPostIDs().size()];
+		int numRemovedPosts = 0;
+		for (int id: changes.getPostIDs()) {
+			PostsParent post = allPosts.getPost(id);
+			if (post == null) {
+				removedPosts[numRemovedPosts++] = id;
+			} else {
+				changedPosts.put(id, new PlatformImageCache.PostEntry(post));
+			}
+		}
+
+		return new PlatformImage(nextAccountID, nextPostID, journalSequence, changedAccounts.freeze(),
+				changedPosts.freeze(), changes.getCheckpointID(), changes.isCleared(),
+				Arrays.copyOf(removedAccounts, numRemovedAccounts), Arrays.copyOf(removedPosts, numRemovedPosts));
+	}
+
+	/**
+	 * Get nextID of accounts when the image was captured
+	 * @return nextID
+	 */
+	public int getNextAccountID() {
+		return nextAccountID;
+	}
+
+	/**
+	 * Get nextID of posts when the image was captured
+	 * @return nextID
+	 */
+	public int getNextPostID() {
+		return nextPostID;
+	}
+
+	/**
+	 * Get sequence number of the last journal record in the image, or 0 if the platform had no journal
+	 * @return sequence number
+	 */
+	public long getJournalSequence() {
+		return journalSequence;
+	}
+
+	/**
+	 * Get identity of the file saved or loaded at the checkpoint an image of changes follows
+	 * @return identity of the file, or 0 if it has none
+	 */
+	public long getBaseID() {
+		return baseID;
+	}
+
+	/**
+	 * Get number of accounts in the image
+	 * @return number of accounts
+	 */
+	public int getNumOfAccounts() {
+		return accounts.numOfEntries;
+	}
+
+	/**
+	 * Get number of account slots in the image, some of which may be empty
+	 * @return number of slots
+	 */
+	public int getNumOfAccountSlots() {
+		return accounts.numOfSlots;
+	}
+
+	/**
+	 * Check whether an account slot holds an account
+	 * @param slot position of the slot, in order of creation
+	 * @return boolean value representing if the slot holds an account
+	 */
+	public boolean hasAccount(int slot) {
+		return accounts.get(slot) != null;
+	}
+
+	/**
+	 * Get ID of an account in the image
+	 * @param slot position of the account, in order of creation
+	 * @return ID
+	 */
+	public int getAccountID(int slot) {
+		return accounts.get(slot).id;
+	}
+
+	/**
+	 * Get handle of an account in the image
+	 * @param slot position of the account, in order of creation
+	 * @return handle
+	 */
+	public String getHandle(int slot) {
+		return ((PlatformImageCache.AccountEntry) accounts.get(slot)).handle;
+	}
+
+	/**
+	 * Get description of an account in the image
+	 * @param slot position of the account, in order of creation
+	 * @return description
+	 */
+	public String getDescription(int slot) {
+		return ((PlatformImageCache.AccountEntry) accounts.get(slot)).description;
+	}
+
+	/**
+	 * Get number of posts, comments and endorsements in the image
+	 * @return number of posts
+	 */
+	public int getNumOfPosts() {
+		return posts.numOfEntries;
+	}
+
+	/**
+	 * Get number of post slots in the image, some of which may be empty
+	 * @return number of slots
+	 */
+	public int getNumOfPostSlots() {
+		return posts.numOfSlots;
+	}
+
+	/**
+	 * Check whether a post slot holds a post
+	 * @param slot position of the slot, in order of creation
+	 * @return boolean value representing if the slot holds a post
+	 */
+	public boolean hasPost(int slot) {
+		return posts.get(slot) != null;
+	}
+
+	/**
+	 * Get a post in the image. Use getPostID(slot) rather than the post's own getPostID(),
+	 * which may have changed since the image was captured
+	 * @param slot position of the post, in order of creation
+	 * @return post
+	 */
+	public PostsParent getPost(int slot) {
+		return ((PlatformImageCache.PostEntry) posts.get(slot)).post;
+	}
+
+	/**
+	 * Get ID of the post a post pointed to when the image was captured
+	 * @param slot position of the post, in order of creation
+	 * @return ID of the post pointed to, or -1 for original posts and orphaned comments
+	 */
+	public int getPostID(int slot) {
+		return ((PlatformImageCache.PostEntry) posts.get(slot)).postID;
+	}
+
+	/**
+	 * Check whether the platform was emptied since the checkpoint. An image of the whole platform
+	 * counts as emptied, as it replaces everything before it
+	 * @return boolean value representing if the image replaces everything before it
+	 */
+	public boolean isCleared() {
+		return cleared;
+	}
+
+	/**
+	 * Get IDs of accounts removed since the checkpoint
+	 * @return account ids, in order of creation
+	 */
+	public int[] getRemovedAccountIDs() {
+		return removedAccountIDs;
+	}
+
+	/**
+	 * Get IDs of posts removed since the checkpoint
+	 * @return post ids, in order of creation
+	 */
+	public int[] getRemovedPostIDs() {
+		return removedPostIDs;
+	}
+}
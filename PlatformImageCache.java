@@ -0,0 +1,225 @@
+package socialmedia;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * PlatformImageCache keeps the copy of a platform's accounts and posts that images are captured from. Each
+ * capture brings the copy up to date with only the accounts and posts changed since the capture before it,
+ * as recorded by PlatformChanges, and copies the whole platform again only after it was emptied or loaded.
+ * <p>
+ * The copy is held in order of creation, in chunks of CHUNK_SIZE slots. A captured image shares every chunk
+ * with the cache, and the cache copies a chunk before it next changes it, so a capture costs one reference
+ * per chunk plus one chunk for each chunk changed since the last capture. Removed accounts and posts leave
+ * empty slots, which are squeezed out once they outnumber the rest.
+ * <p>
+ * The cache is only used by the thread changing the platform. The images it hands out never change, so any
+ * thread can read them.
+ */
+class PlatformImageCache {
+	// slots in each chunk, a power of two
+	static final int CHUNK_SHIFT = 10;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private final Slots accounts = new Slots();
+	private final Slots posts = new Slots();
+
+	/**
+	 * An account or post as it was when captured
+	 */
+	abstract static class Entry {
+		final int id;
+
+		Entry(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * An account as it was when captured
+	 */
+	static final class AccountEntry extends Entry {
+		final String handle;
+		final String description;
+
+		AccountEntry(Account acc) {
+			super(acc.getID());
+			this.handle = acc.getStringHandle();
+			this.description = acc.getDescription();
+		}
+	}
+
+	/**
+	 * A post as it was when captured, with the post it pointed to then
+	 */
+	static final class PostEntry extends Entry {
+		final PostsParent post;
+		final int postID;
+
+		PostEntry(PostsParent post) {
+			super(post.getID());
+			this.post = post;
+			// Comments are orphaned when the post they point to is deleted
+			this.postID = post.getPostID();
+		}
+	}
+
+	/**
+	 * The slots of a captured image, which never change
+	 */
+	static final class Frozen {
+		final Entry[][] chunks;
+		final int numOfSlots;
+		final int numOfEntries;
+
+		Frozen(Entry[][] chunks, int numOfSlots, int numOfEntries) {
+			this.chunks = chunks;
+			this.numOfSlots = numOfSlots;
+			this.numOfEntries = numOfEntries;
+		}
+
+		/**
+		 * Get the entry in a slot
+		 * @param slot position of the slot, in order of creation
+		 * @return the entry, or null if the slot is empty
+		 */
+		Entry get(int slot) {
+			return chunks[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)];
+		}
+	}
+
+	/**
+	 * Entries in order of creation, held in chunks that are copied before being changed once an image shares them
+	 */
+	static final class Slots {
+		private Entry[][] chunks = new Entry[0][];
+		// whether each chunk belongs to the cache alone, rather than being shared with an image
+		private boolean[] owned = new boolean[0];
+		private int numOfSlots = 0;
+		private int numOfEntries = 0;
+
+		// slot of each entry, by ID
+		private final HashMap<Integer, Integer> slotOfID = new HashMap<>();
+
+		/**
+		 * Add, replace or remove the entry of an ID. IDs not in the slots yet must be added in order of creation
+		 * @param id account or post ID
+		 * @param entry the entry, or null to remove it
+		 */
+		void put(int id, Entry entry) {
+			Integer slot = slotOfID.get(id);
+			if (slot == null) {
+				if (entry != null) {
+					slotOfID.put(id, numOfSlots);
+					set(numOfSlots++, entry);
+					numOfEntries++;
+				}
+			} else if (entry != null) {
+				set(slot, entry);
+			} else {
+				slotOfID.remove(id);
+				set(slot, null);
+				numOfEntries--;
+				if (numOfSlots - numOfEntries > numOfEntries && numOfSlots > CHUNK_SIZE) {
+					squeeze();
+				}
+			}
+		}
+
+		/**
+		 * Write a slot, copying its chunk first if an image shares it, or adding the chunk if it is new
+		 * @param slot position of the slot
+		 * @param entry the entry, or null for an empty slot
+		 */
+		private void set(int slot, Entry entry) {
+			int chunk = slot >>> CHUNK_SHIFT;
+			if (chunk == chunks.length) {
+				chunks = Arrays.copyOf(chunks, Math.max(16, chunks.length * 2));
+				owned = Arrays.copyOf(owned, chunks.length);
+			}
+			if (chunks[chunk] == null) {
+				chunks[chunk] = new Entry[CHUNK_SIZE];
+				owned[chunk] = true;
+			} else if (!owned[chunk]) {
+				chunks[chunk] = chunks[chunk].clone();
+				owned[chunk] = true;
+			}
+			chunks[chunk][slot & (CHUNK_SIZE - 1)] = entry;
+		}
+
+		/**
+		 * Move every entry down into the slots left empty before it, in new chunks
+		 */
+		private void squeeze() {
+			Frozen old = new Frozen(chunks, numOfSlots, numOfEntries);
+			clear();
+			for (int slot = 0; slot < old.numOfSlots; slot++) {
+				Entry entry = old.get(slot);
+				if (entry != null) {
+					put(entry.id, entry);
+				}
+			}
+		}
+
+		/**
+		 * Remove every entry
+		 */
+		void clear() {
+			chunks = new Entry[0][];
+			owned = new boolean[0];
+			numOfSlots = 0;
+			numOfEntries = 0;
+			slotOfID.clear();
+		}
+
+		/**
+		 * Share the slots with an image, so the cache copies each chunk before it next changes it
+		 * @return the slots as they are now
+		 */
+		Frozen freeze() {
+			Arrays.fill(owned, false);
+			int numOfChunks = (numOfSlots + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+			return new Frozen(Arrays.copyOf(chunks, numOfChunks), numOfSlots, numOfEntries);
+		}
+	}
+
+	/**
+	 * Bring the copy up to date with a platform, then capture an image of it
+	 * @param allAccounts accounts of the platform
+	 * @param allPosts posts of the platform
+	 * @param changes changes to the platform, which are marked as captured
+	 * @param nextAccountID nextID of accounts
+	 * @param nextPostID nextID of posts
+	 * @param journalSequence sequence number of the last journal record the platform contains, or 0
+	 * @return the image
+	 */
+	PlatformImage capture(AccountCollection allAccounts, PostCollection allPosts, PlatformChanges changes,
+			int nextAccountID, int nextPostID, long journalSequence) {
+
+		if (!changes.isCapturing()) {
+			// Emptied or replaced since the last capture, or never captured
+			accounts.clear();
+			for (Account acc: allAccounts.accounts.values()) {
+				accounts.put(acc.getID(), new AccountEntry(acc));
+			}
+			posts.clear();
+			for (PostsParent post: allPosts.posts.values()) {
+				posts.put(post.getID(), new PostEntry(post));
+			}
+		} else {
+			// In order of ID, so new accounts and posts are added in order of creation
+			for (int id: changes.getUncapturedAccountIDs()) {
+				Account acc = allAccounts.getAccountFromID(id);
+				accounts.put(id, acc == null ? null : new AccountEntry(acc));
+			}
+			for (int id: changes.getUncapturedPostIDs()) {
+				PostsParent post = allPosts.getPost(id);
+				posts.put(id, post == null ? null : new PostEntry(post));
+			}
+		}
+		changes.captured();
+
+		return new PlatformImage(nextAccountID, nextPostID, journalSequence, accounts.freeze(), posts.freeze(),
+				0, true, new int[0], new int[0]);
+	}
+}
@@ -0,0 +1,847 @@
+package socialmedia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * PlatformJournal is an append-only log of the changes made to a platform since its last snapshot.
+ * <p>
+ * Every record is written as its length, a CRC32 of its contents and the contents themselves: the kind
+ * of change, a sequence number and the arguments of the change, including the ID it produced. A batch
+ * call such as SocialMedia.createPosts is one record holding every item that was created. Records are
+ * buffered in memory and written by a background thread, which syncs the file once per batch, so one
+ * sync covers every change made since the previous one.
+ * <p>
+ * A snapshot saved with the journal holds the sequence number of the last change it contains, so
+ * replaying the journal on top of it skips the changes that are already in it. Replay stops at the
+ * first record that was only partly written, which is then cut off the end of the file.
+ * <p>
+ * Once a batch fails to be written or synced the journal is failed: the records waiting are dropped,
+ * adding a record or checkWritable throws an UncheckedIOException, and sync and close throw the failure.
+ */
+public class PlatformJournal implements Closeable {
+	// kinds of record
+	private static final byte CREATE_ACCOUNT = 1;
+	private static final byte REMOVE_ACCOUNT = 2;
+	private static final byte CHANGE_HANDLE = 3;
+	private static final byte UPDATE_DESCRIPTION = 4;
+	private static final byte CREATE_POST = 5;
+	private static final byte ENDORSE_POST = 6;
+	private static final byte COMMENT_POST = 7;
+	private static final byte DELETE_POST = 8;
+	private static final byte ERASE = 9;
+	// a batch of creations, written as the number of items then each item as in the record of one creation
+	private static final byte CREATE_ACCOUNTS = 10;
+	private static final byte CREATE_POSTS = 11;
+	private static final byte ENDORSE_POSTS = 12;
+	private static final byte COMMENT_POSTS = 13;
+
+	// length and checksum written before every record
+	private static final int HEADER_SIZE = 8;
+	// kind and sequence number at the start of every record
+	private static final int MIN_RECORD_SIZE = 9;
+
+	// size of the buffer used when reading the journal back
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final String filename;
+	private final String snapshotFilename;
+	private FileChannel channel;
+	private final long syncIntervalMillis;
+	private final long compactionThreshold;
+
+	// records waiting to be written, and the record currently being built
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private ByteBuffer record = ByteBuffer.allocate(256);
+	private final CRC32 crc = new CRC32();
+
+	// sequence number of the last record added, and of the last record synced to the file
+	private long sequence;
+	private long syncedSequence;
+	// bytes handed to the file, counting a batch as soon as it is taken to be written, so that
+	// written + pending.size() is always the position just after the last record added
+	private long written;
+	// bytes dropped from the front of the file by discardBefore, so that positions given by mark
+	// before a compaction still point at the same record after it
+	private long discarded;
+
+	private boolean open = true;
+	// set once a batch could not be written, after which no more records are taken
+	private IOException failure;
+	private Thread flusher;
+
+	// held while writing to or replacing the file
+	private final Object fileLock = new Object();
+
+	/**
+	 * Constructor for a journal file, which is created if it does not exist
+	 * @param filename location of the journal file
+	 * @param snapshotFilename location of the snapshot the journal is compacted into
+	 * @param syncIntervalMillis time the background thread waits between syncs, letting changes build up
+	 * @param compactionThreshold size in bytes after which the journal should be compacted
+	 * @throws IOException if the file cannot be opened
+	 */
+	public PlatformJournal(String filename, String snapshotFilename, long syncIntervalMillis, long compactionThreshold)
+			throws IOException {
+		this.filename = filename;
+		this.snapshotFilename = snapshotFilename;
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.compactionThreshold = compactionThreshold;
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Get location of the snapshot the journal is compacted into
+	 * @return filename
+	 */
+	public String getSnapshotFilename() {
+		return snapshotFilename;
+	}
+
+	/**
+	 * Get sequence number of the last record added to the journal
+	 * @return sequence number
+	 */
+	public synchronized long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Check whether the journal has grown past its compaction threshold
+	 * @return boolean value representing if the journal should be compacted
+	 */
+	public synchronized boolean needsCompaction() {
+		return written + pending.size() > compactionThreshold;
+	}
+
+	/**
+	 * Replay the journal onto a platform, then start writing new records after the last one replayed.
+	 * Must be called once, before any record is added
+	 * @param platform platform to apply the changes to, which should not be journalling them itself
+	 * @param snapshotSequence sequence number of the last change already in the platform's snapshot
+	 * @return number of records replayed
+	 * @throws IOException if the journal cannot be read, or a record cannot be applied to the platform
+	 */
+	public int replay(SocialMedia platform, long snapshotSequence) throws IOException {
+		long size = channel.size();
+		long position = 0;
+		int replayed = 0;
+		sequence = snapshotSequence;
+
+		// The stream is not closed, as that would close the channel as well
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)),
+				BUFFER_SIZE));
+
+		while (size - position >= HEADER_SIZE) {
+			int length = in.readInt();
+			int checksum = in.readInt();
+
+			// A length running past the end of the file means the record was only partly written
+			if (length < MIN_RECORD_SIZE || length > size - position - HEADER_SIZE) {
+				break;
+			}
+			byte[] contents = new byte[length];
+			in.readFully(contents);
+			crc.reset();
+			crc.update(contents);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			position += HEADER_SIZE + length;
+
+			long recordSequence = apply(platform, contents, snapshotSequence);
+			if (recordSequence > snapshotSequence) {
+				replayed++;
+			}
+			sequence = Math.max(sequence, recordSequence);
+		}
+
+		// Drop whatever follows the last complete record
+		channel.truncate(position);
+		channel.position(position);
+		channel.force(false);
+		// The journal may have just been created
+		PlatformSnapshot.syncDirectory(Paths.get(filename));
+
+		written = position;
+		syncedSequence = sequence;
+
+		flusher = new Thread(this::flushLoop, "platform-journal");
+		flusher.setDaemon(true);
+		flusher.start();
+
+		return replayed;
+	}
+
+	/**
+	 * Apply a record to a platform, unless it is already in the platform's snapshot
+	 * @param platform platform to apply the change to
+	 * @param contents the record, without its length and checksum
+	 * @param snapshotSequence sequence number of the last change already in the platform's snapshot
+	 * @return the record's sequence number
+	 * @throws IOException if the record cannot be applied to the platform
+	 */
+	private static long apply(SocialMedia platform, byte[] contents, long snapshotSequence) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+		byte kind = in.readByte();
+		long recordSequence = in.readLong();
+
+		if (recordSequence <= snapshotSequence) {
+			return recordSequence;
+		}
+
+		try {
+			int id;
+			switch (kind) {
+				case CREATE_ACCOUNT:
+					id = in.readInt();
+					checkID(recordSequence, id, platform.createAccount(readString(in), readString(in)));
+					break;
+				case REMOVE_ACCOUNT:
+					platform.removeAccount(in.readInt());
+					break;
+				case CHANGE_HANDLE:
+					platform.changeAccountHandle(readString(in), readString(in));
+					break;
+				case UPDATE_DESCRIPTION:
+					platform.updateAccountDescription(readString(in), readString(in));
+					break;
+				case CREATE_POST:
+					id = in.readInt();
+					checkID(recordSequence, id, platform.createPost(readString(in), readString(in)));
+					break;
+				case ENDORSE_POST:
+					id = in.readInt();
+					checkID(recordSequence, id, platform.endorsePost(readString(in), in.readInt()));
+					break;
+				case COMMENT_POST:
+					id = in.readInt();
+					checkID(recordSequence, id, platform.commentPost(readString(in), in.readInt(), readString(in)));
+					break;
+				case DELETE_POST:
+					platform.deletePost(in.readInt());
+					break;
+				case ERASE:
+					platform.erasePlatform();
+					break;
+				case CREATE_ACCOUNTS:
+					applyCreateAccounts(platform, in, recordSequence);
+					break;
+				case CREATE_POSTS:
+					applyCreatePosts(platform, in, recordSequence);
+					break;
+				case ENDORSE_POSTS:
+					applyEndorsePosts(platform, in, recordSequence);
+					break;
+				case COMMENT_POSTS:
+					applyCommentPosts(platform, in, recordSequence);
+					break;
+				default:
+					throw new IOException("This journal record (" + recordSequence + ") has an unknown kind (" + kind + ")");
+			}
+		} catch (HandleNotRecognisedException | AccountIDNotRecognisedException | PostIDNotRecognisedException
+				| IllegalHandleException | InvalidHandleException | InvalidPostException | NotActionablePostException e) {
+			// The change succeeded when it was recorded, so the journal does not belong to this snapshot
+			throw new IOException("This journal record (" + recordSequence + ") could not be replayed: " + e.getMessage());
+		}
+
+		return recordSequence;
+	}
+
+	/**
+	 * Replay a batch of accounts through SocialMedia.createAccounts
+	 * @param platform platform to apply the batch to
+	 * @param in the record, after its sequence number
+	 * @param recordSequence sequence number of the record
+	 * @throws IOException if the record cannot be read, or the batch does not replay as recorded
+	 */
+	private static void applyCreateAccounts(SocialMedia platform, DataInputStream in, long recordSequence)
+			throws IOException {
+		int[] ids = new int[in.readInt()];
+		String[] handles = new String[ids.length];
+		String[] descriptions = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.readInt();
+			handles[i] = readString(in);
+			descriptions[i] = readString(in);
+		}
+		checkBatch(recordSequence, ids, platform.createAccounts(handles, descriptions));
+	}
+
+	/**
+	 * Replay a batch of posts through SocialMedia.createPosts
+	 * @param platform platform to apply the batch to
+	 * @param in the record, after its sequence number
+	 * @param recordSequence sequence number of the record
+	 * @throws IOException if the record cannot be read, or the batch does not replay as recorded
+	 */
+	private static void applyCreatePosts(SocialMedia platform, DataInputStream in, long recordSequence)
+			throws IOException {
+		int[] ids = new int[in.readInt()];
+		String[] handles = new String[ids.length];
+		String[] messages = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.readInt();
+			handles[i] = readString(in);
+			messages[i] = readString(in);
+		}
+		checkBatch(recordSequence, ids, platform.createPosts(handles, messages));
+	}
+
+	/**
+	 * Replay a batch of endorsements through SocialMedia.endorsePosts
+	 * @param platform platform to apply the batch to
+	 * @param in the record, after its sequence number
+	 * @param recordSequence sequence number of the record
+	 * @throws IOException if the record cannot be read, or the batch does not replay as recorded
+	 */
+	private static void applyEndorsePosts(SocialMedia platform, DataInputStream in, long recordSequence)
+			throws IOException {
+		int[] ids = new int[in.readInt()];
+		String[] handles = new String[ids.length];
+		int[] postIDs = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.readInt();
+			handles[i] = readString(in);
+			postIDs[i] = in.readInt();
+		}
+		checkBatch(recordSequence, ids, platform.endorsePosts(handles, postIDs));
+	}
+
+	/**
+	 * Replay a batch of comments through SocialMedia.commentPosts
+	 * @param platform platform to apply the batch to
+	 * @param in the record, after its sequence number
+	 * @param recordSequence sequence number of the record
+	 * @throws IOException if the record cannot be read, or the batch does not replay as recorded
+	 */
+	private static void applyCommentPosts(SocialMedia platform, DataInputStream in, long recordSequence)
+			throws IOException {
+		int[] ids = new int[in.readInt()];
+		String[] handles = new String[ids.length];
+		int[] postIDs = new int[ids.length];
+		String[] messages = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.readInt();
+			handles[i] = readString(in);
+			postIDs[i] = in.readInt();
+			messages[i] = readString(in);
+		}
+		checkBatch(recordSequence, ids, platform.commentPosts(handles, postIDs, messages));
+	}
+
+	/**
+	 * Check that replaying a batch created every item, with the same IDs as when it was recorded
+	 * @param recordSequence sequence number of the record
+	 * @param recorded IDs in the record
+	 * @param result result of replaying the batch
+	 * @throws IOException if an item failed or was given a different ID
+	 */
+	private static void checkBatch(long recordSequence, int[] recorded, BatchResult result) throws IOException {
+		for (int i = 0; i < recorded.length; i++) {
+			Exception error = result.getErrors()[i];
+			if (error != null) {
+				// Only items that succeeded are recorded, so the journal does not belong to this snapshot
+				throw new IOException("This journal record (" + recordSequence + ") could not be replayed: "
+						+ error.getMessage());
+			}
+			checkID(recordSequence, recorded[i], result.getIDs()[i]);
+		}
+	}
+
+	/**
+	 * Check that replaying a record gave the same ID as when it was recorded
+	 * @param recordSequence sequence number of the record
+	 * @param recorded ID in the record
+	 * @param replayed ID given by the platform
+	 * @throws IOException if the IDs are different
+	 */
+	private static void checkID(long recordSequence, int recorded, int replayed) throws IOException {
+		if (recorded != replayed) {
+			throw new IOException("This journal record (" + recordSequence + ") created ID " + recorded
+					+ " but replaying it created ID " + replayed);
+		}
+	}
+
+	/**
+	 * Record that an account was created
+	 * @param id ID of the account
+	 * @param handle account's handle
+	 * @param description account's description, or null if it was created with just a handle
+	 */
+	public synchronized void logCreateAccount(int id, String handle, String description) {
+		begin(CREATE_ACCOUNT);
+		putInt(id);
+		putString(handle);
+		putString(description);
+		end();
+	}
+
+	/**
+	 * Record that an account was removed
+	 * @param id ID of the account
+	 */
+	public synchronized void logRemoveAccount(int id) {
+		begin(REMOVE_ACCOUNT);
+		putInt(id);
+		end();
+	}
+
+	/**
+	 * Record that an account's handle was changed
+	 * @param oldHandle account's old handle
+	 * @param newHandle account's new handle
+	 */
+	public synchronized void logChangeHandle(String oldHandle, String newHandle) {
+		begin(CHANGE_HANDLE);
+		putString(oldHandle);
+		putString(newHandle);
+		end();
+	}
+
+	/**
+	 * Record that an account's description was changed
+	 * @param handle account's handle
+	 * @param description new description
+	 */
+	public synchronized void logUpdateDescription(String handle, String description) {
+		begin(UPDATE_DESCRIPTION);
+		putString(handle);
+		putString(description);
+		end();
+	}
+
+	/**
+	 * Record that a post was created
+	 * @param id ID of the post
+	 * @param handle handle of the post's author
+	 * @param message post message
+	 */
+	public synchronized void logCreatePost(int id, String handle, String message) {
+		begin(CREATE_POST);
+		putInt(id);
+		putString(handle);
+		putString(message);
+		end();
+	}
+
+	/**
+	 * Record that a post was endorsed
+	 * @param id ID of the endorsement
+	 * @param handle handle of the endorsing account
+	 * @param postID ID of the endorsed post
+	 */
+	public synchronized void logEndorsePost(int id, String handle, int postID) {
+		begin(ENDORSE_POST);
+		putInt(id);
+		putString(handle);
+		putInt(postID);
+		end();
+	}
+
+	/**
+	 * Record that a post was commented on
+	 * @param id ID of the comment
+	 * @param handle handle of the commenting account
+	 * @param postID ID of the post commented on
+	 * @param message comment message
+	 */
+	public synchronized void logCommentPost(int id, String handle, int postID, String message) {
+		begin(COMMENT_POST);
+		putInt(id);
+		putString(handle);
+		putInt(postID);
+		putString(message);
+		end();
+	}
+
+	/**
+	 * Record that a batch of accounts was created, as one record
+	 * @param ids ID of each account
+	 * @param handles handle of each account
+	 * @param descriptions description of each account, null for those created with just a handle
+	 */
+	public synchronized void logCreateAccounts(int[] ids, String[] handles, String[] descriptions) {
+		begin(CREATE_ACCOUNTS);
+		putInt(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			putInt(ids[i]);
+			putString(handles[i]);
+			putString(descriptions[i]);
+		}
+		end();
+	}
+
+	/**
+	 * Record that a batch of posts was created, as one record
+	 * @param ids ID of each post
+	 * @param handles handle of each post's author
+	 * @param messages message of each post
+	 */
+	public synchronized void logCreatePosts(int[] ids, String[] handles, String[] messages) {
+		begin(CREATE_POSTS);
+		putInt(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			putInt(ids[i]);
+			putString(handles[i]);
+			putString(messages[i]);
+		}
+		end();
+	}
+
+	/**
+	 * Record that a batch of posts was endorsed, as one record
+	 * @param ids ID of each endorsement
+	 * @param handles handle of each endorsing account
+	 * @param postIDs ID of each endorsed post
+	 */
+	public synchronized void logEndorsePosts(int[] ids, String[] handles, int[] postIDs) {
+		begin(ENDORSE_POSTS);
+		putInt(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			putInt(ids[i]);
+			putString(handles[i]);
+			putInt(postIDs[i]);
+		}
+		end();
+	}
+
+	/**
+	 * Record that a batch of posts was commented on, as one record
+	 * @param ids ID of each comment
+	 * @param handles handle of each commenting account
+	 * @param postIDs ID of each post commented on
+	 * @param messages message of each comment
+	 */
+	public synchronized void logCommentPosts(int[] ids, String[] handles, int[] postIDs, String[] messages) {
+		begin(COMMENT_POSTS);
+		putInt(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			putInt(ids[i]);
+			putString(handles[i]);
+			putInt(postIDs[i]);
+			putString(messages[i]);
+		}
+		end();
+	}
+
+	/**
+	 * Record that a post was deleted
+	 * @param id ID of the post
+	 */
+	public synchronized void logDeletePost(int id) {
+		begin(DELETE_POST);
+		putInt(id);
+		end();
+	}
+
+	/**
+	 * Record that the platform was erased
+	 */
+	public synchronized void logErase() {
+		begin(ERASE);
+		end();
+	}
+
+	/**
+	 * Check that records can still be added, so a change can be refused before it is made
+	 * @throws UncheckedIOException if an earlier batch could not be written
+	 */
+	public synchronized void checkWritable() {
+		if (!open) {
+			throw new IllegalStateException("This journal (" + filename + ") is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException("Error when writing journal (" + filename + ")", failure);
+		}
+	}
+
+	/**
+	 * Start building a record
+	 * @param kind kind of record
+	 * @throws UncheckedIOException if an earlier batch could not be written
+	 */
+	private void begin(byte kind) {
+		checkWritable();
+		record.clear();
+		// leave room for the length and checksum
+		record.position(HEADER_SIZE);
+		record.put(kind);
+		record.putLong(sequence + 1);
+	}
+
+	/**
+	 * Add the record that was built to the records waiting to be written
+	 */
+	private void end() {
+		int length = record.position() - HEADER_SIZE;
+		crc.reset();
+		crc.update(record.array(), HEADER_SIZE, length);
+		record.putInt(0, length);
+		record.putInt(4, (int) crc.getValue());
+
+		boolean first = pending.size() == 0;
+		pending.write(record.array(), 0, record.position());
+		sequence++;
+
+		if (first) {
+			// The background thread waits for the first record of a batch
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Add an int to the record being built
+	 * @param value int to be added
+	 */
+	private void putInt(int value) {
+		ensure(4);
+		record.putInt(value);
+	}
+
+	/**
+	 * Add a string to the record being built, as a byte length (-1 for null) followed by its UTF-8 bytes
+	 * @param value string to be added
+	 */
+	private void putString(String value) {
+		if (value == null) {
+			putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		ensure(bytes.length);
+		record.put(bytes);
+	}
+
+	/**
+	 * Grow the record being built, if there is not room left for the given number of bytes
+	 * @param bytes number of bytes about to be added
+	 */
+	private void ensure(int bytes) {
+		if (record.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+			record.flip();
+			larger.put(record);
+			record = larger;
+		}
+	}
+
+	/**
+	 * Read a string written by putString
+	 * @param in the record being read
+	 * @return the string, or null if a null string was written
+	 * @throws IOException if the record ends part way through the string
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Wait until every record added so far has been synced to the file
+	 * @throws IOException if the background thread failed to write the journal, or the wait was interrupted
+	 */
+	public synchronized void sync() throws IOException {
+		long target = sequence;
+		while (syncedSequence < target && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the journal to sync");
+			}
+		}
+		if (failure != null) {
+			throw new IOException("Error when writing journal (" + filename + ")", failure);
+		}
+	}
+
+	/**
+	 * Get the position in the journal just after the last record added, to pass to discardBefore
+	 * once everything up to that record has been saved into a snapshot. Positions count the bytes ever
+	 * added to the journal, so they stay valid while other compactions rewrite the file
+	 * @return position
+	 */
+	public synchronized long mark() {
+		return discarded + written + pending.size();
+	}
+
+	/**
+	 * Drop the records before a position given by mark, once they have been saved into a snapshot.
+	 * The records after it are copied into a new file, which is then moved over the journal, so a crash
+	 * part way through leaves either the old journal or the new one. Nothing is dropped if a later
+	 * position was already discarded
+	 * @param position position given by mark
+	 * @throws IOException if the new file cannot be written
+	 */
+	public void discardBefore(long position) throws IOException {
+		synchronized (fileLock) {
+			// Every record after the position must be in the file before it is copied
+			writePending();
+
+			long offset;
+			synchronized (this) {
+				offset = position - discarded;
+			}
+			if (offset <= 0) {
+				return;
+			}
+
+			Path path = Paths.get(filename);
+			Path temp = Paths.get(filename + ".tmp");
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				long size = channel.size();
+				long copied = offset;
+				while (copied < size) {
+					copied += channel.transferTo(copied, size - copied, out);
+				}
+				out.force(false);
+			}
+
+			channel.close();
+			PlatformSnapshot.replace(temp, path);
+			channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			channel.position(channel.size());
+
+			synchronized (this) {
+				written -= offset;
+				discarded += offset;
+			}
+		}
+	}
+
+	/**
+	 * Write and sync the records waiting to be written, then stop the background thread and close the file
+	 * @throws IOException if the journal could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (!open) {
+				return;
+			}
+			open = false;
+			notifyAll();
+		}
+
+		if (flusher != null) {
+			try {
+				flusher.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (fileLock) {
+			channel.close();
+		}
+
+		synchronized (this) {
+			if (failure != null) {
+				throw new IOException("Error when writing journal (" + filename + ")", failure);
+			}
+		}
+	}
+
+	/**
+	 * Body of the background thread: waits for records, then writes and syncs them as one batch
+	 */
+	private void flushLoop() {
+		while (true) {
+			synchronized (this) {
+				while (open && pending.size() == 0) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// only close stops the thread
+					}
+				}
+				if (pending.size() == 0 || failure != null) {
+					return;
+				}
+			}
+
+			if (syncIntervalMillis > 0) {
+				// Let the changes made meanwhile join this batch
+				try {
+					Thread.sleep(syncIntervalMillis);
+				} catch (InterruptedException e) {
+					// write the batch straight away
+				}
+			}
+
+			try {
+				synchronized (fileLock) {
+					writePending();
+				}
+			} catch (IOException e) {
+				// recorded by writePending
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Write and sync the records waiting to be written. Must be called while holding fileLock
+	 * @throws IOException if the file cannot be written, or an earlier batch could not be
+	 */
+	private void writePending() throws IOException {
+		ByteArrayOutputStream batch;
+		long batchSequence;
+		synchronized (this) {
+			if (failure != null) {
+				throw new IOException("Error when writing journal (" + filename + ")", failure);
+			}
+			if (pending.size() == 0) {
+				return;
+			}
+			batch = pending;
+			batchSequence = sequence;
+			pending = new ByteArrayOutputStream();
+			written += batch.size();
+		}
+
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			// The batch may be partly in the file, so nothing after it can be written
+			synchronized (this) {
+				failure = e;
+				pending = new ByteArrayOutputStream();
+				notifyAll();
+			}
+			throw e;
+		}
+
+		synchronized (this) {
+			syncedSequence = Math.max(syncedSequence, batchSequence);
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,775 @@
+package socialmedia;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PlatformSnapshot is the binary file format used to save and load a platform.
+ * <p>
+ * The file starts with a magic number and a format version, followed by sections of primitive values:
+ * <ul>
+ * <li>counters: next account ID, next post ID, (from version 2) the sequence number of the last
+ * journal record the snapshot contains, and (from version 3) a random non-zero ID of the file</li>
+ * <li>accounts: count, then per account its ID, handle and description</li>
+ * <li>posts: count, then per post its type, ID, account ID, the ID of the post it points to
+ * (-1 for original posts and orphaned comments) and its message</li>
+ * </ul>
+ * Strings are written as a byte length (-1 for null) followed by their UTF-8 bytes. Posts are written
+ * in order of creation, so every post comes after the post it points to.
+ * <p>
+ * A snapshot can also be memory-mapped, in which case post and comment messages are left in the
+ * mapped file and only decoded when they are first read. The file is mapped in segments, see MappedSnapshot,
+ * so it can be of any size.
+ * <p>
+ * A delta snapshot only holds the changes since a checkpoint. It starts with its own magic number, has
+ * (from version 3) the ID of the file saved or loaded at the checkpoint after the counters, 0 if it had none,
+ * then a flag that is set if the platform was emptied since the checkpoint, and its accounts
+ * and posts sections only hold those created or changed. They are followed by two more sections:
+ * <ul>
+ * <li>removed accounts: count, then the ID of each account removed</li>
+ * <li>removed posts: count, then the ID of each post removed</li>
+ * </ul>
+ * A delta is loaded by applying it to the snapshot (or previous delta) it was saved after, and is rejected
+ * if it records a different file as its base. Deltas of earlier versions, and deltas whose checkpoint had no
+ * file, are not checked.
+ * <p>
+ * A full snapshot, or a snapshot with its deltas applied, is rejected unless its IDs and handles are unique,
+ * every post's account is in it, and every comment and endorsement points to an earlier post or comment.
+ */
+public class PlatformSnapshot {
+	// first bytes of every snapshot file ("SMPS") - serialised files start with 0xACED instead
+	public static final int MAGIC = 0x534D5053;
+	// first bytes of every delta snapshot file ("SMPD")
+	public static final int DELTA_MAGIC = 0x534D5044;
+	public static final int VERSION = 3;
+
+	// size of the buffer between the file channel and the values being read or written
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final int nextAccountID;
+	private final int nextPostID;
+	private final long journalSequence;
+	private final long saveID;
+	private final long baseID;
+	private final ArrayList<Account> accounts;
+	private final ArrayList<PostsParent> posts;
+	private final boolean cleared;
+	private final int[] removedAccountIDs;
+	private final int[] removedPostIDs;
+
+	/**
+	 * Constructor for snapshot loaded from a file
+	 * @param nextAccountID nextID of accounts when the file was saved
+	 * @param nextPostID nextID of posts when the file was saved
+	 * @param journalSequence sequence number of the last journal record in the file
+	 * @param saveID ID of the file, or 0 if it has none
+	 * @param baseID ID of the file a delta was saved after, or 0 if it is not known
+	 * @param accounts accounts in order of creation
+	 * @param posts posts, comments and endorsements in order of creation
+	 * @param cleared false for a delta that applies on top of the snapshot before it
+	 * @param removedAccountIDs IDs of accounts removed by a delta
+	 * @param removedPostIDs IDs of posts removed by a delta
+	 */
+	private PlatformSnapshot(int nextAccountID, int nextPostID, long journalSequence, long saveID, long baseID,
+			ArrayList<Account> accounts, ArrayList<PostsParent> posts, boolean cleared, int[] removedAccountIDs,
+			int[] removedPostIDs) {
+		this.nextAccountID = nextAccountID;
+		this.nextPostID = nextPostID;
+		this.journalSequence = journalSequence;
+		this.saveID = saveID;
+		this.baseID = baseID;
+		this.accounts = accounts;
+		this.posts = posts;
+		this.cleared = cleared;
+		this.removedAccountIDs = removedAccountIDs;
+		this.removedPostIDs = removedPostIDs;
+	}
+
+	/**
+	 * Create a full snapshot of a platform read from elsewhere, such as a serialised platform
+	 * @param nextAccountID nextID of accounts
+	 * @param nextPostID nextID of posts
+	 * @param accounts accounts in order of creation
+	 * @param posts posts, comments and endorsements in order of creation
+	 * @return the snapshot
+	 */
+	static PlatformSnapshot of(int nextAccountID, int nextPostID, ArrayList<Account> accounts,
+			ArrayList<PostsParent> posts) {
+		return new PlatformSnapshot(nextAccountID, nextPostID, 0, 0, 0, accounts, posts, true, new int[0], new int[0]);
+	}
+
+	/**
+	 * Get nextID of accounts when the file was saved
+	 * @return nextID
+	 */
+	public int getNextAccountID() {
+		return nextAccountID;
+	}
+
+	/**
+	 * Get nextID of posts when the file was saved
+	 * @return nextID
+	 */
+	public int getNextPostID() {
+		return nextPostID;
+	}
+
+	/**
+	 * Get sequence number of the last journal record in the file, or 0 if it was saved without a journal
+	 * @return sequence number
+	 */
+	public long getJournalSequence() {
+		return journalSequence;
+	}
+
+	/**
+	 * Get ID of the file, which a delta saved after it records as its base. A snapshot with deltas applied
+	 * has the ID of its last delta
+	 * @return ID of the file, or 0 if it was saved before files had IDs
+	 */
+	public long getSaveID() {
+		return saveID;
+	}
+
+	/**
+	 * Get the saved accounts, in order of creation
+	 * @return accounts
+	 */
+	public ArrayList<Account> getAccounts() {
+		return accounts;
+	}
+
+	/**
+	 * Get the saved posts, comments and endorsements, in order of creation
+	 * @return posts
+	 */
+	public ArrayList<PostsParent> getPosts() {
+		return posts;
+	}
+
+	/**
+	 * Apply a delta saved after this snapshot, giving the contents of the platform when the delta was saved
+	 * @param delta the loaded delta
+	 * @return the snapshot with the delta applied
+	 * @throws IOException if the delta was saved after another file, or the accounts and posts with the delta
+	 * applied do not refer to each other properly
+	 */
+	public PlatformSnapshot apply(PlatformSnapshot delta) throws IOException {
+		if (delta.baseID != 0 && delta.baseID != saveID) {
+			throw new IOException("This delta snapshot was saved after file " + Long.toHexString(delta.baseID)
+					+ ", not after file " + Long.toHexString(saveID));
+		}
+
+		ArrayList<Account> appliedAccounts = delta.accounts;
+		ArrayList<PostsParent> appliedPosts = delta.posts;
+
+		if (!delta.cleared) {
+			// Changed accounts and posts keep their place, and new ones have higher IDs than any before them
+			LinkedHashMap<Integer, Account> accountMap = new LinkedHashMap<>();
+			for (Account acc: accounts) {
+				accountMap.put(acc.getID(), acc);
+			}
+			for (int id: delta.removedAccountIDs) {
+				accountMap.remove(id);
+			}
+			for (Account acc: delta.accounts) {
+				accountMap.put(acc.getID(), acc);
+			}
+
+			LinkedHashMap<Integer, PostsParent> postMap = new LinkedHashMap<>();
+			for (PostsParent post: posts) {
+				postMap.put(post.getID(), post);
+			}
+			for (int id: delta.removedPostIDs) {
+				postMap.remove(id);
+			}
+			for (PostsParent post: delta.posts) {
+				postMap.put(post.getID(), post);
+			}
+
+			appliedAccounts = new ArrayList<>(accountMap.values());
+			appliedPosts = new ArrayList<>(postMap.values());
+		}
+
+		checkReferences(appliedAccounts, appliedPosts);
+		return new PlatformSnapshot(delta.nextAccountID, delta.nextPostID, delta.journalSequence, delta.saveID, 0,
+				appliedAccounts, appliedPosts, true, new int[0], new int[0]);
+	}
+
+	/**
+	 * Check that the accounts and posts of a full snapshot refer to each other properly, so that loading
+	 * them cannot fail part way through
+	 * @param accounts accounts in order of creation
+	 * @param posts posts, comments and endorsements in order of creation
+	 * @throws IOException if an ID or handle is repeated, a post's account is missing, or a comment or
+	 * endorsement points to a post that is missing, comes after it or is an endorsement
+	 */
+	private static void checkReferences(ArrayList<Account> accounts, ArrayList<PostsParent> posts)
+			throws IOException {
+		HashSet<Integer> accountIDs = new HashSet<>();
+		HashSet<String> handles = new HashSet<>();
+		for (Account acc: accounts) {
+			if (!accountIDs.add(acc.getID())) {
+				throw new IOException("Corrupt snapshot: repeated account ID " + acc.getID());
+			}
+			if (acc.getStringHandle() == null || !handles.add(acc.getStringHandle())) {
+				throw new IOException("Corrupt snapshot: bad handle of account " + acc.getID());
+			}
+		}
+
+		// types of the posts read so far, by ID
+		HashMap<Integer, PostType> types = new HashMap<>();
+		for (PostsParent post: posts) {
+			if (!accountIDs.contains(post.getAccountID())) {
+				throw new IOException("Corrupt snapshot: missing account of post " + post.getID());
+			}
+			if (post.getType() != PostType.ORIGINAL_POST) {
+				PostType pointedTo = types.get(post.getPostID());
+				boolean orphan = post.getType() == PostType.COMMENT && post.getPostID() == -1;
+				if (!orphan && (pointedTo == null || pointedTo == PostType.ENDORSEMENT)) {
+					throw new IOException("Corrupt snapshot: missing post " + post.getPostID() + " pointed to by post "
+							+ post.getID());
+				}
+			}
+			if (types.put(post.getID(), post.getType()) != null) {
+				throw new IOException("Corrupt snapshot: repeated post ID " + post.getID());
+			}
+		}
+	}
+
+	/**
+	 * Check whether a file is a snapshot, rather than a serialised platform
+	 * @param filename location of the file
+	 * @return boolean value representing if the file starts with the snapshot magic number
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isSnapshot(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(4);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// keep reading until the magic number is complete or the file ends
+			}
+			return !header.hasRemaining() && header.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Save an image of a platform into a snapshot file. The snapshot is written next to the file, synced,
+	 * and then moved over it, so a platform mapped from the old file keeps working. The move is synced as
+	 * well, so once this returns the snapshot survives a crash
+	 * @param filename location of the file to be saved
+	 * @param image accounts, posts and counters of the platform
+	 * @return ID written into the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long save(String filename, PlatformImage image) throws IOException {
+		return write(filename, image, false);
+	}
+
+	/**
+	 * Save an image of the changes to a platform into a delta snapshot file, written in the same way as save
+	 * @param filename location of the file to be saved
+	 * @param image changed accounts and posts, removed IDs and counters of the platform
+	 * @return ID written into the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long saveDelta(String filename, PlatformImage image) throws IOException {
+		return write(filename, image, true);
+	}
+
+	/**
+	 * Write an image into a snapshot or delta snapshot file
+	 * @param filename location of the file to be saved
+	 * @param image accounts, posts and counters to be written
+	 * @param delta whether to write a delta snapshot
+	 * @return ID written into the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static long write(String filename, PlatformImage image, boolean delta) throws IOException {
+		long saveID;
+		do {
+			saveID = ThreadLocalRandom.current().nextLong();
+		} while (saveID == 0);
+
+		Path path = Paths.get(filename);
+		Path temp = Paths.get(filename + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ChannelWriter out = new ChannelWriter(channel);
+
+			out.putInt(delta ? DELTA_MAGIC : MAGIC);
+			out.putInt(VERSION);
+
+			// counters
+			out.putInt(image.getNextAccountID());
+			out.putInt(image.getNextPostID());
+			out.putLong(image.getJournalSequence());
+			out.putLong(saveID);
+			if (delta) {
+				out.putLong(image.getBaseID());
+				out.putByte((byte) (image.isCleared() ? 1 : 0));
+			}
+
+			// accounts, skipping the slots of removed ones
+			out.putInt(image.getNumOfAccounts());
+			for (int i = 0; i < image.getNumOfAccountSlots(); i++) {
+				if (!image.hasAccount(i)) {
+					continue;
+				}
+				out.putInt(image.getAccountID(i));
+				out.putString(image.getHandle(i));
+				out.putString(image.getDescription(i));
+			}
+
+			// posts
+			out.putInt(image.getNumOfPosts());
+			for (int i = 0; i < image.getNumOfPostSlots(); i++) {
+				if (!image.hasPost(i)) {
+					continue;
+				}
+				PostsParent post = image.getPost(i);
+				out.putByte((byte) post.getType().ordinal());
+				out.putInt(post.getID());
+				out.putInt(post.getAccountID());
+				out.putInt(image.getPostID(i));
+				out.putString(post.getMessage());
+			}
+
+			if (delta) {
+				// removed accounts and posts
+				out.putInt(image.getRemovedAccountIDs().length);
+				for (int id: image.getRemovedAccountIDs()) {
+					out.putInt(id);
+				}
+				out.putInt(image.getRemovedPostIDs().length);
+				for (int id: image.getRemovedPostIDs()) {
+					out.putInt(id);
+				}
+			}
+
+			out.flush();
+			channel.force(true);
+		}
+
+		replace(temp, path);
+		return saveID;
+	}
+
+	/**
+	 * Move a file that has been written and synced over another, then sync the directory, so the move
+	 * is not lost in a crash
+	 * @param temp location of the new file
+	 * @param path location of the file to be replaced
+	 * @throws IOException if the file cannot be moved or the directory cannot be synced
+	 */
+	static void replace(Path temp, Path path) throws IOException {
+		try {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		syncDirectory(path);
+	}
+
+	/**
+	 * Sync the directory a file is in, so a file created or moved there is not lost in a crash
+	 * @param path location of the file
+	 * @throws IOException if the directory cannot be synced
+	 */
+	static void syncDirectory(Path path) throws IOException {
+		Path directory = path.toAbsolutePath().getParent();
+		if (directory == null) {
+			return;
+		}
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (IOException e) {
+			// Some platforms, such as Windows, cannot open a directory, and make moves durable themselves
+			return;
+		}
+		try (channel) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Load a snapshot file
+	 * @param filename location of the file to be loaded
+	 * @return the accounts, posts and counters saved in the file
+	 * @throws IOException if the file cannot be read or is not a snapshot of a supported version
+	 */
+	public static PlatformSnapshot load(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			return read(new ChannelReader(channel), null, filename, MAGIC);
+		}
+	}
+
+	/**
+	 * Load a delta snapshot file, to be applied to the snapshot it was saved after
+	 * @param filename location of the file to be loaded
+	 * @return the changed accounts and posts, removed IDs and counters saved in the file
+	 * @throws IOException if the file cannot be read or is not a delta snapshot of a supported version
+	 */
+	public static PlatformSnapshot loadDelta(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			return read(new ChannelReader(channel), null, filename, DELTA_MAGIC);
+		}
+	}
+
+	/**
+	 * Load a snapshot file by memory-mapping it. Accounts and the links between posts are read
+	 * straight away, but post and comment messages stay in the mapped file until they are first read
+	 * @param filename location of the file to be loaded
+	 * @return the accounts, posts and counters saved in the file
+	 * @throws IOException if the file cannot be mapped or is not a snapshot of a supported version
+	 */
+	public static PlatformSnapshot map(String filename) throws IOException {
+		return map(filename, MappedSnapshot.SEGMENT_SIZE);
+	}
+
+	/**
+	 * Load a snapshot file by memory-mapping it in segments of a given size
+	 * @param filename location of the file to be loaded
+	 * @param segmentSize bytes in each mapped segment but the last
+	 * @return the accounts, posts and counters saved in the file
+	 * @throws IOException if the file cannot be mapped or is not a snapshot of a supported version
+	 */
+	static PlatformSnapshot map(String filename, int segmentSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			MappedSnapshot mapped = new MappedSnapshot(channel, segmentSize);
+			return read(new ChannelReader(mapped), mapped, filename, MAGIC);
+		}
+	}
+
+	/**
+	 * Read the contents of a snapshot
+	 * @param in reader positioned at the start of the snapshot
+	 * @param mapped the mapped snapshot file, or null to decode messages straight away
+	 * @param filename location of the file being loaded
+	 * @param magic MAGIC to read a snapshot, or DELTA_MAGIC to read a delta snapshot
+	 * @return the accounts, posts and counters saved in the file
+	 * @throws IOException if the file cannot be read or is not a snapshot of a supported version
+	 */
+	private static PlatformSnapshot read(ChannelReader in, MappedSnapshot mapped, String filename, int magic)
+			throws IOException {
+		if (in.getInt() != magic) {
+			if (magic == DELTA_MAGIC) {
+				throw new IOException("This file (" + filename + ") is not a delta snapshot");
+			}
+			throw new IOException("This file (" + filename + ") is not a platform snapshot");
+		}
+		int version = in.getInt();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("This snapshot version (" + version + ") is not supported");
+		}
+
+		// counters
+		int nextAccountID = in.getInt();
+		int nextPostID = in.getInt();
+		long journalSequence = version >= 2 ? in.getLong() : 0;
+		long saveID = version >= 3 ? in.getLong() : 0;
+		long baseID = version >= 3 && magic == DELTA_MAGIC ? in.getLong() : 0;
+		boolean cleared = magic == MAGIC || in.getByte() != 0;
+
+		// accounts, each at least an ID and two string lengths
+		int numOfAccounts = in.getCount(12, "account count");
+		ArrayList<Account> accounts = new ArrayList<>(numOfAccounts);
+		for (int i = 0; i < numOfAccounts; i++) {
+			int id = in.getInt();
+			String handle = in.getString();
+			String description = in.getString();
+			accounts.add(new Account(id, handle, description));
+		}
+
+		// posts, each at least a type, three IDs and a string length
+		int numOfPosts = in.getCount(17, "post count");
+		ArrayList<PostsParent> posts = new ArrayList<>(numOfPosts);
+		PostType[] types = PostType.values();
+		for (int i = 0; i < numOfPosts; i++) {
+			byte typeIndex = in.getByte();
+			if (typeIndex < 0 || typeIndex >= types.length) {
+				throw new IOException("Corrupt snapshot: bad post type");
+			}
+			PostType type = types[typeIndex];
+			int id = in.getInt();
+			int accountID = in.getInt();
+			int postID = in.getInt();
+
+			if (type == PostType.ENDORSEMENT) {
+				in.skipString();
+				posts.add(new Endorsement(id, accountID, postID));
+			} else if (mapped != null) {
+				// Leave the message in the mapped file, remembering where it is
+				long offset = in.skipString();
+				if (type == PostType.ORIGINAL_POST) {
+					posts.add(new Post(id, accountID, mapped, offset));
+				} else {
+					posts.add(new Comment(id, accountID, postID, mapped, offset));
+				}
+			} else {
+				String message = in.getString();
+				if (type == PostType.ORIGINAL_POST) {
+					posts.add(new Post(id, accountID, message));
+				} else {
+					posts.add(new Comment(id, accountID, postID, message));
+				}
+			}
+		}
+
+		int[] removedAccountIDs = new int[0];
+		int[] removedPostIDs = new int[0];
+		if (magic == DELTA_MAGIC) {
+			// removed accounts and posts
+			removedAccountIDs = new int[in.getCount(4, "removed account count")];
+			for (int i = 0; i < removedAccountIDs.length; i++) {
+				removedAccountIDs[i] = in.getInt();
+			}
+			removedPostIDs = new int[in.getCount(4, "removed post count")];
+			for (int i = 0; i < removedPostIDs.length; i++) {
+				removedPostIDs[i] = in.getInt();
+			}
+		}
+
+		if (magic == MAGIC) {
+			checkReferences(accounts, posts);
+		}
+		return new PlatformSnapshot(nextAccountID, nextPostID, journalSequence, saveID, baseID, accounts, posts,
+				cleared, removedAccountIDs, removedPostIDs);
+	}
+
+	/**
+	 * Writes primitive values to a file channel through a buffer
+	 */
+	private static class ChannelWriter {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		ChannelWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putByte(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putString(String value) throws IOException {
+			if (value == null) {
+				putInt(-1);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			if (bytes.length > buffer.capacity()) {
+				// Too long to buffer, so write it straight to the channel
+				flush();
+				ByteBuffer large = ByteBuffer.wrap(bytes);
+				while (large.hasRemaining()) {
+					channel.write(large);
+				}
+			} else {
+				ensure(bytes.length);
+				buffer.put(bytes);
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Reads primitive values from a file channel through a buffer, or straight from a mapped file
+	 */
+	private static class ChannelReader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+
+		// set instead of the channel when reading a mapped file, with the position reached in it
+		private final MappedSnapshot mapped;
+		private long position;
+
+		ChannelReader(FileChannel channel) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			this.mapped = null;
+			buffer.flip();
+		}
+
+		ChannelReader(MappedSnapshot mapped) {
+			this.channel = null;
+			this.buffer = null;
+			this.mapped = mapped;
+		}
+
+		byte getByte() throws IOException {
+			ensure(1);
+			if (mapped != null) {
+				return mapped.getByte(position++);
+			}
+			return buffer.get();
+		}
+
+		int getInt() throws IOException {
+			ensure(4);
+			if (mapped != null) {
+				int value = mapped.getInt(position);
+				position += 4;
+				return value;
+			}
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			ensure(8);
+			if (mapped != null) {
+				long value = mapped.getLong(position);
+				position += 8;
+				return value;
+			}
+			return buffer.getLong();
+		}
+
+		String getString() throws IOException {
+			int length = getStringLength();
+			if (length < 0) {
+				return null;
+			}
+			return new String(getBytes(length), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Read a count of items, checking it against the bytes left
+		 * @param minBytes fewest bytes each item takes
+		 * @param what what is counted, for the error
+		 * @return the count
+		 * @throws IOException if the count is negative or more items than the rest of the snapshot can hold
+		 */
+		int getCount(int minBytes, String what) throws IOException {
+			int count = getInt();
+			if (count < 0 || (long) count * minBytes > remaining()) {
+				throw new IOException("Corrupt snapshot: bad " + what);
+			}
+			return count;
+		}
+
+		/**
+		 * Read the length of a string, checking it against the bytes left
+		 * @return the length, or -1 for a null string
+		 * @throws IOException if the length is below -1 or longer than the rest of the snapshot
+		 */
+		private int getStringLength() throws IOException {
+			int length = getInt();
+			if (length < -1 || length > remaining()) {
+				throw new IOException("Corrupt snapshot: bad string length");
+			}
+			return length;
+		}
+
+		/**
+		 * Get the number of bytes left to read
+		 * @return bytes buffered and still in the channel
+		 */
+		private long remaining() throws IOException {
+			if (mapped != null) {
+				return mapped.size() - position;
+			}
+			return buffer.remaining() + Math.max(0, channel.size() - channel.position());
+		}
+
+		/**
+		 * Skip over a string without decoding it
+		 * @return position of the string's length in a mapped file, or -1 when reading a channel
+		 */
+		long skipString() throws IOException {
+			long offset = mapped != null ? position : -1;
+			int length = getStringLength();
+			if (length <= 0) {
+				return offset;
+			}
+			if (mapped != null) {
+				position += length;
+			} else {
+				getBytes(length);
+			}
+			return offset;
+		}
+
+		private byte[] getBytes(int length) throws IOException {
+			byte[] bytes = new byte[length];
+			if (mapped != null) {
+				// the length was checked against the bytes left
+				mapped.get(position, bytes);
+				position += length;
+				return bytes;
+			}
+
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, 0, read);
+			if (read < length) {
+				// Too long for what is buffered, so read the rest straight from the channel
+				ByteBuffer rest = ByteBuffer.wrap(bytes, read, length - read);
+				while (rest.hasRemaining()) {
+					if (channel.read(rest) < 0) {
+						throw new EOFException("The snapshot ended part way through a string");
+					}
+				}
+			}
+			return bytes;
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (mapped != null) {
+				if (mapped.size() - position < bytes) {
+					throw new EOFException("The snapshot ended part way through a value");
+				}
+				return;
+			}
+			if (buffer.remaining() >= bytes) {
+				return;
+			}
+			buffer.compact();
+			while (buffer.position() < bytes) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("The snapshot ended part way through a value");
+				}
+			}
+			buffer.flip();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package socialmedia;
+
+/**
+ * PlatformTotals is the analytics of a platform at one point in time: its number of accounts, post totals
+ * and most endorsed post and account. It never changes, so a front end can publish a new one after every
+ * change and let any thread read it without locking
+ */
+class PlatformTotals {
+	final int numOfAccounts;
+	final int originalPosts;
+	final int endorsementPosts;
+	final int commentPosts;
+	final int mostEndorsedPost;
+	final int mostEndorsedAccount;
+
+	/**
+	 * Constructor for the totals of a platform as it is now
+	 * @param platform platform to be read
+	 */
+	PlatformTotals(SocialMedia platform) {
+		numOfAccounts = platform.getNumberOfAccounts();
+		originalPosts = platform.getTotalOriginalPosts();
+		endorsementPosts = platform.getTotalEndorsmentPosts();
+		commentPosts = platform.getTotalCommentPosts();
+		mostEndorsedPost = platform.getMostEndorsedPost();
+		mostEndorsedAccount = platform.getMostEndorsedAccount();
+	}
+}
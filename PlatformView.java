@@ -0,0 +1,236 @@
+package socialmedia;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * PlatformView is a read-only view of a platform as it was at one version, for analytics that run
+ * for a long time while the platform carries on changing.
+ * <p>
+ * A view wraps a PlatformImage, so opening one only copies the accounts and posts changed since the last
+ * image was captured, see PlatformImageCache. The counts and rankings are worked out from the whole image
+ * the first time the view is queried, which reads every account and post, but on the thread querying it,
+ * so the platform is never held up by them. Every query on a view gives the same answer, however much the
+ * platform has changed since.
+ */
+public class PlatformView {
+	private final PlatformImage image;
+	private final long version;
+
+	// worked out from the image by derive, the first time the view is queried
+	private boolean derived = false;
+	private HashMap<String, Integer> accountIndexes;
+	private int[] postCounts;
+	private int[] endorsementCounts;
+	private Integer[] accountRanking;
+	private int[] totals;
+	private int[] postRanking;
+
+	/**
+	 * Constructor for a view of an image, see SocialMedia.openView
+	 * @param image image of the platform
+	 * @param version version of the platform the image was captured at
+	 */
+	PlatformView(PlatformImage image, long version) {
+		this.image = image;
+		this.version = version;
+	}
+
+	/**
+	 * Work out the accounts' post and endorsement counts, the totals and the rankings from the image
+	 */
+	private synchronized void derive() {
+		if (derived) {
+			return;
+		}
+
+		// Accounts are indexed by their slot in the image, skipping empty slots
+		int numOfSlots = image.getNumOfAccountSlots();
+		HashMap<Integer, Integer> indexOfID = new HashMap<>();
+		accountIndexes = new HashMap<>();
+		for (int i = 0; i < numOfSlots; i++) {
+			if (!image.hasAccount(i)) {
+				continue;
+			}
+			indexOfID.put(image.getAccountID(i), i);
+			accountIndexes.put(image.getHandle(i), i);
+		}
+
+		// Endorsements of a post are counted against the post, as they were when the image was captured
+		int numOfPostSlots = image.getNumOfPostSlots();
+		HashMap<Integer, Integer> endorsementsOfPost = new HashMap<>();
+		totals = new int[PostType.values().length];
+		for (int i = 0; i < numOfPostSlots; i++) {
+			if (!image.hasPost(i)) {
+				continue;
+			}
+			PostsParent post = image.getPost(i);
+			totals[post.getType().ordinal()]++;
+			if (post.getType() == PostType.ENDORSEMENT) {
+				endorsementsOfPost.merge(image.getPostID(i), 1, Integer::sum);
+			}
+		}
+
+		postCounts = new int[numOfSlots];
+		endorsementCounts = new int[numOfSlots];
+		// each actionable post as its endorsement count and ID, so they can be ranked together
+		long[] rankedPosts = new long[image.getNumOfPosts() - totals[PostType.ENDORSEMENT.ordinal()]];
+		int numRanked = 0;
+		for (int i = 0; i < numOfPostSlots; i++) {
+			if (!image.hasPost(i)) {
+				continue;
+			}
+			PostsParent post = image.getPost(i);
+			if (post.getType() == PostType.ENDORSEMENT) {
+				continue;
+			}
+
+			int endorsements = endorsementsOfPost.getOrDefault(post.getID(), 0);
+			Integer author = indexOfID.get(post.getAccountID());
+			if (author != null) {
+				postCounts[author]++;
+				endorsementCounts[author] += endorsements;
+			}
+			// Fewer endorsements sort later, and equal counts sort by ID
+			rankedPosts[numRanked++] = ((long) (Integer.MAX_VALUE - endorsements) << 32) | (post.getID() & 0xFFFFFFFFL);
+		}
+
+		// Most endorsed first, with ties going to the oldest post
+		Arrays.sort(rankedPosts);
+		postRanking = new int[numRanked];
+		for (int i = 0; i < numRanked; i++) {
+			postRanking[i] = (int) rankedPosts[i];
+		}
+
+		// Most endorsed first, with ties going to the oldest account
+		accountRanking = new Integer[image.getNumOfAccounts()];
+		int numRankedAccounts = 0;
+		for (int i = 0; i < numOfSlots; i++) {
+			if (image.hasAccount(i)) {
+				accountRanking[numRankedAccounts++] = i;
+			}
+		}
+		Arrays.sort(accountRanking, (a, b) -> {
+			if (endorsementCounts[a] != endorsementCounts[b]) {
+				return Integer.compare(endorsementCounts[b], endorsementCounts[a]);
+			}
+			return Integer.compare(image.getAccountID(a), image.getAccountID(b));
+		});
+
+		derived = true;
+	}
+
+	/**
+	 * Get the version of the platform this view shows
+	 * @return version number, see PlatformChanges.getVersion
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get number of accounts in the view
+	 * @return number of accounts
+	 */
+	public int getNumberOfAccounts() {
+		return image.getNumOfAccounts();
+	}
+
+	/**
+	 * Get total number of original posts in the view
+	 * @return num of original posts
+	 */
+	public int getTotalOriginalPosts() {
+		derive();
+		return totals[PostType.ORIGINAL_POST.ordinal()];
+	}
+
+	/**
+	 * Get total number of endorsements in the view
+	 * @return num of endorsements
+	 */
+	public int getTotalEndorsmentPosts() {
+		derive();
+		return totals[PostType.ENDORSEMENT.ordinal()];
+	}
+
+	/**
+	 * Get total number of comments in the view
+	 * @return num of comments
+	 */
+	public int getTotalCommentPosts() {
+		derive();
+		return totals[PostType.COMMENT.ordinal()];
+	}
+
+	/**
+	 * Identifies the post with the highest number of endorsements in the view
+	 * @return id of the most endorsed post, or -1 if there are no posts
+	 */
+	public int getMostEndorsedPost() {
+		derive();
+		if (postRanking.length == 0) {
+			return -1;
+		}
+		return postRanking[0];
+	}
+
+	/**
+	 * Identifies the k posts with the highest number of endorsements in the view
+	 * @param k maximum number of posts to return
+	 * @return ids of up to k posts, most endorsed first
+	 */
+	public int[] getMostEndorsedPosts(int k) {
+		derive();
+		return Arrays.copyOf(postRanking, Math.max(0, Math.min(k, postRanking.length)));
+	}
+
+	/**
+	 * Identifies the account with the highest number of endorsements in the view
+	 * @return id of the most endorsed account, or -1 if there are no accounts
+	 */
+	public int getMostEndorsedAccount() {
+		derive();
+		if (accountRanking.length == 0) {
+			return -1;
+		}
+		return image.getAccountID(accountRanking[0]);
+	}
+
+	/**
+	 * Identifies the k accounts with the highest number of endorsements in the view
+	 * @param k maximum number of accounts to return
+	 * @return ids of up to k accounts, most endorsed first
+	 */
+	public int[] getMostEndorsedAccounts(int k) {
+		derive();
+		int[] ids = new int[Math.max(0, Math.min(k, accountRanking.length))];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = image.getAccountID(accountRanking[i]);
+		}
+		return ids;
+	}
+
+	/**
+	 * Gets account's ID, handle, description, no. Posts, no. endorsements as they were in the view
+	 * @param handle handle to identify the account.
+	 * @return accountInfo - the String that holds the id, handle, description, no. posts & no. endorsements
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the view
+	 */
+	public String showAccount(String handle) throws HandleNotRecognisedException {
+		derive();
+		Integer index = accountIndexes.get(handle);
+
+		if (index == null) {
+			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+		}
+
+		String accountInfo = "ID: " + Integer.toString(image.getAccountID(index)) + "\nHandle: " + handle;
+		accountInfo += "\nDescription: " + image.getDescription(index);
+
+		accountInfo += "\nPost count: " + Integer.toString(postCounts[index]);
+		accountInfo += "\nEndorse count: " + Integer.toString(endorsementCounts[index]);
+
+		return accountInfo;
+	}
+}
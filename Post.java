@@ -1,39 +1,71 @@
 package socialmedia;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 
 
 public class Post extends PostsParent{
-	protected String postType;
-	private final String message;
+	private String message;
+
+	// where the message is stored in a memory-mapped snapshot, until it is first read
+	private transient MappedSnapshot mappedSnapshot;
+	private transient long mappedOffset;
 
 	/**
 	 * Constructor for post
-	 * @param accountHandle the account's handle that the post belongs to
+	 * @param id the post's ID
+	 * @param accountID the ID of the account that the post belongs to
 	 * @param message the post's message
 	 */
-	public Post (String accountHandle, String message) {
-		super(accountHandle);
-		postType = "originalPost";
+	public Post (int id, int accountID, String message) {
+		super(id, accountID);
 		this.message = message;
 	}
 
+	/**
+	 * Constructor for a post loaded from a memory-mapped snapshot, which decodes its message when first read
+	 * @param id the post's ID
+	 * @param accountID the ID of the account that the post belongs to
+	 * @param snapshot the mapped snapshot file
+	 * @param offset position of the message in the snapshot
+	 */
+	public Post (int id, int accountID, MappedSnapshot snapshot, long offset) {
+		super(id, accountID);
+		this.mappedSnapshot = snapshot;
+		this.mappedOffset = offset;
+	}
+
 	/**
 	 * Return the message of the post
 	 * @return message
 	 */
 	@Override
 	public String getMessage() {
+		// Decode the message from the mapped snapshot the first time it is needed
+		if (message == null && mappedSnapshot != null) {
+			message = mappedSnapshot.getString(mappedOffset);
+		}
 		return message;
 	}
 
+	/**
+	 * Decodes the message before serialising, as the mapped snapshot is not serialised
+	 * @param out stream the post is written to
+	 * @throws IOException if the post cannot be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getMessage();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * Returns the type of post: original, comment, or endorsement
-	 * @return string of the post type
+	 * @return the post type
 	 */
 	@Override
-	public String getType() {
-		return postType;
+	public PostType getType() {
+		return PostType.ORIGINAL_POST;
 	}
 
 }
\ No newline at end of file
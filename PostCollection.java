@@ -1,12 +1,96 @@
 package socialmedia;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class PostCollection implements Serializable {
-	// post list
-	ArrayList<PostsParent> posts = new ArrayList<>();
+	// posts indexed by ID, kept in creation order
+	LinkedHashMap<Integer, PostsParent> posts = new LinkedHashMap<>();
+
+	// ID of the next post, comment or endorsement created in this collection - each platform hands out its own IDs
+	private final AtomicInteger nextID;
+	// gap between the IDs handed out, so platforms sharing a stride but starting at different IDs never clash
+	private final int idStride;
+
+	// number of posts of each type, indexed by the type's ordinal
+	private int[] totals = new int[PostType.values().length];
+
+	// comments and endorsements of each post, indexed by the ID of the post they point to
+	private HashMap<Integer, TreeMap<Integer, Comment>> comments = new HashMap<>();
+	private HashMap<Integer, TreeMap<Integer, Endorsement>> endorsements = new HashMap<>();
+
+	// posts, comments and endorsements created by each account, indexed by account ID
+	private HashMap<Integer, TreeMap<Integer, PostsParent>> postsByAccount = new HashMap<>();
+
+	// actionable posts ordered from most to least endorsed - a post must be taken out before its endorsements change
+	private TreeSet<PostsParent> endorsementRanking = new TreeSet<>(new EndorsementOrder());
+
+	// actionable posts left out of the ranking until the end of a batch, or null when not in a batch
+	private transient HashSet<PostsParent> unranked;
+
+	/**
+	 * Constructor for an empty collection, handing out IDs 1, 2, 3 and so on
+	 */
+	public PostCollection() {
+		this(1, 1);
+	}
+
+	/**
+	 * Constructor for an empty collection, handing out IDs firstID, firstID + idStride, firstID + 2 * idStride and so on
+	 * @param firstID ID of the first post
+	 * @param idStride gap between IDs
+	 */
+	public PostCollection(int firstID, int idStride) {
+		this.nextID = new AtomicInteger(firstID);
+		this.idStride = idStride;
+	}
+
+	/**
+	 * Orders posts by number of endorsements (highest first), with ties going to the oldest post
+	 */
+	private static class EndorsementOrder implements Comparator<PostsParent>, Serializable {
+		@Override
+		public int compare(PostsParent a, PostsParent b) {
+			if (a.getNumOfEndorsements() != b.getNumOfEndorsements()) {
+				return Integer.compare(b.getNumOfEndorsements(), a.getNumOfEndorsements());
+			}
+			return Integer.compare(a.getID(), b.getID());
+		}
+	}
+
+	/**
+	 * Hand out the ID for a new post. IDs are allocated atomically, without locking
+	 * @return the new ID
+	 */
+	public int newPostID() {
+		return nextID.getAndAdd(idStride);
+	}
+
+	/**
+	 * Get the ID the next new post will be given, for saving the platform
+	 * @return nextID
+	 */
+	public int getNextID() {
+		return nextID.get();
+	}
+
+	/**
+	 * Change the ID the next new post will be given, when loading the platform
+	 * @param value nextID value from file being loaded
+	 */
+	public void setNextID(int value) {
+		nextID.set(value);
+	}
 
 	/**
 	 * Adds the newly created post to the list of existing posts
@@ -14,10 +98,38 @@ public class PostCollection implements Serializable {
 	 * @return the post's ID
 	 */
 	public int addPost(PostsParent post) {
-		posts.add(post);
+		posts.put(post.getID(), post);
+		totals[post.getType().ordinal()]++;
+		postsByAccount.computeIfAbsent(post.getAccountID(), k -> new TreeMap<>()).put(post.getID(), post);
+
+		// Only actionable posts can be endorsed - during a batch they are ranked when it ends
+		if (!(post instanceof Endorsement)) {
+			if (unranked != null) {
+				unranked.add(post);
+			} else {
+				endorsementRanking.add(post);
+			}
+		}
+
+		// Link comments and endorsements to the post they point to
+		if (post instanceof Comment) {
+			linkComment((Comment) post);
+		} else if (post instanceof Endorsement) {
+			endorsements.computeIfAbsent(post.getPostID(), k -> new TreeMap<>()).put(post.getID(), (Endorsement) post);
+			changeCount(post.getPostID(), 1, 0);
+		}
 		return post.getID();
 	}
 
+	/**
+	 * Finds the post with the given ID
+	 * @param id post id
+	 * @return the post, or null if no post has this ID
+	 */
+	public PostsParent getPost(int id) {
+		return posts.get(id);
+	}
+
 	/**
 	 * Is the message valid
 	 * @param message Message post contains
@@ -35,25 +147,205 @@ public class PostCollection implements Serializable {
 	 * @param post post to be deleted
 	 */
 	public void removePost(PostsParent post) {
-		posts.remove(post);
+		if (posts.remove(post.getID()) != null) {
+			totals[post.getType().ordinal()]--;
+		}
+		TreeMap<Integer, PostsParent> authored = postsByAccount.get(post.getAccountID());
+		if (authored != null) {
+			authored.remove(post.getID());
+			if (authored.isEmpty()) {
+				postsByAccount.remove(post.getAccountID());
+			}
+		}
+		endorsementRanking.remove(post);
+		if (unranked != null) {
+			unranked.remove(post);
+		}
+
+		// Unlink the post from the post it points to
+		if (post instanceof Comment) {
+			unlinkComment((Comment) post);
+		} else if (post instanceof Endorsement) {
+			TreeMap<Integer, Endorsement> siblings = endorsements.get(post.getPostID());
+			if (siblings != null && siblings.remove(post.getID()) != null) {
+				if (siblings.isEmpty()) {
+					endorsements.remove(post.getPostID());
+				}
+				changeCount(post.getPostID(), -1, 0);
+			}
+		}
+
+		// The post's own children are no longer reachable through it
+		comments.remove(post.getID());
+		endorsements.remove(post.getID());
 	}
 
 	/**
-	 * Get total number of original posts, comments or endorsements
-	 * @param type type of post
-	 * @return total number of the given post type
+	 * Change the post that a comment points to, moving it between the children of each post
+	 * @param comment comment to be moved
+	 * @param id id of the new post, or -1 to orphan the comment
 	 */
-	public int getTotalNumber(String type) {
+	public void setCommentPostID(Comment comment, int id) {
+		unlinkComment(comment);
+		comment.setPostID(id);
+		linkComment(comment);
+	}
 
-		int count = 0;
+	/**
+	 * Get the comments that point to the given post, in order of creation
+	 * @param id post id
+	 * @return comments linked to the post
+	 */
+	public Collection<Comment> getComments(int id) {
+		TreeMap<Integer, Comment> children = comments.get(id);
+		if (children == null) {
+			return Collections.emptyList();
+		}
+		return children.values();
+	}
 
-		// Iterate through each post to check for the correct type, and increment if correct type found
-		for(PostsParent post: posts) {
-			if (post.getType().equals(type)) {
-				count++;
+	/**
+	 * Get the comments that point to the given post and were created after the given comment
+	 * @param id post id
+	 * @param afterID id of a comment on the post; only comments with a higher id are returned
+	 * @return comments linked to the post, in order of creation
+	 */
+	public Collection<Comment> getCommentsAfter(int id, int afterID) {
+		TreeMap<Integer, Comment> children = comments.get(id);
+		if (children == null) {
+			return Collections.emptyList();
+		}
+		return children.tailMap(afterID, false).values();
+	}
+
+	/**
+	 * Get the endorsements that point to the given post, in order of creation
+	 * @param id post id
+	 * @return endorsements linked to the post
+	 */
+	public Collection<Endorsement> getEndorsements(int id) {
+		TreeMap<Integer, Endorsement> children = endorsements.get(id);
+		if (children == null) {
+			return Collections.emptyList();
+		}
+		return children.values();
+	}
+
+	/**
+	 * Get the posts, comments and endorsements created by the given account, in order of creation
+	 * @param accountID account id
+	 * @return posts created by the account
+	 */
+	public Collection<PostsParent> getPostsByAccount(int accountID) {
+		TreeMap<Integer, PostsParent> authored = postsByAccount.get(accountID);
+		if (authored == null) {
+			return Collections.emptyList();
+		}
+		return authored.values();
+	}
+
+	/**
+	 * Add a comment to the children of the post it points to (orphaned comments are not linked)
+	 * @param comment comment to be linked
+	 */
+	private void linkComment(Comment comment) {
+		if (comment.getPostID() != -1) {
+			comments.computeIfAbsent(comment.getPostID(), k -> new TreeMap<>()).put(comment.getID(), comment);
+			changeCount(comment.getPostID(), 0, 1);
+		}
+	}
+
+	/**
+	 * Remove a comment from the children of the post it points to
+	 * @param comment comment to be unlinked
+	 */
+	private void unlinkComment(Comment comment) {
+		TreeMap<Integer, Comment> siblings = comments.get(comment.getPostID());
+		if (siblings != null && siblings.remove(comment.getID()) != null) {
+			if (siblings.isEmpty()) {
+				comments.remove(comment.getPostID());
+			}
+			changeCount(comment.getPostID(), 0, -1);
+		}
+	}
+
+	/**
+	 * Update the endorsement and comment counters of the given post, if it still exists
+	 * @param id post id
+	 * @param endorsementChange amount to add to the number of endorsements
+	 * @param commentChange amount to add to the number of comments
+	 */
+	private void changeCount(int id, int endorsementChange, int commentChange) {
+		PostsParent post = posts.get(id);
+		if (post != null) {
+			if (endorsementChange != 0 && unranked != null) {
+				// Leave the post out of the ranking until the batch ends, however many times it is endorsed
+				if (!unranked.contains(post) && endorsementRanking.remove(post)) {
+					unranked.add(post);
+				}
+				post.changeNumOfEndorsements(endorsementChange);
+			} else if (endorsementChange != 0) {
+				// Reposition the post in the ranking around the change
+				endorsementRanking.remove(post);
+				post.changeNumOfEndorsements(endorsementChange);
+				endorsementRanking.add(post);
 			}
+			post.changeNumOfComments(commentChange);
+		}
+	}
+
+	/**
+	 * Start a batch: until endBatch, posts that are added or endorsed are left out of the ranking,
+	 * so a post endorsed many times in the batch is only put back in order once
+	 */
+	public void beginBatch() {
+		if (unranked == null) {
+			unranked = new HashSet<>();
+		}
+	}
+
+	/**
+	 * End a batch, putting the posts left out since beginBatch back into the ranking
+	 */
+	public void endBatch() {
+		if (unranked != null) {
+			endorsementRanking.addAll(unranked);
+			unranked = null;
+		}
+	}
+
+	/**
+	 * Get the post with the most endorsements, the oldest post winning any tie
+	 * @return id of the most endorsed post, or -1 if there are no actionable posts
+	 */
+	public int getMostEndorsedPost() {
+		if (endorsementRanking.isEmpty()) {
+			return -1;
+		}
+		return endorsementRanking.first().getID();
+	}
+
+	/**
+	 * Get the k most endorsed posts, most endorsed first, the oldest post winning any tie
+	 * @param k maximum number of posts to return
+	 * @return ids of up to k actionable posts, in order of endorsements
+	 */
+	public int[] getMostEndorsedPosts(int k) {
+		int[] ids = new int[Math.max(0, Math.min(k, endorsementRanking.size()))];
+		Iterator<PostsParent> it = endorsementRanking.iterator();
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = it.next().getID();
 		}
-		return count;
+		return ids;
+	}
+
+	/**
+	 * Get total number of original posts, comments or endorsements
+	 * @param type type of post
+	 * @return total number of the given post type
+	 */
+	public int getTotalNumber(PostType type) {
+		return totals[type.ordinal()];
 	}
 
 	/**
@@ -62,19 +354,19 @@ public class PostCollection implements Serializable {
 	 * @param type type of post: comment or endorsement
 	 * @return number of that type that link to the given post
 	 */
-	public int getNumberOfTypeAssociatedToPost(int id, String type) {
+	public int getNumberOfTypeAssociatedToPost(int id, PostType type) {
 
-		int count = 0;
+		PostsParent post = posts.get(id);
 
-		for(PostsParent post: posts) {
-			// Check if it is the corresponding post id and correct type of post (endorsement or comment)
-			if (post.getType().equals(type)) {
-				if (post.getPostID() == id) {
-					count++;
-				}
-			}
+		// Only comments and endorsements can point to a post
+		if (post == null) {
+			return 0;
+		} else if (type == PostType.COMMENT) {
+			return post.getNumOfComments();
+		} else if (type == PostType.ENDORSEMENT) {
+			return post.getNumOfEndorsements();
 		}
-		return count;
+		return 0;
 	}
 
 }
\ No newline at end of file
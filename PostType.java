@@ -0,0 +1,10 @@
+package socialmedia;
+
+/**
+ * PostType identifies the kind of a post: an original post, a comment, or an endorsement
+ */
+public enum PostType {
+	ORIGINAL_POST,
+	COMMENT,
+	ENDORSEMENT
+}
@@ -5,18 +5,23 @@ import java.util.ArrayList;
 
 
 public class PostsParent implements Serializable {
+	// post ID handed out by the platform's PostCollection - must be unique
 	protected final int myID;
-	protected static int nextID = 1;
-	protected String handle;
+	// ID of the account that created this post - the handle is looked up when needed
+	protected final int accountID;
+
+	// number of endorsements and comments pointing to this post - only actionable posts receive them
+	protected int numOfEndorsements = 0;
+	protected int numOfComments = 0;
 
 	/**
 	 * Constructor for all the different posts
-	 * @param accountHandle the account's handle that the post belongs to
+	 * @param id the post's ID, from PostCollection.newPostID or a saved platform
+	 * @param accountID the ID of the account that the post belongs to
 	 */
-	public PostsParent (String accountHandle){
-		myID = nextID;
-		nextID += 1;
-		handle = accountHandle;
+	public PostsParent (int id, int accountID){
+		myID = id;
+		this.accountID = accountID;
 	}
 
 	/**
@@ -36,50 +41,59 @@ public class PostsParent implements Serializable {
 	}
 
 	/**
-	 * Return the handle of the account that created this post
-	 * @return account handle
+	 * Return the ID of the account that created this post
+	 * @return account id
 	 */
-	public String getHandle() {
-		return handle;
+	public int getAccountID() {
+		return accountID;
 	}
 
 	/**
-	 * Return the message in this post
-	 * @return null
+	 * Return the number of endorsements pointing to this post
+	 * @return number of endorsements
 	 */
-	public String getMessage() {
-		return null; // to be overridden by child class (only Post and Comment as Endorsements cannot have messages)
+	public int getNumOfEndorsements() {
+		return numOfEndorsements;
 	}
 
+	/**
+	 * Return the number of comments pointing to this post
+	 * @return number of comments
+	 */
+	public int getNumOfComments() {
+		return numOfComments;
+	}
 
 	/**
-	 * Returns the type of post: original, comment, or endorsement
-	 * @return null
+	 * Change the number of endorsements pointing to this post
+	 * @param change amount to add (negative when endorsements are removed)
 	 */
-	public String getType() {
-		return null; // null as it is to be overridden by the child class
+	public void changeNumOfEndorsements(int change) {
+		numOfEndorsements += change;
 	}
 
 	/**
-	 * Set nextID back to 1 for when platform is erased
+	 * Change the number of comments pointing to this post
+	 * @param change amount to add (negative when comments are removed or orphaned)
 	 */
-	public static void resetNextID() {
-		nextID = 1;
+	public void changeNumOfComments(int change) {
+		numOfComments += change;
 	}
 
 	/**
-	 * Get nextID for the platform saving
-	 * @return nextID
+	 * Return the message in this post
+	 * @return null
 	 */
-	public static int getNextID() {
-		return nextID;
+	public String getMessage() {
+		return null; // to be overridden by child class (only Post and Comment as Endorsements cannot have messages)
 	}
 
+
 	/**
-	 * Change nextID when loading platform
-	 * @param value nextID value from file being loaded
+	 * Returns the type of post: original, comment, or endorsement
+	 * @return null
 	 */
-	public static void setNextID(int value) {
-		nextID = value;
+	public PostType getType() {
+		return null; // null as it is to be overridden by the child class
 	}
 }
@@ -0,0 +1,218 @@
+package socialmedia;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SerialisedPlatform reads files saved by the first version of savePlatform, which wrote the platform's
+ * AccountCollection and PostCollection with an ObjectOutputStream, each followed by its next ID.
+ * <p>
+ * Those classes have since changed, so the stream's class descriptors are swapped for the private classes
+ * below, which have the fields the old classes had. Only those classes, ArrayList (and the array inside it)
+ * and String may appear in the stream. The old objects are then turned into accounts and posts in order of creation:
+ * <ul>
+ * <li>posts were linked to their account by handle, so a post whose handle no account has (its account was
+ * renamed or removed) is left out, as the old version no longer counted it towards any account</li>
+ * <li>endorsements of posts that are left out or no longer exist are left out</li>
+ * <li>comments on posts that are left out or no longer exist become orphans</li>
+ * </ul>
+ */
+final class SerialisedPlatform {
+	// old class names and the classes that stand in for them while reading
+	private static final Map<String, Class<?>> STAND_INS = Map.of(
+			"socialmedia.AccountCollection", OldAccountCollection.class,
+			"socialmedia.Account", OldAccount.class,
+			"socialmedia.PostCollection", OldPostCollection.class,
+			"socialmedia.PostsParent", OldPostsParent.class,
+			"socialmedia.Post", OldPost.class,
+			"socialmedia.Comment", OldComment.class,
+			"socialmedia.Endorsement", OldEndorsement.class);
+
+	private static final Set<Class<?>> ALLOWED = Set.of(ArrayList.class, Object[].class, String.class,
+			OldAccountCollection.class, OldAccount.class, OldPostCollection.class, OldPostsParent.class, OldPost.class,
+			OldComment.class, OldEndorsement.class);
+
+	private SerialisedPlatform() {
+	}
+
+	private static class OldAccountCollection implements Serializable {
+		ArrayList<OldAccount> accounts;
+	}
+
+	private static class OldAccount implements Serializable {
+		int myID;
+		String description;
+		String stringHandle;
+	}
+
+	private static class OldPostCollection implements Serializable {
+		ArrayList<OldPostsParent> posts;
+	}
+
+	private static class OldPostsParent implements Serializable {
+		int myID;
+		String handle;
+	}
+
+	private static class OldPost extends OldPostsParent {
+		String postType;
+		String message;
+	}
+
+	private static class OldComment extends OldPostsParent {
+		String postType;
+		String message;
+		int postID;
+	}
+
+	private static class OldEndorsement extends OldPostsParent {
+		String postType;
+		int postID;
+	}
+
+	/**
+	 * Reads a serialised platform, reading the old classes into the classes that stand in for them
+	 */
+	private static class OldPlatformInputStream extends ObjectInputStream {
+
+		/**
+		 * Constructor for a stream over a serialised platform
+		 * @param in the file's contents
+		 * @throws IOException if the stream header cannot be read
+		 */
+		OldPlatformInputStream(InputStream in) throws IOException {
+			super(in);
+			setObjectInputFilter(info -> {
+				Class<?> cl = info.serialClass();
+				if (cl == null) {
+					return ObjectInputFilter.Status.UNDECIDED;
+				}
+				return ALLOWED.contains(cl) ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+			});
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			ObjectStreamClass written = super.readClassDescriptor();
+			Class<?> standIn = STAND_INS.get(written.getName());
+			if (standIn == null) {
+				return written;
+			}
+
+			// The stand-in is read in place of the written class, so they must hold the same fields
+			ObjectStreamClass local = ObjectStreamClass.lookup(standIn);
+			if (!sameFields(written.getFields(), local.getFields())) {
+				throw new InvalidClassException(written.getName(), "is not laid out as a serialised platform");
+			}
+			return local;
+		}
+
+		/**
+		 * Check that two classes have the same serialised fields
+		 * @param written fields written in the stream
+		 * @param local fields of the stand-in
+		 * @return boolean value representing if the names and types all match
+		 */
+		private static boolean sameFields(ObjectStreamField[] written, ObjectStreamField[] local) {
+			if (written.length != local.length) {
+				return false;
+			}
+			for (int i = 0; i < written.length; i++) {
+				if (!written[i].getName().equals(local[i].getName())
+						|| written[i].getTypeCode() != local[i].getTypeCode()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Read a file saved by the first version of savePlatform
+	 * @param filename location of the file to be loaded
+	 * @return the accounts, posts and counters saved in the file
+	 * @throws IOException if the file cannot be read or is not a serialised platform
+	 * @throws ClassNotFoundException if the file holds a class that is not part of a serialised platform
+	 */
+	static PlatformSnapshot read(String filename) throws IOException, ClassNotFoundException {
+		OldAccountCollection oldAccounts;
+		int nextAccountID;
+		OldPostCollection oldPosts;
+		int nextPostID;
+
+		try (ObjectInputStream in = new OldPlatformInputStream(new FileInputStream(filename))) {
+			oldAccounts = read(in, OldAccountCollection.class);
+			nextAccountID = in.readInt();
+			oldPosts = read(in, OldPostCollection.class);
+			nextPostID = in.readInt();
+		}
+
+		// accounts, in order of creation
+		ArrayList<Account> accounts = new ArrayList<>();
+		HashMap<String, Integer> accountIDs = new HashMap<>();
+		ArrayList<OldAccount> sortedAccounts = new ArrayList<>(oldAccounts.accounts);
+		sortedAccounts.sort(Comparator.comparingInt(acc -> acc.myID));
+		for (OldAccount acc: sortedAccounts) {
+			accounts.add(new Account(acc.myID, acc.stringHandle, acc.description));
+			accountIDs.put(acc.stringHandle, acc.myID);
+		}
+
+		// posts, in order of creation so every post comes after the post it points to
+		ArrayList<PostsParent> posts = new ArrayList<>();
+		HashSet<Integer> actionableIDs = new HashSet<>();
+		ArrayList<OldPostsParent> sortedPosts = new ArrayList<>(oldPosts.posts);
+		sortedPosts.sort(Comparator.comparingInt(post -> post.myID));
+		for (OldPostsParent post: sortedPosts) {
+			Integer accountID = accountIDs.get(post.handle);
+			if (accountID == null) {
+				continue;
+			}
+
+			if (post instanceof OldEndorsement) {
+				OldEndorsement endorsement = (OldEndorsement) post;
+				if (actionableIDs.contains(endorsement.postID)) {
+					posts.add(new Endorsement(post.myID, accountID, endorsement.postID));
+				}
+			} else if (post instanceof OldComment) {
+				OldComment comment = (OldComment) post;
+				int postID = actionableIDs.contains(comment.postID) ? comment.postID : -1;
+				posts.add(new Comment(post.myID, accountID, postID, comment.message));
+				actionableIDs.add(post.myID);
+			} else if (post instanceof OldPost) {
+				posts.add(new Post(post.myID, accountID, ((OldPost) post).message));
+				actionableIDs.add(post.myID);
+			}
+		}
+
+		return PlatformSnapshot.of(nextAccountID, nextPostID, accounts, posts);
+	}
+
+	/**
+	 * Read the next object of a serialised platform
+	 * @param in the stream
+	 * @param type class the object should be
+	 * @return the object
+	 * @throws IOException if the object is missing or of another class
+	 * @throws ClassNotFoundException if the object's class is not part of a serialised platform
+	 */
+	private static <T> T read(ObjectInputStream in, Class<T> type) throws IOException, ClassNotFoundException {
+		Object obj = in.readObject();
+		if (!type.isInstance(obj)) {
+			throw new InvalidClassException("This file does not hold a serialised platform");
+		}
+		return type.cast(obj);
+	}
+}
@@ -0,0 +1,943 @@
+package socialmedia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ShardedSocialMedia is a SocialMediaPlatform that splits its accounts, with their posts, across a number of
+ * shards. Each shard is a SocialMedia behind its own read-write lock, so calls that use different shards run in parallel.
+ * <p>
+ * Shard s of n hands out the IDs s + 1, s + 1 + n, s + 1 + 2n and so on, so every account and post ID is unique
+ * across the platform and the shard holding it is found from the ID alone. A directory from handle to account ID
+ * finds the shard holding an account, and new accounts are dealt out to the shards in turn.
+ * <p>
+ * Endorsements and comments are kept in the shard of the post they point to, so a whole thread lives in one shard.
+ * When an account endorses or comments on a post in another shard, that shard is given a stub: an account with the
+ * same handle that holds the account's endorsements and comments there. Stubs are renamed and removed along with
+ * their account, and are never counted or shown as accounts of their own.
+ * <p>
+ * The number of accounts and the post totals are the sums of each shard's counts, and the most endorsed post is the
+ * most endorsed of each shard's most endorsed post. An account's endorsements can be split between its own shard and
+ * its stubs, so the most endorsed account is found by walking each shard's ranking of accounts from the top, adding
+ * up every account met across all the shards, until no account not yet met could beat the best so far. Ties go to
+ * the lowest ID, which across shards is not always the oldest account.
+ * <p>
+ * Calls that create, rename or remove accounts hold the directory's write lock and run one at a time. Every other
+ * call shares the directory's read lock and only locks the shards it uses.
+ */
+public class ShardedSocialMedia implements SocialMediaPlatform {
+	// first bytes of the file listing the stubs of a saved platform ("SMSH")
+	public static final int MAGIC = 0x534D5348;
+
+	private final Shard[] shards;
+
+	// account IDs indexed by handle - the ID gives the shard holding the account
+	private final HashMap<String, Integer> directory = new HashMap<>();
+	private final ReentrantReadWriteLock directoryLock = new ReentrantReadWriteLock();
+
+	// shard the next account is created in
+	private int nextShard = 0;
+
+	/**
+	 * One shard of the platform
+	 */
+	private static final class Shard {
+		// replaced by loadPlatform, which holds every shard's write lock while it does so
+		private SocialMedia platform;
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		// ID of the account each stub in this shard stands in for, indexed by the stub's ID
+		private final HashMap<Integer, Integer> stubs = new HashMap<>();
+
+		/**
+		 * Constructor for an empty shard
+		 * @param index position of the shard, from 0
+		 * @param numOfShards number of shards in the platform
+		 */
+		Shard(int index, int numOfShards) {
+			platform = new SocialMedia(index + 1, numOfShards);
+		}
+	}
+
+	/**
+	 * Constructor for an empty platform
+	 * @param numOfShards number of shards to split the accounts across
+	 */
+	public ShardedSocialMedia(int numOfShards) {
+		if (numOfShards < 1) {
+			throw new IllegalArgumentException("A platform needs at least one shard");
+		}
+
+		shards = new Shard[numOfShards];
+		for (int i = 0; i < numOfShards; i++) {
+			shards[i] = new Shard(i, numOfShards);
+		}
+	}
+
+	/**
+	 * Finds the shard holding an account or post
+	 * @param id account or post ID
+	 * @return the only shard that can hold the ID
+	 */
+	private Shard shardOf(int id) {
+		return shards[Math.floorMod(id - 1, shards.length)];
+	}
+
+	/**
+	 * Finds the shard holding an account. Must be called while holding the directory's lock
+	 * @param handle account's handle
+	 * @return the shard, or null if no account has this handle
+	 */
+	private Shard shardOf(String handle) {
+		Integer id = directory.get(handle);
+		if (id == null) {
+			return null;
+		}
+		return shardOf(id);
+	}
+
+	/**
+	 * Lets an account endorse and comment in a shard, adding a stub for it if the account is held by
+	 * another shard and has no stub there yet. Must be called while holding the shard's write lock
+	 * @param shard shard the account is to act in
+	 * @param handle account's handle
+	 * @param id account's id
+	 * @return ID of the stub added, or -1 if the account could already act in the shard
+	 */
+	private static int addStub(Shard shard, String handle, int id) {
+		if (shard.platform.getAccountCollection().checkHandleExists(handle)) {
+			return -1;
+		}
+
+		try {
+			int stubID = shard.platform.createAccount(handle);
+			shard.stubs.put(stubID, id);
+			return stubID;
+		} catch (IllegalHandleException | InvalidHandleException e) {
+			// the handle belongs to an account, so is valid, and was just checked to be free in this shard
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Takes back a stub added for an endorsement or comment that could not be made.
+	 * Must be called while holding the shard's write lock
+	 * @param shard shard holding the stub
+	 * @param stubID ID returned by addStub
+	 */
+	private static void removeStub(Shard shard, int stubID) {
+		if (stubID == -1) {
+			return;
+		}
+
+		shard.stubs.remove(stubID);
+		try {
+			shard.platform.removeAccount(stubID);
+		} catch (AccountIDNotRecognisedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Locks every shard, in order
+	 * @param write true for the write locks, false for the read locks
+	 */
+	private void lockShards(boolean write) {
+		for (Shard shard: shards) {
+			if (write) {
+				shard.lock.writeLock().lock();
+			} else {
+				shard.lock.readLock().lock();
+			}
+		}
+	}
+
+	/**
+	 * Unlocks every shard locked by lockShards
+	 * @param write true for the write locks, false for the read locks
+	 */
+	private void unlockShards(boolean write) {
+		for (int i = shards.length - 1; i >= 0; i--) {
+			if (write) {
+				shards[i].lock.writeLock().unlock();
+			} else {
+				shards[i].lock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Create an account with just a handle, in the next shard in turn
+	 * @param handle account's handle.
+	 * @return the ID of the created account
+	 * @throws IllegalHandleException if the handle already exists in the platform
+	 * @throws InvalidHandleException if the new handle is empty, has more than 30 characters, or has white spaces
+	 */
+	@Override
+	public int createAccount(String handle) throws IllegalHandleException, InvalidHandleException {
+		return createAccount(handle, null);
+	}
+
+	/**
+	 * Create an account with a handle and description, in the next shard in turn
+	 * @param handle      account's handle.
+	 * @param description account's description.
+	 * @return the ID of the created account
+	 * @throws IllegalHandleException if the handle already exists in the platform
+	 * @throws InvalidHandleException if the new handle is empty, has more than 30 characters, or has white spaces
+	 */
+	@Override
+	public int createAccount(String handle, String description) throws IllegalHandleException, InvalidHandleException {
+		directoryLock.writeLock().lock();
+		try {
+			// The handle may belong to an account in any shard, so check the directory first
+			if (directory.containsKey(handle)) {
+				throw new IllegalHandleException("This handle (" + handle + ") already exists");
+			}
+
+			Shard shard = shards[nextShard];
+			int id;
+			shard.lock.writeLock().lock();
+			try {
+				id = shard.platform.createAccount(handle, description);
+			} finally {
+				shard.lock.writeLock().unlock();
+			}
+
+			nextShard = (nextShard + 1) % shards.length;
+			directory.put(handle, id);
+			return id;
+		} finally {
+			directoryLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an account, with its posts and its stubs in other shards, based on the id passed through
+	 * @param id ID of the account.
+	 * @throws AccountIDNotRecognisedException if the ID does not match to any account in the system
+	 */
+	@Override
+	public void removeAccount(int id) throws AccountIDNotRecognisedException {
+		directoryLock.writeLock().lock();
+		try {
+			Shard shard = shardOf(id);
+			String handle = null;
+			shard.lock.readLock().lock();
+			try {
+				Account acc = shard.platform.getAccountCollection().getAccountFromID(id);
+				// stubs are not accounts of their own
+				if (acc != null && !shard.stubs.containsKey(id)) {
+					handle = acc.getStringHandle();
+				}
+			} finally {
+				shard.lock.readLock().unlock();
+			}
+
+			if (handle == null) {
+				throw new AccountIDNotRecognisedException("This account ID (" + Integer.toString(id) + ") does not exist");
+			}
+
+			removeFromShards(handle);
+		} finally {
+			directoryLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an account, with its posts and its stubs in other shards, based on the handle passed through
+	 * @param handle account's handle.
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 */
+	@Override
+	public void removeAccount(String handle) throws HandleNotRecognisedException {
+		directoryLock.writeLock().lock();
+		try {
+			if (!directory.containsKey(handle)) {
+				throw new HandleNotRecognisedException("This account handle (" + handle + ") does not exist");
+			}
+
+			removeFromShards(handle);
+		} finally {
+			directoryLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an account from its shard and its stubs from every other shard, which removes their
+	 * posts, comments and endorsements too. Must be called while holding the directory's write lock
+	 * @param handle account's handle
+	 */
+	private void removeFromShards(String handle) {
+		for (Shard shard: shards) {
+			shard.lock.writeLock().lock();
+			try {
+				Account acc = shard.platform.getAccountCollection().getAccountFromHandle(handle);
+				if (acc != null) {
+					shard.stubs.remove(acc.getID());
+					shard.platform.removeAccount(acc.getID());
+				}
+			} catch (AccountIDNotRecognisedException e) {
+				throw new IllegalStateException(e);
+			} finally {
+				shard.lock.writeLock().unlock();
+			}
+		}
+
+		directory.remove(handle);
+	}
+
+	/**
+	 * Change the account's handle to a new handle, renaming its stubs in other shards too
+	 * @param oldHandle account's old handle.
+	 * @param newHandle account's new handle.
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 * @throws IllegalHandleException if the handle already exists in the platform
+	 * @throws InvalidHandleException if the new handle is empty, has more than 30 characters, or has white spaces
+	 */
+	@Override
+	public void changeAccountHandle(String oldHandle, String newHandle)
+			throws HandleNotRecognisedException, IllegalHandleException, InvalidHandleException {
+		directoryLock.writeLock().lock();
+		try {
+			if (directory.containsKey(newHandle)) {
+				throw new IllegalHandleException("This new handle (" + newHandle + ") already exists");
+			}
+
+			// The account's shard checks the rest - with no such account, shard 0 throws the right exception
+			Shard home = shardOf(oldHandle);
+			if (home == null) {
+				home = shards[0];
+			}
+
+			home.lock.writeLock().lock();
+			try {
+				home.platform.changeAccountHandle(oldHandle, newHandle);
+			} finally {
+				home.lock.writeLock().unlock();
+			}
+
+			for (Shard shard: shards) {
+				if (shard == home) {
+					continue;
+				}
+
+				shard.lock.writeLock().lock();
+				try {
+					if (shard.platform.getAccountCollection().checkHandleExists(oldHandle)) {
+						shard.platform.changeAccountHandle(oldHandle, newHandle);
+					}
+				} catch (HandleNotRecognisedException | IllegalHandleException | InvalidHandleException e) {
+					// the account's own shard has already accepted the new handle
+					throw new IllegalStateException(e);
+				} finally {
+					shard.lock.writeLock().unlock();
+				}
+			}
+
+			directory.put(newHandle, directory.remove(oldHandle));
+		} finally {
+			directoryLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the account's description, in the account's shard
+	 * @param handle      handle to identify the account.
+	 * @param description new text for description.
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 */
+	@Override
+	public void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException {
+		directoryLock.readLock().lock();
+		try {
+			Shard home = shardOf(handle);
+			if (home == null) {
+				throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+			}
+
+			home.lock.writeLock().lock();
+			try {
+				home.platform.updateAccountDescription(handle, description);
+			} finally {
+				home.lock.writeLock().unlock();
+			}
+		} finally {
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets account's ID, handle, description, no. Posts, no. endorsements and returns a string,
+	 * adding up the counts of the account and its stubs
+	 * @param handle handle to identify the account.
+	 * @return accountInfo - the String that holds the id, handle, description, no. posts & no. endorsements
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 */
+	@Override
+	public String showAccount(String handle) throws HandleNotRecognisedException {
+		directoryLock.readLock().lock();
+		try {
+			Integer id = directory.get(handle);
+			if (id == null) {
+				throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+			}
+
+			String description = null;
+			int postCount = 0;
+			int endorsementCount = 0;
+			for (Shard shard: shards) {
+				shard.lock.readLock().lock();
+				try {
+					Account acc = shard.platform.getAccountCollection().getAccountFromHandle(handle);
+					if (acc != null) {
+						postCount += acc.getPostCount();
+						endorsementCount += acc.getEndorsementCount();
+						if (acc.getID() == id) {
+							description = acc.getDescription();
+						}
+					}
+				} finally {
+					shard.lock.readLock().unlock();
+				}
+			}
+
+			String accountInfo = "ID: " + Integer.toString(id) + "\nHandle: " + handle;
+			accountInfo += "\nDescription: " + description;
+
+			accountInfo += "\nPost count: " + Integer.toString(postCount);
+			accountInfo += "\nEndorse count: " + Integer.toString(endorsementCount);
+
+			return accountInfo;
+		} finally {
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Create a post with a message from given handle, in the account's shard
+	 * @param handle  handle to identify the account.
+	 * @param message post message.
+	 * @return ID of post
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 * @throws InvalidPostException if the message is empty or has more than 100 characters
+	 */
+	@Override
+	public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
+		directoryLock.readLock().lock();
+		try {
+			Shard home = shardOf(handle);
+			if (home == null) {
+				throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+			}
+
+			home.lock.writeLock().lock();
+			try {
+				return home.platform.createPost(handle, message);
+			} finally {
+				home.lock.writeLock().unlock();
+			}
+		} finally {
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates an endorsement post of an existing post, in the shard of the endorsed post
+	 * @param handle of the account endorsing a post.
+	 * @param id     of the post being endorsed.
+	 * @return id of the endorsement post
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 */
+	@Override
+	public int endorsePost(String handle, int id)
+			throws HandleNotRecognisedException, PostIDNotRecognisedException, NotActionablePostException {
+		directoryLock.readLock().lock();
+		try {
+			Integer accountID = directory.get(handle);
+			if (accountID == null) {
+				throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+			}
+
+			Shard shard = shardOf(id);
+			shard.lock.writeLock().lock();
+			try {
+				int stubID = addStub(shard, handle, accountID);
+				try {
+					return shard.platform.endorsePost(handle, id);
+				} catch (PostIDNotRecognisedException | NotActionablePostException e) {
+					removeStub(shard, stubID);
+					throw e;
+				}
+			} finally {
+				shard.lock.writeLock().unlock();
+			}
+		} finally {
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates a comment post referring to an existing post, in the shard of the post being commented
+	 * @param handle  of the account commenting a post.
+	 * @param id      of the post being commented.
+	 * @param message the comment post message.
+	 * @return id of the comment post
+	 * @throws HandleNotRecognisedException if the handle does not match to any account in the system
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 * @throws InvalidPostException if the comment message is empty or has more than 100 characters
+	 */
+	@Override
+	public int commentPost(String handle, int id, String message) throws HandleNotRecognisedException,
+			PostIDNotRecognisedException, NotActionablePostException, InvalidPostException {
+		directoryLock.readLock().lock();
+		try {
+			Integer accountID = directory.get(handle);
+			if (accountID == null) {
+				throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
+			}
+
+			Shard shard = shardOf(id);
+			shard.lock.writeLock().lock();
+			try {
+				int stubID = addStub(shard, handle, accountID);
+				try {
+					return shard.platform.commentPost(handle, id, message);
+				} catch (PostIDNotRecognisedException | NotActionablePostException | InvalidPostException e) {
+					removeStub(shard, stubID);
+					throw e;
+				}
+			} finally {
+				shard.lock.writeLock().unlock();
+			}
+		} finally {
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the given post from its shard, see SocialMedia.deletePost
+	 * @param id ID of post to be removed.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 */
+	@Override
+	public void deletePost(int id) throws PostIDNotRecognisedException {
+		Shard shard = shardOf(id);
+		shard.lock.writeLock().lock();
+		try {
+			shard.platform.deletePost(id);
+		} finally {
+			shard.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the details of a post as a string, from its shard
+	 * @param id of the post to be shown.
+	 * @return postInfo - the String that holds the id, handle, no. endorsements & no. comments and message
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 */
+	@Override
+	public String showIndividualPost(int id) throws PostIDNotRecognisedException {
+		Shard shard = shardOf(id);
+		shard.lock.readLock().lock();
+		try {
+			return shard.platform.showIndividualPost(id);
+		} finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the details of a post and all of its children, from the shard holding the thread
+	 * @param id of the post to be shown.
+	 * @return a formatted StringBuilder containing the details of the post and its children
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 */
+	@Override
+	public StringBuilder showPostChildrenDetails(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		Shard shard = shardOf(id);
+		shard.lock.readLock().lock();
+		try {
+			return shard.platform.showPostChildrenDetails(id);
+		} finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of accounts, adding up the accounts of each shard but not their stubs
+	 * @return number of accounts
+	 */
+	@Override
+	public int getNumberOfAccounts() {
+		int total = 0;
+		for (Shard shard: shards) {
+			shard.lock.readLock().lock();
+			try {
+				total += shard.platform.getNumberOfAccounts() - shard.stubs.size();
+			} finally {
+				shard.lock.readLock().unlock();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Get total number of original posts, adding up each shard's total
+	 * @return num of original posts
+	 */
+	@Override
+	public int getTotalOriginalPosts() {
+		return getTotalNumber(PostType.ORIGINAL_POST);
+	}
+
+	/**
+	 * Get total number of endorsements, adding up each shard's total
+	 * @return num of endorsements
+	 */
+	@Override
+	public int getTotalEndorsmentPosts() {
+		return getTotalNumber(PostType.ENDORSEMENT);
+	}
+
+	/**
+	 * Get total number of comments, adding up each shard's total
+	 * @return num of comments
+	 */
+	@Override
+	public int getTotalCommentPosts() {
+		return getTotalNumber(PostType.COMMENT);
+	}
+
+	/**
+	 * Add up the number of posts of one type in each shard
+	 * @param type type of post
+	 * @return number of posts of that type
+	 */
+	private int getTotalNumber(PostType type) {
+		int total = 0;
+		for (Shard shard: shards) {
+			shard.lock.readLock().lock();
+			try {
+				total += shard.platform.getPostCollection().getTotalNumber(type);
+			} finally {
+				shard.lock.readLock().unlock();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Identifies and returns the post with the highest number of endorsements, out of each shard's most
+	 * endorsed post. A post's endorsements are all kept in its shard
+	 * @return id of the most endorsed post, the lowest ID winning any tie
+	 */
+	@Override
+	public int getMostEndorsedPost() {
+		int best = -1;
+		int bestCount = -1;
+		for (Shard shard: shards) {
+			shard.lock.readLock().lock();
+			try {
+				int id = shard.platform.getMostEndorsedPost();
+				if (id != -1) {
+					int count = shard.platform.getPostCollection().getPost(id).getNumOfEndorsements();
+					if (count > bestCount || (count == bestCount && id < best)) {
+						best = id;
+						bestCount = count;
+					}
+				}
+			} finally {
+				shard.lock.readLock().unlock();
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Identifies and returns the account with the highest number of endorsements, adding up the endorsements
+	 * of each account and its stubs. Every shard is read locked while the rankings are walked
+	 * @return id of the most endorsed account, the lowest ID winning any tie
+	 */
+	@Override
+	public int getMostEndorsedAccount() {
+		directoryLock.readLock().lock();
+		lockShards(false);
+		try {
+			ArrayList<Iterator<Account>> rankings = new ArrayList<>();
+			for (Shard shard: shards) {
+				rankings.add(shard.platform.getAccountCollection().rankingIterator());
+			}
+
+			// endorsements of the last account met in each shard's ranking, which no account not yet met can beat there
+			int[] frontier = new int[shards.length];
+			HashSet<Integer> met = new HashSet<>();
+			int best = -1;
+			long bestCount = -1;
+
+			boolean more = true;
+			while (more) {
+				more = false;
+				long threshold = 0;
+				for (int i = 0; i < shards.length; i++) {
+					Iterator<Account> ranking = rankings.get(i);
+					if (!ranking.hasNext()) {
+						frontier[i] = 0;
+						continue;
+					}
+
+					more = true;
+					Account acc = ranking.next();
+					frontier[i] = acc.getEndorsementCount();
+					threshold += frontier[i];
+
+					Integer stubbed = shards[i].stubs.get(acc.getID());
+					int id = stubbed == null ? acc.getID() : stubbed;
+					if (met.add(id)) {
+						long count = getEndorsementCount(acc.getStringHandle());
+						if (count > bestCount || (count == bestCount && id < best)) {
+							best = id;
+							bestCount = count;
+						}
+					}
+				}
+
+				// No account not yet met can have more endorsements than the threshold
+				if (bestCount > threshold) {
+					break;
+				}
+				// Every account not yet met has no endorsements, so the lowest ID of them all may win the tie
+				if (more && threshold == 0) {
+					int lowest = getLowestAccountID();
+					if (lowest < best) {
+						best = lowest;
+					}
+					break;
+				}
+			}
+
+			return best;
+		} finally {
+			unlockShards(false);
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add up the endorsements of an account and its stubs. Must be called while holding every shard's lock
+	 * @param handle account's handle
+	 * @return number of endorsements
+	 */
+	private long getEndorsementCount(String handle) {
+		long count = 0;
+		for (Shard shard: shards) {
+			Account acc = shard.platform.getAccountCollection().getAccountFromHandle(handle);
+			if (acc != null) {
+				count += acc.getEndorsementCount();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the lowest account ID, skipping stubs. Must be called while holding every shard's lock
+	 * @return the lowest ID, or -1 if there are no accounts
+	 */
+	private int getLowestAccountID() {
+		int lowest = -1;
+		for (Shard shard: shards) {
+			// each shard holds its accounts in order of creation, so in order of ID
+			for (Account acc: shard.platform.getAccountCollection().accounts.values()) {
+				if (!shard.stubs.containsKey(acc.getID())) {
+					if (lowest == -1 || acc.getID() < lowest) {
+						lowest = acc.getID();
+					}
+					break;
+				}
+			}
+		}
+		return lowest;
+	}
+
+	/**
+	 * Empties every shard and resets all internal counters
+	 */
+	@Override
+	public void erasePlatform() {
+		directoryLock.writeLock().lock();
+		lockShards(true);
+		try {
+			clearShards();
+		} finally {
+			unlockShards(true);
+			directoryLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Empties every shard, the directory and the stubs. Must be called while holding every write lock
+	 */
+	private void clearShards() {
+		for (Shard shard: shards) {
+			shard.platform.erasePlatform();
+			shard.stubs.clear();
+		}
+		directory.clear();
+		nextShard = 0;
+	}
+
+	/**
+	 * Get the file a shard is saved in
+	 * @param filename location of the platform's file
+	 * @param index position of the shard, from 0
+	 * @return location of the shard's file
+	 */
+	private static String shardFilename(String filename, int index) {
+		return filename + ".shard" + index;
+	}
+
+	/**
+	 * Saves each shard into its own snapshot file, next to filename, then a list of the shards' stubs
+	 * into filename. Every shard is locked while saving, so the files agree with each other. The list is
+	 * written, synced and moved into place in the same way as the shards' snapshots
+	 * @param filename location of the file to be saved
+	 * @throws IOException if there is a problem experienced when trying to save the store contents to the file
+	 */
+	@Override
+	public void savePlatform(String filename) throws IOException {
+		directoryLock.readLock().lock();
+		lockShards(true);
+		try {
+			for (int i = 0; i < shards.length; i++) {
+				shards[i].platform.savePlatform(shardFilename(filename, i));
+			}
+
+			Path path = Paths.get(filename);
+			Path temp = Paths.get(filename + ".tmp");
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+				out.writeInt(MAGIC);
+				out.writeInt(shards.length);
+				for (Shard shard: shards) {
+					out.writeInt(shard.stubs.size());
+					for (int stubID: shard.stubs.keySet()) {
+						out.writeInt(stubID);
+					}
+				}
+				out.flush();
+				channel.force(false);
+			}
+
+			PlatformSnapshot.replace(temp, path);
+		} finally {
+			unlockShards(true);
+			directoryLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads and replaces every shard's contents with the files saved by savePlatform, which must have been
+	 * saved by a platform with the same number of shards. Every shard is loaded into a new SocialMedia and the
+	 * directory is rebuilt from them, and only once all of that has worked are they swapped in, so the platform
+	 * is left as it was if anything cannot be loaded
+	 * @param filename location of the file to be loaded
+	 * @throws IOException if there is a problem experienced when trying to load the store contents from the file
+	 * @throws ClassNotFoundException if required class files cannot be found when loading
+	 */
+	@Override
+	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
+		directoryLock.writeLock().lock();
+		lockShards(true);
+		try {
+			ArrayList<HashSet<Integer>> stubIDs = new ArrayList<>();
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(filename))))) {
+				if (in.readInt() != MAGIC) {
+					throw new IOException("This file (" + filename + ") is not a sharded platform");
+				}
+
+				int numOfShards = in.readInt();
+				if (numOfShards != shards.length) {
+					throw new IOException("This platform (" + filename + ") was saved with " + numOfShards
+							+ " shards, not " + shards.length);
+				}
+
+				for (int i = 0; i < numOfShards; i++) {
+					HashSet<Integer> ids = new HashSet<>();
+					int numOfStubs = in.readInt();
+					for (int j = 0; j < numOfStubs; j++) {
+						ids.add(in.readInt());
+					}
+					stubIDs.add(ids);
+				}
+			}
+
+			SocialMedia[] loaded = new SocialMedia[shards.length];
+			HashMap<String, Integer> loadedDirectory = new HashMap<>();
+			ArrayList<HashMap<Integer, Integer>> loadedStubs = new ArrayList<>();
+			try {
+				for (int i = 0; i < shards.length; i++) {
+					loaded[i] = new SocialMedia(i + 1, shards.length);
+					loaded[i].loadPlatform(shardFilename(filename, i));
+				}
+
+				// Accounts first, so every stub can be matched to its account by handle
+				for (int i = 0; i < shards.length; i++) {
+					for (Account acc: loaded[i].getAccountCollection().accounts.values()) {
+						if (!stubIDs.get(i).contains(acc.getID())
+								&& loadedDirectory.put(acc.getStringHandle(), acc.getID()) != null) {
+							throw new IOException("Corrupt snapshot: handle of account " + acc.getID()
+									+ " in shard " + i + " is held by another account");
+						}
+					}
+				}
+				for (int i = 0; i < shards.length; i++) {
+					HashMap<Integer, Integer> stubs = new HashMap<>();
+					for (int stubID: stubIDs.get(i)) {
+						Account stub = loaded[i].getAccountCollection().getAccountFromID(stubID);
+						Integer accountID = stub == null ? null : loadedDirectory.get(stub.getStringHandle());
+						if (accountID == null) {
+							throw new IOException("Corrupt snapshot: stub " + stubID + " of shard " + i
+									+ " has no account");
+						}
+						stubs.put(stubID, accountID);
+					}
+					loadedStubs.add(stubs);
+				}
+			} catch (RuntimeException e) {
+				throw new IOException("Error when loading Platform", e);
+			}
+
+			for (int i = 0; i < shards.length; i++) {
+				shards[i].platform = loaded[i];
+				shards[i].stubs.clear();
+				shards[i].stubs.putAll(loadedStubs.get(i));
+			}
+			directory.clear();
+			directory.putAll(loadedDirectory);
+			nextShard = 0;
+		} finally {
+			unlockShards(true);
+			directoryLock.writeLock().unlock();
+		}
+	}
+}
@@ -1,15 +1,165 @@
 package socialmedia;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class SocialMedia implements SocialMediaPlatform{
 
 
 	
+	// IDs handed out by this platform are firstID, firstID + idStride, firstID + 2 * idStride and so on
+	private final int firstID;
+	private final int idStride;
+
 	//all posts and accounts stored in a list
-	private AccountCollection allAccounts = new AccountCollection();
-	private PostCollection allPosts = new PostCollection();
+	private AccountCollection allAccounts;
+	private PostCollection allPosts;
+
+	// accounts and posts changed since the last checkpoint, saved by savePlatformDelta
+	private PlatformChanges changes = new PlatformChanges();
+
+	// spaces used to indent threads, written in chunks of up to this length
+	private static final String INDENT = " ".repeat(64);
+
+	// journal of changes since the last snapshot, or null if changes are not being journalled - volatile,
+	// as syncJournal may be called from any thread
+	private transient volatile PlatformJournal journal;
+	// compaction of the journal being saved in the background, or null if none has been started
+	private transient CompletableFuture<Void> compaction;
+
+	// thread that writes snapshots in the background, one at a time and in the order they were captured
+	private transient ThreadPoolExecutor snapshotWriter;
+
+	// last view opened, handed out again until the platform changes
+	private transient volatile PlatformView view;
+	// copy of the accounts and posts that images are captured from, or null until the first capture
+	private transient PlatformImageCache imageCache;
+
+	/**
+	 * Constructor for an empty platform, handing out account and post IDs 1, 2, 3 and so on
+	 */
+	public SocialMedia() {
+		this(1, 1);
+	}
+
+	/**
+	 * Constructor for an empty platform handing out account and post IDs firstID, firstID + idStride,
+	 * firstID + 2 * idStride and so on, so that several platforms can share one range of IDs
+	 * @param firstID ID of the first account and of the first post
+	 * @param idStride gap between IDs
+	 */
+	public SocialMedia(int firstID, int idStride) {
+		this.firstID = firstID;
+		this.idStride = idStride;
+		allAccounts = new AccountCollection(firstID, idStride);
+		allPosts = new PostCollection(firstID, idStride);
+	}
+
+	/**
+	 * Adds a post to the platform and updates the post and endorsement counts of the accounts involved
+	 * @param post post to be added
+	 * @return the post's ID
+	 */
+	private int addToPlatform(PostsParent post) {
+		int id = allPosts.addPost(post);
+
+		if (post instanceof Endorsement) {
+			// The endorsement counts towards the author of the endorsed post
+			PostsParent endorsed = allPosts.getPost(post.getPostID());
+			Account author = allAccounts.getAccountFromID(endorsed.getAccountID());
+			if (author != null) {
+				allAccounts.changeEndorsementCount(author, 1);
+			}
+		} else {
+			Account author = allAccounts.getAccountFromID(post.getAccountID());
+			if (author != null) {
+				author.changePostCount(1);
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Removes a post from the platform and updates the post and endorsement counts of the accounts involved
+	 * @param post post to be removed
+	 */
+	private void removeFromPlatform(PostsParent post) {
+		if (post instanceof Endorsement) {
+			// Endorsements of a post that has already been removed were discounted along with it
+			PostsParent endorsed = allPosts.getPost(post.getPostID());
+			if (endorsed != null) {
+				Account author = allAccounts.getAccountFromID(endorsed.getAccountID());
+				if (author != null) {
+					allAccounts.changeEndorsementCount(author, -1);
+				}
+			}
+		} else {
+			Account author = allAccounts.getAccountFromID(post.getAccountID());
+			if (author != null) {
+				author.changePostCount(-1);
+				allAccounts.changeEndorsementCount(author, -post.getNumOfEndorsements());
+			}
+		}
+
+		allPosts.removePost(post);
+		changes.postChanged(post.getID());
+	}
+
+	/**
+	 * Deletes a post from the platform: its endorsements are removed and its comments are orphaned
+	 * @param post post to be deleted
+	 */
+	private void deleteFromPlatform(PostsParent post) {
+		int id = post.getID();
+		ArrayList<PostsParent> postsToDelete = new ArrayList<>();
+
+		postsToDelete.add(post);
+
+		// Look for any endorsements linked to the post being deleted and add them to
+		// list of posts to be deleted as well
+		postsToDelete.addAll(allPosts.getEndorsements(id));
+
+		// Look for comments linking to post and make them orphans by removing the link to
+		// the post id and setting it to -1 instead
+		for(Comment comment: new ArrayList<>(allPosts.getComments(id))) {
+			allPosts.setCommentPostID(comment, -1);
+			changes.postChanged(comment.getID());
+		}
+
+		// Remove the given post and endorsements linking to it
+		for(PostsParent postToDelete: postsToDelete) {
+			removeFromPlatform(postToDelete);
+		}
+	}
+
+	/**
+	 * Removes an account along with every post, comment and endorsement it created
+	 * @param acc account to be removed
+	 */
+	private void removeAccountFromPlatform(Account acc) {
+		// Copy the account's posts, as deleting them changes the index being read
+		ArrayList<PostsParent> postsToDelete = new ArrayList<>(allPosts.getPostsByAccount(acc.getID()));
+
+		for(PostsParent post: postsToDelete) {
+			// The post may already be gone if it was the account's own endorsement of an earlier post
+			if (allPosts.getPost(post.getID()) != null) {
+				deleteFromPlatform(post);
+			}
+		}
+
+		// Delete the given account
+		allAccounts.removeAccount(acc);
+		changes.accountChanged(acc.getID());
+	}
 
 	/**
 	 * Create an account with just a handle
@@ -29,12 +179,19 @@ public class SocialMedia implements SocialMediaPlatform{
 			throw new InvalidHandleException("This handle (" + handle + ") is not valid");
 		}
 
-		int oldID = Account.getNextID();
-		Account acc = new Account(handle);
+		checkJournalWritable();
+		int oldID = allAccounts.getNextID();
+		Account acc = new Account(allAccounts.newAccountID(), handle, null);
 		int id = allAccounts.addAccount(acc);
 
 		//does ID increment as intended
 		assert id > oldID;
+		changes.accountChanged(id);
+
+		if (journal != null) {
+			journal.logCreateAccount(id, handle, null);
+			compactJournalIfFull();
+		}
 
 		return id;
 	}
@@ -60,12 +217,19 @@ public class SocialMedia implements SocialMediaPlatform{
 			throw new InvalidHandleException("This handle (" + handle + ") is not valid");
 		}
 
-		int oldID = Account.getNextID();
-		Account acc = new Account(handle, description);
+		checkJournalWritable();
+		int oldID = allAccounts.getNextID();
+		Account acc = new Account(allAccounts.newAccountID(), handle, description);
 		int id = allAccounts.addAccount(acc);
 
 		//does ID increment as intended
 		assert id > oldID;
+		changes.accountChanged(id);
+
+		if (journal != null) {
+			journal.logCreateAccount(id, handle, description);
+			compactJournalIfFull();
+		}
 
 		return id;
 	}
@@ -77,43 +241,19 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public void removeAccount(int id) throws AccountIDNotRecognisedException {
-		boolean found = false;
-		ArrayList<PostsParent> postsToDelete = new ArrayList<>();
-		ArrayList<Account> accountsToDelete = new ArrayList<>();
-		String handle;
-
-
-		for(Account acc: allAccounts.accounts) {
-			// Compare IDs to check if it is the correct account
-			if (acc.getID() == id) {
-				handle = acc.getStringHandle();
-				// Add this account to the list of accounts to delete
-				accountsToDelete.add(acc);
-				found = true;
-
-				// Find all posts created by this account and add them to the list of posts to delete
-				for(PostsParent post: allPosts.posts) {
-					if (post.getHandle().equals(handle)) {
-						postsToDelete.add(post);
-					}
-				}
-			}
-		}
+		Account acc = allAccounts.getAccountFromID(id);
 
-		if(!found) {
+		if(acc == null) {
 			throw new AccountIDNotRecognisedException("This account ID (" + Integer.toString(id) + ") does not exist");
 		}
 
-		// Delete all the account's posts
-		for(PostsParent post: postsToDelete) {
-			allPosts.removePost(post);
-		}
+		checkJournalWritable();
+		removeAccountFromPlatform(acc);
 
-		// Delete the given account
-		for(Account account: accountsToDelete) {
-			allAccounts.removeAccount(account);
+		if (journal != null) {
+			journal.logRemoveAccount(id);
+			compactJournalIfFull();
 		}
-
 	}
 
 	/**
@@ -123,38 +263,18 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public void removeAccount(String handle) throws HandleNotRecognisedException {
-		boolean found = false;
-		ArrayList<PostsParent> postsToDelete = new ArrayList<>();
-		ArrayList<Account> accountsToDelete = new ArrayList<>();
-
-		for(Account acc: allAccounts.accounts) {
-			// Compare handles to check if it is the correct account
-			if (acc.getStringHandle().equals(handle)) {
-				// Add this account to the list of accounts to delete
-				accountsToDelete.add(acc);
-				found = true;
-
-				// Find all posts created by this account and add them to the list of posts to delete
-				for(PostsParent post: allPosts.posts) {
-					if (post.getHandle().equals(handle)) {
-						postsToDelete.add(post);
-					}
-				}
-			}
-		}
+		Account acc = allAccounts.getAccountFromHandle(handle);
 
-		if(!found) {
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This account handle (" + handle + ") does not exist");
 		}
 
-		// Delete all the account's posts
-		for(PostsParent post: postsToDelete) {
-			allPosts.removePost(post);
-		}
+		checkJournalWritable();
+		removeAccountFromPlatform(acc);
 
-		// Delete the given account
-		for(Account account: accountsToDelete) {
-			allAccounts.removeAccount(account);
+		if (journal != null) {
+			journal.logRemoveAccount(acc.getID());
+			compactJournalIfFull();
 		}
 	}
 
@@ -180,20 +300,21 @@ public class SocialMedia implements SocialMediaPlatform{
 			throw new InvalidHandleException("This new handle (" + newHandle + ") is not valid");
 		}
 
-		boolean found = false;
-
 		// Check that the account can be found in the system
-		for(Account acc: allAccounts.accounts) {
-			if (acc.getStringHandle().equals(oldHandle)) {
-				acc.setAccountHandle(newHandle);
-				found = true;
-			}
-		}
+		Account acc = allAccounts.getAccountFromHandle(oldHandle);
 
-		if(!found) {
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This old handle (" + oldHandle + ") does not exist");
 		}
 
+		checkJournalWritable();
+		allAccounts.changeAccountHandle(acc, newHandle);
+		changes.accountChanged(acc.getID());
+
+		if (journal != null) {
+			journal.logChangeHandle(oldHandle, newHandle);
+			compactJournalIfFull();
+		}
 	}
 
 	/**
@@ -205,21 +326,22 @@ public class SocialMedia implements SocialMediaPlatform{
 	@Override
 	public void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException {
 
-		boolean found = false;
-
-		for(Account acc: allAccounts.accounts) {
-			// Compare the handle to find the correct account in the system
-			if (acc.getStringHandle().equals(handle)) {
-				// Update the description
-				acc.setAccountDescription(description);
-				found = true;
-			}
-		}
+		// Find the correct account in the system
+		Account acc = allAccounts.getAccountFromHandle(handle);
 
-		if(!found) {
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
 		}
 
+		checkJournalWritable();
+		// Update the description
+		acc.setAccountDescription(description);
+		changes.accountChanged(acc.getID());
+
+		if (journal != null) {
+			journal.logUpdateDescription(handle, description);
+			compactJournalIfFull();
+		}
 	}
 
 
@@ -232,50 +354,21 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public String showAccount(String handle) throws HandleNotRecognisedException {
-		int id;
-		String description;
-		String accountInfo = "";
-
-		boolean found = false;
-
-		for(Account acc: allAccounts.accounts) {
-			// Compare the handle to find the correct account in the system
-			if (acc.getStringHandle().equals(handle)) {
-				id = acc.getID();
-				description = acc.getDescription();
-
-				accountInfo = "ID: " + Integer.toString(id) + "\nHandle: " + handle;
-				accountInfo += "\nDescription: " + description;
-
-				int postCount = 0;
-				int endorsementCount = 0;
-
-				for(PostsParent post: allPosts.posts) {
-					// Ensure that the post is an actionable post (not an endorsement)
-					if(!(post instanceof Endorsement)) {
-						int numOfEndorsements = allPosts.getNumberOfTypeAssociatedToPost(post.getID(), "endorsement");
-						String accountHandle = post.getHandle();
-						int accountID = allAccounts.getIDFromHandle(accountHandle);
-
-						// Check it has the correct ID
-						if (accountID == id) {
-							// Increment endorsements by correct amount for given post
-							endorsementCount += numOfEndorsements;
-							postCount += 1;
-						}
-					}
-				}
+		Account acc = allAccounts.getAccountFromHandle(handle);
 
-				accountInfo += "\nPost count: " + Integer.toString(postCount);
-				accountInfo += "\nEndorse count: " + Integer.toString(endorsementCount);
-				found = true;
-			}
-		}
-
-		if(!found) {
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
 		}
 
+		int id = acc.getID();
+		String description = acc.getDescription();
+
+		String accountInfo = "ID: " + Integer.toString(id) + "\nHandle: " + handle;
+		accountInfo += "\nDescription: " + description;
+
+		accountInfo += "\nPost count: " + Integer.toString(acc.getPostCount());
+		accountInfo += "\nEndorse count: " + Integer.toString(acc.getEndorsementCount());
+
 		return accountInfo;
 	}
 
@@ -291,7 +384,9 @@ public class SocialMedia implements SocialMediaPlatform{
 	@Override
 	public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
 		// Check if handle already exists in the system
-		if(!allAccounts.checkHandleExists(handle)) {
+		Account acc = allAccounts.getAccountFromHandle(handle);
+
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
 		}
 
@@ -300,14 +395,21 @@ public class SocialMedia implements SocialMediaPlatform{
 			throw new InvalidPostException("This message (" + message + ") is invalid");
 		}
 
-		int oldID = PostsParent.getNextID();
+		checkJournalWritable();
+		int oldID = allPosts.getNextID();
 
 		// Create the new post and add to list of posts
-		Post post = new Post(handle, message);
-		int id = allPosts.addPost(post);
+		Post post = new Post(allPosts.newPostID(), acc.getID(), message);
+		int id = addToPlatform(post);
 
 		//does ID increment as intended
 		assert id > oldID;
+		changes.postChanged(id);
+
+		if (journal != null) {
+			journal.logCreatePost(id, handle, message);
+			compactJournalIfFull();
+		}
 
 		return id;
 	}
@@ -327,34 +429,38 @@ public class SocialMedia implements SocialMediaPlatform{
 			throws HandleNotRecognisedException, PostIDNotRecognisedException, NotActionablePostException {
 
 		// check account exists
-		if(!allAccounts.checkHandleExists(handle)) {
+		Account acc = allAccounts.getAccountFromHandle(handle);
+
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
 		}
 
 		// check post exists
-		boolean found = false;
-		for(PostsParent post: allPosts.posts) {
-			if (post.getID() == id) {
-				found = true;
-
-				// check if endorsement
-				if (post instanceof Endorsement) {
-					throw new NotActionablePostException("This is an endorsement post");
-				}
-			}
-		}
+		PostsParent post = allPosts.getPost(id);
 
-		if(!found) {
+		if(post == null) {
 			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
 		}
 
-		int oldID = PostsParent.getNextID();
+		// check if endorsement
+		if (post instanceof Endorsement) {
+			throw new NotActionablePostException("This is an endorsement post");
+		}
+
+		checkJournalWritable();
+		int oldID = allPosts.getNextID();
 		// create the new endorsement post
-		Endorsement endorsement = new Endorsement(handle, id);
-		int endorsement_id = allPosts.addPost(endorsement);
+		Endorsement endorsement = new Endorsement(allPosts.newPostID(), acc.getID(), id);
+		int endorsement_id = addToPlatform(endorsement);
 
 		//does ID increment as intended
 		assert endorsement_id > oldID;
+		changes.postChanged(endorsement_id);
+
+		if (journal != null) {
+			journal.logEndorsePost(endorsement_id, handle, id);
+			compactJournalIfFull();
+		}
 
 		return endorsement_id;
 	}
@@ -376,7 +482,9 @@ public class SocialMedia implements SocialMediaPlatform{
 			PostIDNotRecognisedException, NotActionablePostException, InvalidPostException {
 
 		// check account exists
-		if(!allAccounts.checkHandleExists(handle)) {
+		Account acc = allAccounts.getAccountFromHandle(handle);
+
+		if(acc == null) {
 			throw new HandleNotRecognisedException("This handle (" + handle + ") does not exist");
 		}
 
@@ -386,34 +494,330 @@ public class SocialMedia implements SocialMediaPlatform{
 		}
 
 		// check post exists
-		boolean found = false;
-		for(PostsParent post: allPosts.posts) {
-			if (post.getID() == id) {
-				found = true;
-
-				// check if endorsement (not actionable)
-				if (post instanceof Endorsement) {
-					throw new NotActionablePostException("This is an endorsement post");
-				}
-			}
-		}
+		PostsParent post = allPosts.getPost(id);
 
-		if(!found) {
+		if(post == null) {
 			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
 		}
 
-		int oldID = PostsParent.getNextID();
+		// check if endorsement (not actionable)
+		if (post instanceof Endorsement) {
+			throw new NotActionablePostException("This is an endorsement post");
+		}
+
+		checkJournalWritable();
+		int oldID = allPosts.getNextID();
 
 		// create new comment post and add to post list
-		Comment comment = new Comment(handle, id, message);
-		int comment_id = allPosts.addPost(comment);
+		Comment comment = new Comment(allPosts.newPostID(), acc.getID(), id, message);
+		int comment_id = addToPlatform(comment);
 
 		//does ID increment as intended
 		assert comment_id > oldID;
+		changes.postChanged(comment_id);
+
+		if (journal != null) {
+			journal.logCommentPost(comment_id, handle, id, message);
+			compactJournalIfFull();
+		}
 
 		return comment_id;
 	}
 
+	/**
+	 * Create many accounts in one batch, each as by createAccount(String, String) and in order.
+	 * An account that cannot be created is recorded in the result and does not stop the rest.
+	 * Every item is checked before any account is created, then the accounts are journalled as one record
+	 * @param handles handle of each account
+	 * @param descriptions description of each account, or null for none of them to have a description
+	 * @return the ID of each account, or the exception that stopped it
+	 */
+	public BatchResult createAccounts(String[] handles, String[] descriptions) {
+		checkBatchLength(handles.length, descriptions == null ? handles.length : descriptions.length);
+		BatchResult result = new BatchResult(handles.length);
+
+		// Check every item first, counting handles taken earlier in the batch as existing
+		HashSet<String> batchHandles = new HashSet<>();
+		for (int i = 0; i < handles.length; i++) {
+			if (allAccounts.checkHandleExists(handles[i]) || batchHandles.contains(handles[i])) {
+				result.failed(i, new IllegalHandleException("This handle (" + handles[i] + ") already exists"));
+			} else if (!allAccounts.checkValidHandle(handles[i])) {
+				result.failed(i, new InvalidHandleException("This handle (" + handles[i] + ") is not valid"));
+			} else {
+				batchHandles.add(handles[i]);
+			}
+		}
+		int numCreated = handles.length - result.getNumOfErrors();
+		if (numCreated == 0) {
+			return result;
+		}
+
+		checkJournalWritable();
+		int[] ids = new int[numCreated];
+		String[] createdHandles = new String[numCreated];
+		String[] createdDescriptions = new String[numCreated];
+		int created = 0;
+		beginBatch();
+		try {
+			for (int i = 0; i < handles.length; i++) {
+				if (result.getErrors()[i] != null) {
+					continue;
+				}
+				String description = descriptions == null ? null : descriptions[i];
+				int id = allAccounts.addAccount(new Account(allAccounts.newAccountID(), handles[i], description));
+				result.succeeded(i, id);
+				ids[created] = id;
+				createdHandles[created] = handles[i];
+				createdDescriptions[created] = description;
+				created++;
+			}
+		} finally {
+			endBatch();
+		}
+
+		changes.accountsChanged(ids);
+		if (journal != null) {
+			journal.logCreateAccounts(ids, createdHandles, createdDescriptions);
+			compactJournalIfFull();
+		}
+		return result;
+	}
+
+	/**
+	 * Create many posts in one batch, each as by createPost and in order.
+	 * A post that cannot be created is recorded in the result and does not stop the rest.
+	 * Every item is checked before any post is created, then the posts are journalled as one record
+	 * @param handles handle of the account creating each post
+	 * @param messages message of each post
+	 * @return the ID of each post, or the exception that stopped it
+	 */
+	public BatchResult createPosts(String[] handles, String[] messages) {
+		checkBatchLength(handles.length, messages.length);
+		BatchResult result = new BatchResult(handles.length);
+
+		Account[] authors = new Account[handles.length];
+		for (int i = 0; i < handles.length; i++) {
+			Account acc = allAccounts.getAccountFromHandle(handles[i]);
+			if (acc == null) {
+				result.failed(i, new HandleNotRecognisedException("This handle (" + handles[i] + ") does not exist"));
+			} else if (!allPosts.checkValidMessage(messages[i])) {
+				result.failed(i, new InvalidPostException("This message (" + messages[i] + ") is invalid"));
+			} else {
+				authors[i] = acc;
+			}
+		}
+		int numCreated = handles.length - result.getNumOfErrors();
+		if (numCreated == 0) {
+			return result;
+		}
+
+		checkJournalWritable();
+		int[] ids = new int[numCreated];
+		String[] createdHandles = new String[numCreated];
+		String[] createdMessages = new String[numCreated];
+		int created = 0;
+		beginBatch();
+		try {
+			for (int i = 0; i < handles.length; i++) {
+				if (authors[i] == null) {
+					continue;
+				}
+				int id = addToPlatform(new Post(allPosts.newPostID(), authors[i].getID(), messages[i]));
+				result.succeeded(i, id);
+				ids[created] = id;
+				createdHandles[created] = handles[i];
+				createdMessages[created] = messages[i];
+				created++;
+			}
+		} finally {
+			endBatch();
+		}
+
+		changes.postsChanged(ids);
+		if (journal != null) {
+			journal.logCreatePosts(ids, createdHandles, createdMessages);
+			compactJournalIfFull();
+		}
+		return result;
+	}
+
+	/**
+	 * Create many endorsements in one batch, each as by endorsePost and in order. A post endorsed many
+	 * times in the batch, and its author, only take their new place in the rankings once.
+	 * An endorsement that cannot be created is recorded in the result and does not stop the rest.
+	 * Every item is checked before any endorsement is created, then the endorsements are journalled as one record
+	 * @param handles handle of the account endorsing each post
+	 * @param ids ID of each post being endorsed, which may be a post created earlier in the batch
+	 * @return the ID of each endorsement post, or the exception that stopped it
+	 */
+	public BatchResult endorsePosts(String[] handles, int[] ids) {
+		checkBatchLength(handles.length, ids.length);
+		BatchResult result = new BatchResult(handles.length);
+
+		// Endorsements made earlier in the batch cannot be endorsed, though they do not exist yet
+		int firstBatchID = allPosts.getNextID();
+		Account[] authors = new Account[handles.length];
+		int numCreated = 0;
+		for (int i = 0; i < handles.length; i++) {
+			Account acc = allAccounts.getAccountFromHandle(handles[i]);
+			PostsParent post = allPosts.getPost(ids[i]);
+			if (acc == null) {
+				result.failed(i, new HandleNotRecognisedException("This handle (" + handles[i] + ") does not exist"));
+			} else if (post == null && !createdInBatch(ids[i], firstBatchID, numCreated)) {
+				result.failed(i, new PostIDNotRecognisedException("This post ID (" + ids[i] + ") does not exist"));
+			} else if (post == null || post instanceof Endorsement) {
+				result.failed(i, new NotActionablePostException("This is an endorsement post"));
+			} else {
+				authors[i] = acc;
+				numCreated++;
+			}
+		}
+		if (numCreated == 0) {
+			return result;
+		}
+
+		checkJournalWritable();
+		int[] endorsementIDs = new int[numCreated];
+		String[] createdHandles = new String[numCreated];
+		int[] endorsedIDs = new int[numCreated];
+		int created = 0;
+		beginBatch();
+		try {
+			for (int i = 0; i < handles.length; i++) {
+				if (authors[i] == null) {
+					continue;
+				}
+				int id = addToPlatform(new Endorsement(allPosts.newPostID(), authors[i].getID(), ids[i]));
+				assert id == firstBatchID + created * idStride;
+				result.succeeded(i, id);
+				endorsementIDs[created] = id;
+				createdHandles[created] = handles[i];
+				endorsedIDs[created] = ids[i];
+				created++;
+			}
+		} finally {
+			endBatch();
+		}
+
+		changes.postsChanged(endorsementIDs);
+		if (journal != null) {
+			journal.logEndorsePosts(endorsementIDs, createdHandles, endorsedIDs);
+			compactJournalIfFull();
+		}
+		return result;
+	}
+
+	/**
+	 * Create many comments in one batch, each as by commentPost and in order.
+	 * A comment that cannot be created is recorded in the result and does not stop the rest.
+	 * Every item is checked before any comment is created, then the comments are journalled as one record
+	 * @param handles handle of the account commenting each post
+	 * @param ids ID of each post being commented, which may be a comment created earlier in the batch
+	 * @param messages message of each comment
+	 * @return the ID of each comment post, or the exception that stopped it
+	 */
+	public BatchResult commentPosts(String[] handles, int[] ids, String[] messages) {
+		checkBatchLength(handles.length, ids.length);
+		checkBatchLength(handles.length, messages.length);
+		BatchResult result = new BatchResult(handles.length);
+
+		// Comments made earlier in the batch can be commented on, though they do not exist yet
+		int firstBatchID = allPosts.getNextID();
+		Account[] authors = new Account[handles.length];
+		int numCreated = 0;
+		for (int i = 0; i < handles.length; i++) {
+			Account acc = allAccounts.getAccountFromHandle(handles[i]);
+			PostsParent post = allPosts.getPost(ids[i]);
+			if (acc == null) {
+				result.failed(i, new HandleNotRecognisedException("This handle (" + handles[i] + ") does not exist"));
+			} else if (!allPosts.checkValidMessage(messages[i])) {
+				result.failed(i, new InvalidPostException("This message (" + messages[i] + ") is invalid"));
+			} else if (post == null && !createdInBatch(ids[i], firstBatchID, numCreated)) {
+				result.failed(i, new PostIDNotRecognisedException("This post ID (" + ids[i] + ") does not exist"));
+			} else if (post instanceof Endorsement) {
+				result.failed(i, new NotActionablePostException("This is an endorsement post"));
+			} else {
+				authors[i] = acc;
+				numCreated++;
+			}
+		}
+		if (numCreated == 0) {
+			return result;
+		}
+
+		checkJournalWritable();
+		int[] commentIDs = new int[numCreated];
+		String[] createdHandles = new String[numCreated];
+		int[] commentedIDs = new int[numCreated];
+		String[] createdMessages = new String[numCreated];
+		int created = 0;
+		beginBatch();
+		try {
+			for (int i = 0; i < handles.length; i++) {
+				if (authors[i] == null) {
+					continue;
+				}
+				int id = addToPlatform(new Comment(allPosts.newPostID(), authors[i].getID(), ids[i], messages[i]));
+				assert id == firstBatchID + created * idStride;
+				result.succeeded(i, id);
+				commentIDs[created] = id;
+				createdHandles[created] = handles[i];
+				commentedIDs[created] = ids[i];
+				createdMessages[created] = messages[i];
+				created++;
+			}
+		} finally {
+			endBatch();
+		}
+
+		changes.postsChanged(commentIDs);
+		if (journal != null) {
+			journal.logCommentPosts(commentIDs, createdHandles, commentedIDs, createdMessages);
+			compactJournalIfFull();
+		}
+		return result;
+	}
+
+	/**
+	 * Check whether an ID will be handed out to one of the posts a batch creates before the current item
+	 * @param id ID being checked
+	 * @param firstBatchID ID of the first post the batch creates
+	 * @param numCreated number of posts the batch creates before the current item
+	 * @return boolean value representing if the ID belongs to a post created earlier in the batch
+	 */
+	private boolean createdInBatch(int id, int firstBatchID, int numCreated) {
+		long offset = (long) id - firstBatchID;
+		return offset >= 0 && offset % idStride == 0 && offset / idStride < numCreated;
+	}
+
+	/**
+	 * Check that every array describing a batch has one entry per item
+	 * @param length number of items in the batch
+	 * @param otherLength length of another array of the batch
+	 */
+	private static void checkBatchLength(int length, int otherLength) {
+		if (length != otherLength) {
+			throw new IllegalArgumentException("Every array of a batch needs one entry per item");
+		}
+	}
+
+	/**
+	 * Start a batch, leaving the endorsement rankings to be put in order once it ends.
+	 * Used by the batch methods, and by AsyncSocialMedia around each run of commands
+	 */
+	void beginBatch() {
+		allAccounts.beginBatch();
+		allPosts.beginBatch();
+	}
+
+	/**
+	 * End a batch, putting the endorsement rankings back in order
+	 */
+	void endBatch() {
+		allAccounts.endBatch();
+		allPosts.endBatch();
+	}
+
 	/**
 	 * Removes the given post from the platform, all its endorsements are removed as well and
 	 * all replies are updated by replacing the reference to this post by a generic empty post (GhostPost)
@@ -426,36 +830,19 @@ public class SocialMedia implements SocialMediaPlatform{
 		//is the id of post to delete a valid ID
 		assert id > 0;
 
-		boolean found = false;
-		ArrayList<PostsParent> postsToDelete = new ArrayList<>();
+		// Look for given post in system
+		PostsParent postToDelete = allPosts.getPost(id);
 
-		// Look for given post in system and add it to list of posts to delete
-		for(PostsParent post: allPosts.posts) {
-			if (post.getID() == id) {
-				found = true;
-				postsToDelete.add(post);
-			}
+		if(postToDelete == null) {
+			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
 		}
 
-		if(found) {
-			for(PostsParent post: allPosts.posts) {
-				// Look for any endorsements linked to the post being deleted and add them to
-				// list of posts to be deleted as well
-				if(post instanceof Endorsement && post.getPostID() == id) {
-					postsToDelete.add(post);
-				// Look for comments linking to post and make them orphans by removing the link to
-				// the post id and setting it to -1 instead
-				} else if (post instanceof Comment && post.getPostID() == id) {
-					((Comment) post).setPostID(-1);
-				}
-			}
-		} else  {
-			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
-			}
+		checkJournalWritable();
+		deleteFromPlatform(postToDelete);
 
-		// Remove the given post and endorsements linking to it
-		for(PostsParent post: postsToDelete) {
-			allPosts.removePost(post);
+		if (journal != null) {
+			journal.logDeletePost(id);
+			compactJournalIfFull();
 		}
 	}
 
@@ -471,14 +858,21 @@ public class SocialMedia implements SocialMediaPlatform{
 		//is the id of post to display a valid ID
 		assert id > 0;
 
-		String postInfo = "";
+		PostsParent post = allPosts.getPost(id);
 
-		String accountHandle;
-		String message;
-		int numOfEndorsements;
-		int numOfComments;
+		if(post == null) {
+			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
+		}
 
-		boolean found = false;
+		return formatPost(post);
+	}
+
+	/**
+	 * Builds the string showing a post's details
+	 * @param post the post to be shown.
+	 * @return postInfo - the String that holds the id, handle, no. endorsements & no. comments and message
+	 */
+	private String formatPost(PostsParent post) {
 
 		/* display:
 
@@ -489,65 +883,115 @@ public class SocialMedia implements SocialMediaPlatform{
 
 		 */
 
-		for(PostsParent post: allPosts.posts) {
-			if (post.getID() == id) {
+		String accountHandle = allAccounts.getAccountFromID(post.getAccountID()).getStringHandle();
+		String postInfo = "ID: " + Integer.toString(post.getID()) + "\nAccount: " + accountHandle;
+		postInfo += "\nNo. endorsements: " + Integer.toString(post.getNumOfEndorsements()) + " | No. comments: " + Integer.toString(post.getNumOfComments());
+		postInfo += "\n" + post.getMessage();
+
+		return postInfo;
+	}
+
+	/**
+	 * Writes text to the output with every line indented, matching String.indent: each line
+	 * (split on \n, \r or \r\n) gets the indentation added and ends with \n
+	 * @param out where the text is written
+	 * @param text the text to be written
+	 * @param indent number of spaces added to the start of each line
+	 * @throws IOException if the output cannot be written to
+	 */
+	private static void appendIndented(Appendable out, CharSequence text, int indent) throws IOException {
+		int start = 0;
+		int length = text.length();
+
+		while (start < length) {
+			// Find the end of the current line
+			int end = start;
+			while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+				end++;
+			}
 
-				accountHandle = post.getHandle();
-				message = post.getMessage();
-				numOfComments = allPosts.getNumberOfTypeAssociatedToPost(id, "comment");
-				numOfEndorsements = allPosts.getNumberOfTypeAssociatedToPost(id, "endorsement");
-				postInfo = "ID: " + Integer.toString(id) + "\nAccount: " + accountHandle;
-				postInfo += "\nNo. endorsements: " + Integer.toString(numOfEndorsements) + " | No. comments: " + Integer.toString(numOfComments);
-				postInfo += "\n" + message;
-				found = true;
+			for (int i = 0; i < indent; i += INDENT.length()) {
+				out.append(INDENT, 0, Math.min(INDENT.length(), indent - i));
 			}
-		}
+			out.append(text, start, end);
+			out.append('\n');
 
-		if(!found) {
-			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
+			// Skip the line terminator, treating \r\n as one
+			if (end + 1 < length && text.charAt(end) == '\r' && text.charAt(end + 1) == '\n') {
+				end++;
+			}
+			start = end + 1;
 		}
+	}
 
-		return postInfo;
+	/**
+	 * Writes a post and the arrow leading to it, indented by how far down the tree it is (with root being original post)
+	 * @param out where the post is written
+	 * @param post the post to be written
+	 * @param depth the depth of the post in the tree
+	 * @throws IOException if the output cannot be written to
+	 */
+	private void appendThreadPost(Appendable out, PostsParent post, int depth) throws IOException {
+		if (depth > 0) {
+			appendIndented(out, "|\n| >", (depth - 1) * 4);
+		}
+		appendIndented(out, formatPost(post), depth * 4);
 	}
 
+	/**
+	 * Writes the details of a post and all its children posts, walking the tree depth first without recursion
+	 * @param out where the thread is written
+	 * @param root the post at the top of the thread
+	 * @throws IOException if the output cannot be written to
+	 */
+	private void appendThread(Appendable out, PostsParent root) throws IOException {
+		// Each entry holds the comments still to be written for one post on the current path
+		ArrayDeque<Iterator<Comment>> path = new ArrayDeque<>();
+
+		appendThreadPost(out, root, 0);
+		path.push(allPosts.getComments(root.getID()).iterator());
+
+		while (!path.isEmpty()) {
+			Iterator<Comment> children = path.peek();
+
+			if (!children.hasNext()) {
+				// Every child of this post has been written, so go back up the tree
+				path.pop();
+				continue;
+			}
+
+			// The child sits one level below the post whose children are being written
+			Comment comment = children.next();
+			appendThreadPost(out, comment, path.size());
+			path.push(allPosts.getComments(comment.getID()).iterator());
+		}
+	}
 
 	/**
-	 * Called recursively to build a string displaying the information of each child post of the original post
-	 * @param id id of the post
-	 * @param depth the indentation of the post
-	 * @param display updated display with the post and all its child posts
-	 * @return display updated display with the post and all its child posts
+	 * Finds the post at the top of a thread, checking that it can have children
+	 * @param id of the post to be shown.
+	 * @return the post
 	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
 	 */
-	private String recursion(int id, int depth, String display) throws PostIDNotRecognisedException {
+	private PostsParent getThreadRoot(int id) throws PostIDNotRecognisedException, NotActionablePostException {
 
-		String postInfo = "";
+		//is the id of post to display a valid ID
+		assert id > 0;
 
-		// check the post exists, if it does set the string to postinfo
-		try {
-			postInfo = showIndividualPost(id);
-		} catch (PostIDNotRecognisedException e) {
+		// Check if post matches given id
+		PostsParent post = allPosts.getPost(id);
+
+		if (post == null) {
 			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
 		}
 
-		//tab in the comment/post by how far down the tree it is (With root being original post)
-		String indented = postInfo.indent((depth * 4));
-
-		// indent the display further each time
-		display += indented;
-
-		for(PostsParent post: allPosts.posts) {
-			// Check if the post is a comment and it links to the given id
-			if (post instanceof Comment) {
-				if (post.getPostID() == id) {
-					String arrow = "|\n| >";
-					display += arrow.indent((depth*4));
-					// Repeat the process with each child
-					display = recursion(post.getID(), depth + 1, display);
-				}
-			}
+		// Check if post is an endorsement (not actionable)
+		if (post instanceof Endorsement) {
+			throw new NotActionablePostException("This is an endorsement");
 		}
-		return display;
+
+		return post;
 	}
 
 	/**
@@ -561,35 +1005,166 @@ public class SocialMedia implements SocialMediaPlatform{
 	public StringBuilder showPostChildrenDetails(int id)
 			throws PostIDNotRecognisedException, NotActionablePostException {
 
-		//is the id of post to display a valid ID
-		assert id > 0;
+		PostsParent post = getThreadRoot(id);
 
-		String postInfo = "";
+		StringBuilder stb = new StringBuilder();
 
-		boolean found = false;
-		for(PostsParent post: allPosts.posts) {
-			// Check if post matches given id
-			if (post.getID() == id) {
+		try {
+			appendThread(stb, post);
+		} catch (IOException e) {
+			// A StringBuilder never fails to append
+			throw new UncheckedIOException(e);
+		}
 
-				// Check if post is an endorsement (not actionable)
-				if (post instanceof Endorsement) {
-					throw new NotActionablePostException("This is an endorsement");
-				}
+		return stb;
+	}
+
+	/**
+	 * Writes the details of the current post and all its children posts to the given output,
+	 * in the same format as showPostChildrenDetails(int)
+	 * @param id of the post to be shown.
+	 * @param out where the details are written
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 * @throws IOException if the output cannot be written to
+	 */
+	public void showPostChildrenDetails(int id, Appendable out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException {
 
-				// Begin calling recursively
-				postInfo = recursion(id, 0, "");
+		appendThread(out, getThreadRoot(id));
+	}
 
-				found = true;
-			}
+	/**
+	 * Streams the details of the current post and all its children posts to the given output stream as UTF-8,
+	 * in the same format as showPostChildrenDetails(int). The stream is flushed but not closed
+	 * @param id of the post to be shown.
+	 * @param out where the details are written
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 * @throws IOException if the output cannot be written to
+	 */
+	public void showPostChildrenDetails(int id, OutputStream out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException {
+
+		PostsParent post = getThreadRoot(id);
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		appendThread(writer, post);
+		writer.flush();
+	}
+
+	/**
+	 * Builds one page of the details of the current post and its children posts, in the same format
+	 * as showPostChildrenDetails. Pages are walked in the same order, so joining every page of a thread
+	 * with no depth limit gives the full details
+	 * @param id of the post at the top of the thread.
+	 * @param cursor where the previous page ended, or null for the first page
+	 * @param maxDepth how far down the tree to go, with the top post at depth 0 - deeper posts are skipped
+	 * @param maxPosts the most posts to put on the page
+	 * @return the page, with the cursor for the next page
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in the system
+	 * @throws NotActionablePostException if the ID refers to an endorsement post
+	 */
+	public ThreadPage showPostChildrenPage(int id, ThreadCursor cursor, int maxDepth, int maxPosts)
+			throws PostIDNotRecognisedException, NotActionablePostException {
+
+		if (maxDepth < 0 || maxPosts < 1) {
+			throw new IllegalArgumentException("The depth cannot be negative and a page needs at least one post");
 		}
 
-		if (!found) {
-			throw new PostIDNotRecognisedException("This post ID (" + id + ") does not exist");
+		PostsParent root = getThreadRoot(id);
+
+		if (cursor != null && cursor.getRootID() != id) {
+			throw new IllegalArgumentException("This cursor belongs to the thread of post " + cursor.getRootID());
 		}
 
-		StringBuilder stb = new StringBuilder(postInfo);
+		StringBuilder details = new StringBuilder();
 
-		return stb;
+		// Each entry holds the comments still to be written for one post on the current path, and that post's ID
+		ArrayDeque<Iterator<Comment>> children = new ArrayDeque<>();
+		ArrayDeque<Integer> parents = new ArrayDeque<>();
+
+		int numOfPosts = 0;
+		int lastID;
+		int lastDepth;
+
+		try {
+			if (cursor == null) {
+				appendThreadPost(details, root, 0);
+				numOfPosts++;
+				lastID = id;
+				lastDepth = 0;
+			} else {
+				// Rebuild the path, carrying on after the post that was followed down at each level
+				int[] path = cursor.getPath();
+				for (int i = 0; i < path.length - 1; i++) {
+					parents.push(path[i]);
+					children.push(allPosts.getCommentsAfter(path[i], path[i + 1]).iterator());
+				}
+				lastID = cursor.getLastPostID();
+				lastDepth = path.length - 1;
+			}
+
+			// Go below the last post written, unless it is as deep as the page allows
+			boolean lastOnPath = lastDepth < maxDepth;
+			if (lastOnPath) {
+				parents.push(lastID);
+				children.push(allPosts.getComments(lastID).iterator());
+			}
+
+			while (numOfPosts < maxPosts && !children.isEmpty()) {
+				Iterator<Comment> next = children.peek();
+
+				if (!next.hasNext()) {
+					// Every child of this post has been written, so go back up the tree
+					children.pop();
+					parents.pop();
+					continue;
+				}
+
+				// The child sits one level below the post whose children are being written
+				Comment comment = next.next();
+				lastID = comment.getID();
+				lastDepth = children.size();
+				appendThreadPost(details, comment, lastDepth);
+				numOfPosts++;
+
+				lastOnPath = lastDepth < maxDepth;
+				if (lastOnPath) {
+					parents.push(lastID);
+					children.push(allPosts.getComments(lastID).iterator());
+				}
+			}
+
+			// The thread is finished once no post on the path has children left to write
+			boolean more = false;
+			for (Iterator<Comment> next: children) {
+				if (next.hasNext()) {
+					more = true;
+					break;
+				}
+			}
+
+			if (!more) {
+				return new ThreadPage(details, numOfPosts, null);
+			}
+
+			// The cursor is the path from the top of the thread down to the last post written
+			int[] path = new int[parents.size() + (lastOnPath ? 0 : 1)];
+			int i = 0;
+			for (Iterator<Integer> it = parents.descendingIterator(); it.hasNext(); ) {
+				path[i++] = it.next();
+			}
+			if (!lastOnPath) {
+				path[i] = lastID;
+			}
+
+			return new ThreadPage(details, numOfPosts, new ThreadCursor(path));
+
+		} catch (IOException e) {
+			// A StringBuilder never fails to append
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	/**
@@ -607,7 +1182,7 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public int getTotalOriginalPosts() {
-		return allPosts.getTotalNumber("originalPost");
+		return allPosts.getTotalNumber(PostType.ORIGINAL_POST);
 	}
 
 	/**
@@ -616,7 +1191,7 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public int getTotalEndorsmentPosts() {
-		return allPosts.getTotalNumber("endorsement");
+		return allPosts.getTotalNumber(PostType.ENDORSEMENT);
 	}
 
 	/**
@@ -625,7 +1200,7 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public int getTotalCommentPosts() {
-		return allPosts.getTotalNumber("comment");
+		return allPosts.getTotalNumber(PostType.COMMENT);
 	}
 
 	/**
@@ -634,23 +1209,7 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public int getMostEndorsedPost() {
-
-		int maxVal = -1;
-		int numOfEndorsements;
-		int mostEndorsedPostID = -1;
-
-		for(PostsParent post: allPosts.posts) {
-			// Calculate number of endorsements associated to each post
-			numOfEndorsements = allPosts.getNumberOfTypeAssociatedToPost(post.getID(), "endorsement");
-			// Check post itself is not an endorsement
-			if(!(post instanceof Endorsement) && numOfEndorsements > maxVal) {
-				// If the post is more endorsed than the current most endorsed then set it as the new most endorsed
-				maxVal = numOfEndorsements;
-				mostEndorsedPostID = post.getID();
-			}
-		}
-
-		return mostEndorsedPostID;
+		return allPosts.getMostEndorsedPost();
 	}
 
 	/**
@@ -659,51 +1218,57 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public int getMostEndorsedAccount() {
+		return allAccounts.getMostEndorsedAccount();
+	}
 
-		// make a 2d array of account ids and their corresponding number of endorsements
-		int listLength = allAccounts.getNumOfAccounts();
-		int [][] accountEndorsements = new int[listLength][2];
-
-		for(int i = 0; i < listLength; i++) {
-			Account account = allAccounts.accounts.get(i);
-			int accountID = account.getID();
-			accountEndorsements[i][0] = accountID;
-			// Initialise each account's endorsement number to 0
-			accountEndorsements[i][1] = 0;
-		}
-
-		for(PostsParent post: allPosts.posts) {
-			// Check post is not an endorsement as they cannot be endorsed
-			if(!(post instanceof Endorsement)) {
-				int numOfEndorsements = allPosts.getNumberOfTypeAssociatedToPost(post.getID(), "endorsement");
-				String accountHandle = post.getHandle();
-				int accountID = allAccounts.getIDFromHandle(accountHandle);
-
-				for(int i = 0; i < listLength; i++) {
-					int IDnum = accountEndorsements[i][0];
-					// Check for the correct account id in the table
-					if (IDnum == accountID){
-						// Add the number of endorsements to the correct account in the table
-						accountEndorsements[i][1] = accountEndorsements[i][1] + numOfEndorsements;
-					}
-				}
-			}
-		}
+	/**
+	 * Identifies and returns the k accounts with the highest number of endorsements
+	 * @param k maximum number of accounts to return
+	 * @return ids of up to k accounts, most endorsed first
+	 */
+	public int[] getMostEndorsedAccounts(int k) {
+		return allAccounts.getMostEndorsedAccounts(k);
+	}
 
-		// iterate through again and find max amount of endorsements
-		int maxVal = -1;
-		int mostEndorsedAccountID = -1;
+	/**
+	 * Identifies and returns the k posts with the highest number of endorsements
+	 * @param k maximum number of posts to return
+	 * @return ids of up to k posts, most endorsed first
+	 */
+	public int[] getMostEndorsedPosts(int k) {
+		return allPosts.getMostEndorsedPosts(k);
+	}
 
-		for(int i = 0; i < listLength; i++) {
-			int numOfEndorsements = accountEndorsements[i][1];
-			if(numOfEndorsements > maxVal) {
-				maxVal = numOfEndorsements;
-				// If the account is more endorsed than the current most endorsed then set it as the new most endorsed
-				mostEndorsedAccountID = accountEndorsements[i][0];
-			}
+	/**
+	 * Opens a read-only view of the platform as it is now, which gives the same answers however the platform
+	 * changes afterwards. Only the accounts and posts changed since the last view or save are copied, see
+	 * PlatformImageCache; the counts and rankings are worked out by the view when it is first queried, which
+	 * reads every account and post. Views are shared until the platform changes
+	 * @return view of the current version of the platform
+	 */
+	public PlatformView openView() {
+		PlatformView current = view;
+		if (current == null || current.getVersion() != changes.getVersion()) {
+			current = new PlatformView(captureImage(), changes.getVersion());
+			view = current;
 		}
+		return current;
+	}
 
-		return mostEndorsedAccountID;
+	/**
+	 * Get the accounts of this platform, for ShardedSocialMedia to combine the counts of its shards
+	 * @return accounts of the platform
+	 */
+	AccountCollection getAccountCollection() {
+		return allAccounts;
+	}
+
+	/**
+	 * Get the posts of this platform, for ShardedSocialMedia to combine the counts of its shards
+	 * @return posts of the platform
+	 */
+	PostCollection getPostCollection() {
+		return allPosts;
 	}
 
 	/**
@@ -711,39 +1276,153 @@ public class SocialMedia implements SocialMediaPlatform{
 	 */
 	@Override
 	public void erasePlatform() {
-		//erase the lists of accounts and posts
-		allAccounts.accounts = new ArrayList<>();
-		allPosts.posts = new ArrayList<>();
+		checkJournalWritable();
+		clearPlatform();
+		changes.erase();
 
-		//reset the nextID counter to 1
-		Account.resetNextID();
-		PostsParent.resetNextID();
+		if (journal != null) {
+			journal.logErase();
+			compactJournalIfFull();
+		}
 	}
 
 	/**
-	 * Saves this SocialMediaPlatform’s contents into a serialised file, with the filename given in the argument
+	 * Empties this SocialMediaPlatform of its contents and resets all internal counters, without journalling it
+	 */
+	private void clearPlatform() {
+		//erase the lists of accounts and posts, which start handing out IDs from the first one again
+		allAccounts = new AccountCollection(firstID, idStride);
+		allPosts = new PostCollection(firstID, idStride);
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform’s contents into a snapshot file, with the filename given in the argument
 	 * @param filename location of the file to be saved
 	 * @throws IOException if there is a problem experienced when trying to save the store contents to the file
 	 */
 	@Override
 	public void savePlatform(String filename) throws IOException {
 
-		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
-			out.writeObject(allAccounts); //saving list of accounts
-			out.writeInt(Account.getNextID()); //saving nextID of accounts
-			out.writeObject(allPosts); //saving list of posts
-			out.writeInt(PostsParent.getNextID()); //saving nextID of posts
+		long saveID;
+		try {
+			saveID = PlatformSnapshot.save(filename, captureImage());
+		} catch (IOException e) {
+			throw new IOException("Error when saving Platform", e);
+		}
+		changes.checkpoint(saveID);
+	}
+
+	/**
+	 * Saves the accounts and posts created, changed or removed since the last checkpoint into a delta snapshot
+	 * file. Saving or loading the platform with savePlatform, savePlatformDelta, loadPlatform or mapPlatform is
+	 * a checkpoint, and the delta can be loaded by passing it to loadPlatform after the file saved or loaded then.
+	 * The delta records which file that was, so loadPlatform refuses to apply it after any other
+	 * @param filename location of the file to be saved
+	 * @throws IOException if there is a problem experienced when trying to save the changes to the file
+	 */
+	public void savePlatformDelta(String filename) throws IOException {
 
-			out.close();
+		long saveID;
+		try {
+			saveID = PlatformSnapshot.saveDelta(filename, PlatformImage.captureChanges(allAccounts, allPosts, changes,
+					allAccounts.getNextID(), allPosts.getNextID(), journal == null ? 0 : journal.getSequence()));
 		} catch (IOException e) {
-			System.out.println(e.getMessage());
-			throw new IOException("Error when saving Platform");
+			throw new IOException("Error when saving Platform", e);
+		}
+		changes.checkpoint(saveID);
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform’s contents into a snapshot file on a background thread. The contents are
+	 * captured before this returns, so changes made while the file is being written are not saved in it.
+	 * As the save may still fail, it is not a checkpoint for savePlatformDelta
+	 * @param filename location of the file to be saved
+	 * @return future completed once the file is saved, or completed with an IOException if it could not be saved
+	 */
+	public CompletableFuture<Void> savePlatformInBackground(String filename) {
+		PlatformImage image = captureImage();
+
+		return writeInBackground(() -> {
+			try {
+				PlatformSnapshot.save(filename, image);
+			} catch (IOException e) {
+				throw new IOException("Error when saving Platform", e);
+			}
+		});
+	}
+
+	/**
+	 * Captures a point-in-time image of this SocialMediaPlatform’s contents, copying only the accounts and
+	 * posts changed since the last capture. Synchronized, as ConcurrentSocialMedia opens views from several
+	 * readers at once
+	 * @return the image
+	 */
+	private synchronized PlatformImage captureImage() {
+		if (imageCache == null) {
+			imageCache = new PlatformImageCache();
 		}
+		return imageCache.capture(allAccounts, allPosts, changes, allAccounts.getNextID(), allPosts.getNextID(),
+				journal == null ? 0 : journal.getSequence());
 	}
 
 	/**
-	 * Loads and replaces this SocialMediaPlatform’s contents with the serialised contents stored
-	 * in the file given in the argument
+	 * Runs a write on the background snapshot thread
+	 * @param write the write to run
+	 * @return future completed once the write has finished, or completed with the IOException it threw
+	 */
+	private CompletableFuture<Void> writeInBackground(SnapshotWrite write) {
+		if (snapshotWriter == null) {
+			// The thread stops when there is nothing to write, so an unused platform does not keep it
+			snapshotWriter = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+				Thread thread = new Thread(task, "platform-snapshot");
+				thread.setDaemon(true);
+				return thread;
+			});
+			snapshotWriter.allowCoreThreadTimeOut(true);
+		}
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		snapshotWriter.execute(() -> {
+			try {
+				write.run();
+				future.complete(null);
+			} catch (IOException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Waits for a background write to finish
+	 * @param future future of the write
+	 * @throws IOException if the write failed, or the wait was interrupted
+	 */
+	private static void await(CompletableFuture<Void> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a snapshot to be saved");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * A write run on the background snapshot thread
+	 */
+	private interface SnapshotWrite {
+		void run() throws IOException;
+	}
+
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with the contents stored in the file given
+	 * in the argument. Both snapshot files and files saved with Java serialisation by the first version of
+	 * savePlatform can be loaded
 	 * @param filename location of the file to be loaded
 	 * @throws IOException if there is a problem experienced when trying to save the store contents to the file
 	 * @throws ClassNotFoundException if required class files cannot be found when loading
@@ -751,38 +1430,289 @@ public class SocialMedia implements SocialMediaPlatform{
 	@Override
 	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
 
-		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
-			erasePlatform();
-			//account list
-			Object obj = in.readObject();
-			if (obj instanceof AccountCollection) {
-				allAccounts = (AccountCollection) obj;
+		PlatformSnapshot snapshot;
+
+		try {
+			if (!PlatformSnapshot.isSnapshot(filename)) {
+				loadSerialisedPlatform(filename);
+				compactLoadedPlatform();
+				return;
 			}
+			snapshot = PlatformSnapshot.load(filename);
+		} catch (IOException e) {
+			throw new IOException("Error when loading Platform", e);
+		}
 
-			//resetting account nextValue counter
-			int nextValue = in.readInt();
+		loadSnapshot(snapshot);
+		compactLoadedPlatform();
+	}
 
-			Account.setNextID(nextValue);
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with a snapshot file and the delta snapshot files
+	 * saved after it, which are applied in the order given
+	 * @param filename location of the snapshot file to be loaded
+	 * @param deltaFilenames locations of the delta snapshot files to be applied, oldest first
+	 * @throws IOException if there is a problem experienced when trying to load the files, one is not a
+	 * snapshot of the right kind, or a delta was not saved after the file before it
+	 */
+	public void loadPlatform(String filename, String... deltaFilenames) throws IOException {
+
+		PlatformSnapshot snapshot;
+
+		try {
+			snapshot = PlatformSnapshot.load(filename);
+			for (String deltaFilename: deltaFilenames) {
+				snapshot = snapshot.apply(PlatformSnapshot.loadDelta(deltaFilename));
+			}
+		} catch (IOException e) {
+			throw new IOException("Error when loading Platform", e);
+		}
 
+		loadSnapshot(snapshot);
+		compactLoadedPlatform();
+	}
+
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with the snapshot file given in the argument,
+	 * by memory-mapping the file. Accounts, posts and the links between them are loaded straight away,
+	 * but post and comment messages are only decoded from the file when they are first read
+	 * @param filename location of the snapshot file to be loaded
+	 * @throws IOException if there is a problem experienced when trying to map the file, or it is not a snapshot file
+	 */
+	public void mapPlatform(String filename) throws IOException {
+
+		PlatformSnapshot snapshot;
+
+		try {
+			snapshot = PlatformSnapshot.map(filename);
+		} catch (IOException e) {
+			throw new IOException("Error when loading Platform", e);
+		}
 
-			//post list
-			obj = in.readObject();
-			if (obj instanceof PostCollection) {
+		loadSnapshot(snapshot);
+		compactLoadedPlatform();
+	}
 
-				allPosts = (PostCollection) obj;
+	/**
+	 * Replaces this SocialMediaPlatform’s contents with the contents of a snapshot. The contents are only
+	 * replaced once the whole snapshot has been added to new collections
+	 * @param snapshot the loaded snapshot
+	 * @throws IOException if the snapshot cannot be added, in which case the contents are left as they were
+	 */
+	private void loadSnapshot(PlatformSnapshot snapshot) throws IOException {
+		AccountCollection oldAccounts = allAccounts;
+		PostCollection oldPosts = allPosts;
+		clearPlatform();
 
+		// Add everything back in order of creation, so every post comes after the post it points to
+		try {
+			for (Account acc: snapshot.getAccounts()) {
+				allAccounts.addAccount(acc);
+			}
+			for (PostsParent post: snapshot.getPosts()) {
+				addToPlatform(post);
 			}
+		} catch (RuntimeException e) {
+			allAccounts = oldAccounts;
+			allPosts = oldPosts;
+			throw new IOException("Error when loading Platform", e);
+		}
+
+		//resetting nextValue counters
+		allAccounts.setNextID(snapshot.getNextAccountID());
+		allPosts.setNextID(snapshot.getNextPostID());
 
-			//resetting postsParent nextValue counter
-			nextValue = in.readInt();
+		// Replaced rather than changed, so the next image is captured afresh
+		changes.erase();
+		changes.checkpoint(snapshot.getSaveID());
+	}
 
-			PostsParent.setNextID(nextValue);
+	/**
+	 * Loads and replaces this SocialMediaPlatform’s contents with the contents of a file saved by the
+	 * first version of savePlatform, which serialised the platform’s collections. See SerialisedPlatform
+	 * @param filename location of the file to be loaded
+	 * @throws IOException if there is a problem experienced when trying to load the file, or it is not a
+	 * serialised platform
+	 * @throws ClassNotFoundException if the file holds a class that is not part of a serialised platform
+	 */
+	private void loadSerialisedPlatform(String filename) throws IOException, ClassNotFoundException {
+		loadSnapshot(SerialisedPlatform.read(filename));
+	}
 
+	/**
+	 * Starts journalling every change made to this SocialMediaPlatform, syncing the journal every 10 ms
+	 * and compacting it once it grows past 64 MiB. See openJournal(String, String, long, long)
+	 * @param snapshotFilename location of the snapshot the journal is compacted into
+	 * @param journalFilename location of the journal file
+	 * @throws IOException if the snapshot or journal cannot be read, or the journal does not match the snapshot
+	 */
+	public void openJournal(String snapshotFilename, String journalFilename) throws IOException {
+		openJournal(snapshotFilename, journalFilename, 10, 64L << 20);
+	}
+
+	/**
+	 * Replaces this SocialMediaPlatform's contents with the snapshot given in the argument (or with nothing,
+	 * if it does not exist yet), replays the journal on top of it, then starts journalling every change made.
+	 * Changes are written and synced to the journal in batches by a background thread, see syncJournal()
+	 * If a batch cannot be written the platform becomes read only: every change tried after it throws an
+	 * UncheckedIOException without changing anything, and syncJournal throws the failure, until the journal
+	 * is closed
+	 * @param snapshotFilename location of the snapshot the journal is compacted into
+	 * @param journalFilename location of the journal file, which is created if it does not exist
+	 * @param syncIntervalMillis time to let changes build up before each batch is written and synced
+	 * @param compactionThreshold size in bytes after which the journal is compacted into the snapshot
+	 * @throws IOException if the snapshot or journal cannot be read, or the journal does not match the snapshot
+	 */
+	public void openJournal(String snapshotFilename, String journalFilename, long syncIntervalMillis,
+			long compactionThreshold) throws IOException {
+
+		if (journal != null) {
+			throw new IllegalStateException("A journal is already open");
+		}
+
+		long snapshotSequence = 0;
+		if (new File(snapshotFilename).exists()) {
+			PlatformSnapshot snapshot;
+			try {
+				snapshot = PlatformSnapshot.load(snapshotFilename);
+			} catch (IOException e) {
+				throw new IOException("Error when loading Platform", e);
+			}
+			loadSnapshot(snapshot);
+			snapshotSequence = snapshot.getJournalSequence();
+		} else {
+			clearPlatform();
+			changes.erase();
+		}
+
+		PlatformJournal opened = new PlatformJournal(journalFilename, snapshotFilename, syncIntervalMillis,
+				compactionThreshold);
+		try {
+			opened.replay(this, snapshotSequence);
+		} catch (IOException e) {
+			opened.close();
+			throw e;
+		}
+
+		journal = opened;
+	}
+
+	/**
+	 * Waits until every change made so far has been synced to the journal
+	 * @throws IOException if the journal could not be written, now or in an earlier batch
+	 */
+	public void syncJournal() throws IOException {
+		PlatformJournal syncing = journal;
+		if (syncing == null) {
+			throw new IllegalStateException("No journal is open");
+		}
+		syncing.sync();
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform's contents into the journal's snapshot, then drops the records
+	 * it contains from the journal
+	 * @throws IOException if the snapshot cannot be saved or the journal cannot be rewritten
+	 */
+	public void compactJournal() throws IOException {
+		await(compactJournalInBackground());
+	}
+
+	/**
+	 * Saves this SocialMediaPlatform's contents into the journal's snapshot on a background thread, then drops
+	 * the records it contains from the journal. Changes made meanwhile are kept in the journal
+	 * @return future completed once the journal is compacted, or completed with an IOException if it could not be
+	 */
+	public CompletableFuture<Void> compactJournalInBackground() {
+		if (journal == null) {
+			throw new IllegalStateException("No journal is open");
+		}
+
+		PlatformJournal compacting = journal;
+		PlatformImage image = captureImage();
+		long mark = compacting.mark();
+
+		// save returns once the snapshot and its move are synced, so the records are only dropped once they
+		// would survive a crash. A crash before they are dropped is safe, as replay skips the records in the snapshot.
+		// Compactions run one at a time on the snapshot thread, in the order they were started, and the mark stays
+		// valid while an earlier one rewrites the journal
+		compaction = writeInBackground(() -> {
+			PlatformSnapshot.save(compacting.getSnapshotFilename(), image);
+			compacting.discardBefore(mark);
+		});
+		return compaction;
+	}
+
+	/**
+	 * Writes and syncs the rest of the journal, then stops journalling changes. Waits for a compaction
+	 * still being saved to finish first. The journal is closed even if that compaction failed, in which
+	 * case its records are all still in the journal
+	 * @throws IOException if the journal could not be written, or the last compaction failed
+	 */
+	public void closeJournal() throws IOException {
+		if (journal == null) {
+			return;
+		}
+		PlatformJournal closing = journal;
+		journal = null;
+
+		IOException failure = null;
+		if (compaction != null) {
+			try {
+				await(compaction);
+			} catch (IOException e) {
+				failure = e;
+			}
+			compaction = null;
+		}
+
+		try {
+			closing.close();
 		} catch (IOException e) {
-			throw new IOException("Error when loading Platform");
-		} catch (ClassNotFoundException e) {
-			throw new ClassNotFoundException("Couldn't find class saved in platform structure");
+			if (failure != null) {
+				e.addSuppressed(failure);
+			}
+			throw e;
+		}
+		if (failure != null) {
+			throw failure;
 		}
+	}
+
+	/**
+	 * Refuses a change before anything is changed if the journal has failed, as the change could not be
+	 * journalled. Should the journal fail between this check and the change's record, that one change is
+	 * made but not journalled, and its call throws the UncheckedIOException instead
+	 * @throws UncheckedIOException if the journal has failed
+	 */
+	private void checkJournalWritable() {
+		PlatformJournal journalling = journal;
+		if (journalling != null) {
+			journalling.checkWritable();
+		}
+	}
+
+	/**
+	 * Starts compacting the journal in the background once it has grown past its threshold, unless a
+	 * compaction is already being saved. A failed compaction leaves the journal as it is and stops any more
+	 * being started here, as each one captures the whole platform, until compactJournal is called or the
+	 * journal is reopened. If the last one failed closeJournal throws its failure
+	 */
+	private void compactJournalIfFull() {
+		if (journal.needsCompaction() && (compaction == null
+				|| (compaction.isDone() && !compaction.isCompletedExceptionally()))) {
+			compactJournalInBackground();
+		}
+	}
 
+	/**
+	 * Compacts the journal after this SocialMediaPlatform's contents were replaced by loading a file,
+	 * as the journal's records no longer apply to them
+	 * @throws IOException if the snapshot cannot be saved or the journal cannot be emptied
+	 */
+	private void compactLoadedPlatform() throws IOException {
+		if (journal != null) {
+			compactJournal();
+		}
 	}
 }
\ No newline at end of file
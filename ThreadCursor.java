@@ -0,0 +1,74 @@
+package socialmedia;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * ThreadCursor marks where a page of a post's thread ended, so the next page can carry on from there.
+ * It holds the IDs of the posts on the path from the top of the thread down to the last post shown,
+ * so it stays usable if posts are added or deleted between pages
+ */
+public class ThreadCursor implements Serializable {
+	private final int[] path;
+
+	/**
+	 * Constructor for cursor
+	 * @param path IDs of the posts from the top of the thread to the last post shown
+	 */
+	public ThreadCursor(int[] path) {
+		if (path.length == 0) {
+			throw new IllegalArgumentException("A cursor needs at least the post at the top of the thread");
+		}
+		this.path = path.clone();
+	}
+
+	/**
+	 * Returns the ID of the post at the top of the thread
+	 * @return post id
+	 */
+	public int getRootID() {
+		return path[0];
+	}
+
+	/**
+	 * Returns the ID of the last post shown
+	 * @return post id
+	 */
+	public int getLastPostID() {
+		return path[path.length - 1];
+	}
+
+	/**
+	 * Returns the IDs of the posts from the top of the thread to the last post shown
+	 * @return post ids
+	 */
+	public int[] getPath() {
+		return path.clone();
+	}
+
+	/**
+	 * Returns the path as post IDs separated by '/'
+	 * @return string of the path
+	 */
+	@Override
+	public String toString() {
+		StringBuilder stb = new StringBuilder();
+		for (int i = 0; i < path.length; i++) {
+			if (i > 0) {
+				stb.append('/');
+			}
+			stb.append(path[i]);
+		}
+		return stb.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ThreadCursor && Arrays.equals(path, ((ThreadCursor) obj).path);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(path);
+	}
+}
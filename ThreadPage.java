@@ -0,0 +1,55 @@
+package socialmedia;
+
+/**
+ * ThreadPage is one page of a post's thread: the details of up to a set number of posts, in the
+ * same format as showPostChildrenDetails, and the cursor for the next page
+ */
+public class ThreadPage {
+	private final StringBuilder details;
+	private final int numOfPosts;
+	private final ThreadCursor nextCursor;
+
+	/**
+	 * Constructor for page
+	 * @param details the formatted details of the posts on this page
+	 * @param numOfPosts the number of posts on this page
+	 * @param nextCursor where the next page starts, or null if this is the last page
+	 */
+	public ThreadPage(StringBuilder details, int numOfPosts, ThreadCursor nextCursor) {
+		this.details = details;
+		this.numOfPosts = numOfPosts;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Returns the formatted details of the posts on this page
+	 * @return details
+	 */
+	public StringBuilder getDetails() {
+		return details;
+	}
+
+	/**
+	 * Returns the number of posts on this page
+	 * @return number of posts
+	 */
+	public int getNumOfPosts() {
+		return numOfPosts;
+	}
+
+	/**
+	 * Returns the cursor to pass in to get the next page
+	 * @return cursor, or null if this is the last page
+	 */
+	public ThreadCursor getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * Returns whether there are more posts after this page
+	 * @return boolean value representing if there is a next page
+	 */
+	public boolean hasNextPage() {
+		return nextCursor != null;
+	}
+}
@@ -0,0 +1,39 @@
+package socialmedia.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain runs every platform benchmark with the GC profiler, so each result comes with the
+ * allocation rate and the time spent collecting garbage.
+ * <p>
+ * Any of JMH's own command line options can be given, for example {@code -p posts=1000,100000} to run
+ * only some of the dataset sizes, or a regular expression to run only some of the benchmarks. The
+ * largest size needs a machine with at least 8GB of memory to spare.
+ */
+public class BenchmarkMain {
+
+	/**
+	 * Run the benchmarks
+	 * @param args JMH command line options
+	 * @throws CommandLineOptionException if the options could not be read
+	 * @throws RunnerException if a benchmark could not be run
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine);
+		if (commandLine.getIncludes().isEmpty()) {
+			builder.include(BenchmarkMain.class.getPackageName() + "\\..*");
+		}
+		Options options = builder.addProfiler(GCProfiler.class).build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,114 @@
+package socialmedia.benchmark;
+
+/**
+ * LatencyHistogram counts latencies in buckets that are exact below 128ns and under 1% wide above,
+ * so percentiles can be read off millions of calls without keeping each one.
+ * <p>
+ * A histogram is filled by one thread; the histograms of several threads are combined with add.
+ */
+public class LatencyHistogram {
+	// latencies below 2^SUB_BITS nanoseconds get a bucket each, above that each power of two is split in 2^SUB_BITS
+	private static final int SUB_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	/**
+	 * Get the bucket a latency is counted in
+	 * @param nanos latency, 0 or more
+	 * @return index of the bucket
+	 */
+	private static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) (nanos >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Get the lowest latency counted in a bucket
+	 * @param bucket index of the bucket
+	 * @return latency in nanoseconds
+	 */
+	private static long lowestOf(int bucket) {
+		int group = bucket >>> SUB_BITS;
+		if (group == 0) {
+			return bucket;
+		}
+		return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (group - 1);
+	}
+
+	/**
+	 * Count a latency
+	 * @param nanos latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		counts[bucketOf(nanos)]++;
+		count++;
+		total += nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/**
+	 * Add another histogram's latencies to this one
+	 * @param other histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Get the number of latencies counted
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the mean latency
+	 * @return mean in nanoseconds, or 0 if none were counted
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * Get the highest latency counted
+	 * @return latency in nanoseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the latency a given share of calls took no longer than, to within a bucket
+	 * @param percentile share of calls between 0 and 100
+	 * @return latency in nanoseconds, or 0 if none were counted
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// The top bucket holds the max, which is known exactly
+				return Math.min(lowestOf(i), max);
+			}
+		}
+		return max;
+	}
+}
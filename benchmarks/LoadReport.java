@@ -0,0 +1,106 @@
+package socialmedia.benchmark;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * LoadReport is the outcome of one load test run: throughput, latency percentiles and errors of each
+ * operation, and how the heap grew over the run
+ */
+public class LoadReport {
+	private final String mixName;
+	private final int threads;
+	private final double seconds;
+	private final EnumMap<Operation, LatencyHistogram> latencies;
+	private final EnumMap<Operation, Long> errors;
+
+	private final long heapBefore;
+	private final long heapAfter;
+	private final long heapPeak;
+
+	/**
+	 * Constructor for a report, see LoadTest.run
+	 * @param mixName name of the mix that was run
+	 * @param threads number of workers
+	 * @param seconds length of the measured part of the run
+	 * @param latencies latencies of each operation made
+	 * @param errors number of calls of each operation that threw
+	 * @param heapBefore heap in use after a collection, before the run
+	 * @param heapAfter heap in use after a collection, after the run
+	 * @param heapPeak most heap in use while the run was measured
+	 */
+	LoadReport(String mixName, int threads, double seconds, EnumMap<Operation, LatencyHistogram> latencies,
+			EnumMap<Operation, Long> errors, long heapBefore, long heapAfter, long heapPeak) {
+		this.mixName = mixName;
+		this.threads = threads;
+		this.seconds = seconds;
+		this.latencies = latencies;
+		this.errors = errors;
+		this.heapBefore = heapBefore;
+		this.heapAfter = heapAfter;
+		this.heapPeak = heapPeak;
+	}
+
+	/**
+	 * Get the latencies of an operation
+	 * @param operation operation
+	 * @return latencies, empty if the operation was not made
+	 */
+	public LatencyHistogram getLatencies(Operation operation) {
+		return latencies.getOrDefault(operation, new LatencyHistogram());
+	}
+
+	/**
+	 * Get the number of calls of an operation that threw
+	 * @param operation operation
+	 * @return number of errors
+	 */
+	public long getErrors(Operation operation) {
+		return errors.getOrDefault(operation, 0L);
+	}
+
+	/**
+	 * Get the calls made per second, of every operation together
+	 * @return throughput
+	 */
+	public double getThroughput() {
+		long calls = 0;
+		for (LatencyHistogram histogram: latencies.values()) {
+			calls += histogram.getCount();
+		}
+		return calls / seconds;
+	}
+
+	/**
+	 * Get how much more heap was in use after the run than before it, once garbage was collected
+	 * @return growth in bytes
+	 */
+	public long getHeapGrowth() {
+		return heapAfter - heapBefore;
+	}
+
+	/**
+	 * Lays the report out as a table, one row per operation, with latencies in microseconds
+	 * @return the report
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("mix %s: %d threads, %.1f s, %.0f ops/s%n", mixName, threads, seconds,
+				getThroughput()));
+		report.append(String.format("%-16s %10s %10s %9s %9s %9s %9s %9s %7s%n", "operation", "calls", "ops/s",
+				"mean us", "p50 us", "p99 us", "p99.9 us", "max us", "errors"));
+
+		for (Map.Entry<Operation, LatencyHistogram> entry: latencies.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			report.append(String.format("%-16s %10d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %7d%n",
+					entry.getKey(), histogram.getCount(), histogram.getCount() / seconds, histogram.getMean() / 1e3,
+					histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+					histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3, getErrors(entry.getKey())));
+		}
+
+		report.append(String.format("heap: %.1f MB before, %.1f MB after (%+.1f MB), %.1f MB peak%n",
+				heapBefore / 1e6, heapAfter / 1e6, getHeapGrowth() / 1e6, heapPeak / 1e6));
+		return report.toString();
+	}
+}
@@ -0,0 +1,344 @@
+package socialmedia.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Random;
+
+import socialmedia.BatchResult;
+import socialmedia.ConcurrentSocialMedia;
+
+/**
+ * LoadTest replays synthetic traffic against a platform from several threads at once and reports how
+ * it held up.
+ * <p>
+ * Each run fills a new ConcurrentSocialMedia with the same seeded accounts and posts, then starts one
+ * worker per thread. Workers run a closed loop: each makes its next call as soon as its last one returns,
+ * so the load is as high as the platform allows. Calls are picked by each worker's WorkloadGenerator,
+ * and saves, if the mix has them, are made by a separate thread at a fixed interval. Nothing is measured
+ * during the warmup; after it, the latency of every call is counted and the heap sampled, until the run ends.
+ */
+public class LoadTest {
+	private final int threads;
+	private final long seed;
+	private final int numOfAccounts;
+	private final int numOfPosts;
+
+	// items per batch call while filling the platform
+	private static final int CHUNK = 10_000;
+	private static final long HEAP_SAMPLE_MILLIS = 100;
+
+	// set by the coordinating thread, read by workers on every call
+	private volatile boolean running;
+	private volatile boolean measuring;
+
+	/**
+	 * Constructor for a load test
+	 * @param threads number of workers
+	 * @param seed seed the platform and every worker's traffic are generated from
+	 * @param numOfAccounts accounts the platform is filled with before each run
+	 * @param numOfPosts original posts the platform is filled with before each run
+	 * @throws IllegalArgumentException if any of the numbers is less than 1
+	 */
+	public LoadTest(int threads, long seed, int numOfAccounts, int numOfPosts) {
+		if (threads < 1 || numOfAccounts < 1 || numOfPosts < 1) {
+			throw new IllegalArgumentException("A load test needs at least one thread, account and post");
+		}
+		this.threads = threads;
+		this.seed = seed;
+		this.numOfAccounts = numOfAccounts;
+		this.numOfPosts = numOfPosts;
+	}
+
+	/**
+	 * One worker's calls, counted by operation
+	 */
+	private static class Tally {
+		final EnumMap<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+		final EnumMap<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+		/**
+		 * Count a call
+		 * @param operation operation called
+		 * @param nanos how long the call took
+		 * @param failed whether the call threw
+		 */
+		void record(Operation operation, long nanos, boolean failed) {
+			latencies.computeIfAbsent(operation, o -> new LatencyHistogram()).record(nanos);
+			if (failed) {
+				errors.merge(operation, 1L, Long::sum);
+			}
+		}
+
+		/**
+		 * Add another worker's calls to these
+		 * @param other calls to add
+		 */
+		void add(Tally other) {
+			for (Operation operation: other.latencies.keySet()) {
+				latencies.computeIfAbsent(operation, o -> new LatencyHistogram()).add(other.latencies.get(operation));
+			}
+			other.errors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+		}
+	}
+
+	/**
+	 * Run a mix against a newly filled platform
+	 * @param mix traffic to send
+	 * @param warmupMillis time to send traffic before measuring
+	 * @param measureMillis time to measure for
+	 * @return report of the measured part of the run
+	 * @throws IOException if the file saves are written to could not be created
+	 * @throws InterruptedException if the thread is interrupted while waiting for the run
+	 */
+	public LoadReport run(WorkloadMix mix, long warmupMillis, long measureMillis)
+			throws IOException, InterruptedException {
+		ConcurrentSocialMedia platform = new ConcurrentSocialMedia();
+		String[] handles = new String[numOfAccounts];
+		int[] popularIDs = fill(platform, handles);
+
+		Path saveFile = Files.createTempFile("load-test", ".snapshot");
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long heapBefore = usedHeapAfterGC(memory);
+
+		Tally[] tallies = new Tally[threads + 1];
+		ArrayList<Thread> workers = new ArrayList<>();
+		running = true;
+		measuring = false;
+
+		for (int i = 0; i < threads; i++) {
+			Tally tally = tallies[i] = new Tally();
+			WorkloadGenerator generator = new WorkloadGenerator(mix, seed, i, handles, popularIDs);
+			workers.add(new Thread(() -> work(platform, generator, tally), "load-worker-" + i));
+		}
+		if (mix.getSaveIntervalMillis() > 0) {
+			Tally tally = tallies[threads] = new Tally();
+			workers.add(new Thread(() -> save(platform, saveFile, mix.getSaveIntervalMillis(), tally), "load-saver"));
+		}
+		for (Thread worker: workers) {
+			worker.start();
+		}
+
+		long heapPeak = 0;
+		try {
+			Thread.sleep(warmupMillis);
+			measuring = true;
+			long start = System.nanoTime();
+			long end = start + measureMillis * 1_000_000;
+
+			while (System.nanoTime() < end) {
+				heapPeak = Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed());
+				Thread.sleep(Math.max(1, Math.min(HEAP_SAMPLE_MILLIS, (end - System.nanoTime()) / 1_000_000)));
+			}
+			measuring = false;
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			running = false;
+			for (Thread worker: workers) {
+				worker.join();
+			}
+
+			Tally total = new Tally();
+			for (Tally tally: tallies) {
+				if (tally != null) {
+					total.add(tally);
+				}
+			}
+			long heapAfter = usedHeapAfterGC(memory);
+			// Kept reachable until the heap is measured, so its growth counts
+			platform.getNumberOfAccounts();
+
+			return new LoadReport(mix.getName(), threads, seconds, total.latencies, total.errors, heapBefore,
+					heapAfter, heapPeak);
+		} finally {
+			running = false;
+			for (Thread worker: workers) {
+				worker.join();
+			}
+			Files.deleteIfExists(saveFile);
+		}
+	}
+
+	/**
+	 * Fill a platform with the test's accounts and original posts, by random accounts
+	 * @param platform platform to fill
+	 * @param handles filled with the handles of the accounts created
+	 * @return IDs of the posts, shuffled, with the most popular first
+	 * @throws IllegalStateException if any account or post could not be created
+	 */
+	private int[] fill(ConcurrentSocialMedia platform, String[] handles) {
+		Random random = new Random(seed);
+
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = "user" + i;
+		}
+		created(platform.createAccounts(handles, null));
+
+		int[] ids = new int[numOfPosts];
+		for (int start = 0; start < numOfPosts; start += CHUNK) {
+			int size = Math.min(CHUNK, numOfPosts - start);
+			String[] authors = new String[size];
+			String[] messages = new String[size];
+			for (int i = 0; i < size; i++) {
+				authors[i] = handles[random.nextInt(handles.length)];
+				messages[i] = "post " + (start + i);
+			}
+			System.arraycopy(created(platform.createPosts(authors, messages)), 0, ids, start, size);
+		}
+
+		// Popularity has nothing to do with age or author
+		for (int i = ids.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = ids[i];
+			ids[i] = ids[j];
+			ids[j] = swap;
+		}
+		return ids;
+	}
+
+	/**
+	 * Check that every item of a batch was created
+	 * @param result result of the batch
+	 * @return IDs of the created items
+	 * @throws IllegalStateException if any item could not be created
+	 */
+	private static int[] created(BatchResult result) {
+		for (Exception error: result.getErrors()) {
+			if (error != null) {
+				throw new IllegalStateException("Could not fill the platform", error);
+			}
+		}
+		return result.getIDs();
+	}
+
+	/**
+	 * Body of a worker: makes calls one after another until the run ends, counting them while it is measured
+	 * @param platform platform under test
+	 * @param generator worker's traffic
+	 * @param tally worker's counts
+	 */
+	private void work(ConcurrentSocialMedia platform, WorkloadGenerator generator, Tally tally) {
+		while (running) {
+			Operation operation = generator.next();
+			boolean failed = false;
+
+			long start = System.nanoTime();
+			try {
+				generator.run(platform);
+			} catch (Exception e) {
+				failed = true;
+			}
+			long nanos = System.nanoTime() - start;
+
+			if (measuring) {
+				tally.record(operation, nanos, failed);
+			}
+		}
+	}
+
+	/**
+	 * Body of the saving thread: saves the platform at a fixed interval until the run ends
+	 * @param platform platform under test
+	 * @param file file to save to
+	 * @param intervalMillis time between the start of one save and the next
+	 * @param tally counts of the saves
+	 */
+	private void save(ConcurrentSocialMedia platform, Path file, long intervalMillis, Tally tally) {
+		long next = System.nanoTime();
+		while (running) {
+			next += intervalMillis * 1_000_000;
+			long wait;
+			while (running && (wait = next - System.nanoTime()) > 0) {
+				try {
+					Thread.sleep(Math.min(HEAP_SAMPLE_MILLIS, Math.max(1, wait / 1_000_000)));
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+			if (!running) {
+				return;
+			}
+
+			boolean failed = false;
+			long start = System.nanoTime();
+			try {
+				platform.savePlatform(file.toString());
+			} catch (IOException e) {
+				failed = true;
+			}
+			long nanos = System.nanoTime() - start;
+
+			if (measuring) {
+				tally.record(Operation.SAVE_PLATFORM, nanos, failed);
+			}
+		}
+	}
+
+	/**
+	 * Collect garbage and measure the heap still in use
+	 * @param memory memory bean of the JVM
+	 * @return bytes of heap in use
+	 */
+	private static long usedHeapAfterGC(MemoryMXBean memory) {
+		// A second collection picks up what the first only finalised
+		System.gc();
+		System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Run load tests from the command line. Options are given as name=value:
+	 * threads, seconds, warmup (seconds), seed, accounts, posts, and mixes, a comma separated list of
+	 * viral, deep-threads, churn and mixed
+	 * @param args options
+	 * @throws Exception if a run could not be made
+	 */
+	public static void main(String[] args) throws Exception {
+		HashMap<String, String> options = new HashMap<>();
+		for (String arg: args) {
+			int equals = arg.indexOf('=');
+			if (equals < 0) {
+				throw new IllegalArgumentException("This option (" + arg + ") is not name=value");
+			}
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+
+		LoadTest test = new LoadTest(
+				Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors()))),
+				Long.parseLong(options.getOrDefault("seed", "42")),
+				Integer.parseInt(options.getOrDefault("accounts", "10000")),
+				Integer.parseInt(options.getOrDefault("posts", "100000")));
+		long warmupMillis = Long.parseLong(options.getOrDefault("warmup", "5")) * 1000;
+		long measureMillis = Long.parseLong(options.getOrDefault("seconds", "20")) * 1000;
+
+		for (String name: options.getOrDefault("mixes", "viral,deep-threads,churn,mixed").split(",")) {
+			System.out.println(test.run(mixNamed(name), warmupMillis, measureMillis));
+		}
+	}
+
+	/**
+	 * Get one of the standard mixes by name
+	 * @param name name of the mix
+	 * @return the mix
+	 * @throws IllegalArgumentException if there is no mix by that name
+	 */
+	private static WorkloadMix mixNamed(String name) {
+		switch (name) {
+			case "viral":
+				return WorkloadMix.viral();
+			case "deep-threads":
+				return WorkloadMix.deepThreads();
+			case "churn":
+				return WorkloadMix.churn();
+			case "mixed":
+				return WorkloadMix.mixed();
+			default:
+				throw new IllegalArgumentException("This mix (" + name + ") does not exist");
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package socialmedia.benchmark;
+
+/**
+ * Operation is a kind of call the load test makes on the platform, each reported separately
+ */
+public enum Operation {
+	CREATE_POST,
+	// endorsement of a post picked by popularity, so a few viral posts get most of them
+	ENDORSE_POST,
+	// comment continuing the worker's current comment chain, or starting a new one
+	COMMENT_POST,
+	SHOW_ACCOUNT,
+	SHOW_POST,
+	SHOW_THREAD,
+	MOST_ENDORSED,
+	CREATE_ACCOUNT,
+	// removal of the worker's oldest churned account, along with everything it posted
+	REMOVE_ACCOUNT,
+	// not picked by workers, but made by a separate thread every saveIntervalMillis
+	SAVE_PLATFORM
+}
@@ -0,0 +1,214 @@
+package socialmedia.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import socialmedia.AccountIDNotRecognisedException;
+import socialmedia.SocialMedia;
+
+/**
+ * PlatformBenchmark measures each SocialMediaPlatform operation other than saving, loading and erasing,
+ * on the shared PlatformFixture.
+ * <p>
+ * Operations that add to the platform have what they added removed after each call, and operations that
+ * remove from it are given a fresh account to remove before each call, outside the measured time. The
+ * platform stays the size it was built at, so each dataset size measures that size and nothing else.
+ * SocialMedia is not thread safe, so every benchmark runs on one thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@Threads(1)
+public class PlatformBenchmark {
+
+	/**
+	 * Whatever a benchmark added to the platform, removed again after each call
+	 */
+	@State(Scope.Thread)
+	public static class Created {
+		int accountID = -1;
+		int postID = -1;
+
+		/**
+		 * Remove the account or post the benchmark created
+		 * @param fixture shared platform
+		 * @throws Exception if the account or post is no longer there
+		 */
+		@TearDown(Level.Invocation)
+		public void remove(PlatformFixture fixture) throws Exception {
+			if (accountID != -1) {
+				fixture.platform.removeAccount(accountID);
+				accountID = -1;
+			}
+			if (postID != -1) {
+				fixture.platform.deletePost(postID);
+				postID = -1;
+			}
+		}
+	}
+
+	/**
+	 * An account with a few endorsed posts and a comment, created before each call for a benchmark to
+	 * change or remove, and removed again after it if it is still there
+	 */
+	@State(Scope.Thread)
+	public static class Victim {
+		// posts created for each victim, each endorsed by an account of the fixture
+		private static final int NUM_OF_POSTS = 3;
+
+		int accountID;
+		String handle;
+		int postID;
+
+		/**
+		 * Create the account and its posts
+		 * @param fixture shared platform
+		 * @throws Exception if the account or a post could not be created
+		 */
+		@Setup(Level.Invocation)
+		public void create(PlatformFixture fixture) throws Exception {
+			SocialMedia platform = fixture.platform;
+			handle = fixture.newHandle();
+			accountID = platform.createAccount(handle, "victim");
+
+			for (int i = 0; i < NUM_OF_POSTS; i++) {
+				int id = platform.createPost(handle, "victim post " + i);
+				platform.endorsePost(fixture.randomHandle(), id);
+				if (i == 0) {
+					postID = id;
+				}
+			}
+			// By the victim itself, so removing the victim takes the comment too
+			platform.commentPost(handle, postID, "victim comment");
+		}
+
+		/**
+		 * Remove the account unless the benchmark already has
+		 * @param fixture shared platform
+		 */
+		@TearDown(Level.Invocation)
+		public void remove(PlatformFixture fixture) {
+			try {
+				fixture.platform.removeAccount(accountID);
+			} catch (AccountIDNotRecognisedException e) {
+				// removed by the benchmark
+			}
+		}
+	}
+
+	@Benchmark
+	public int createAccount(PlatformFixture fixture, Created created) throws Exception {
+		created.accountID = fixture.platform.createAccount(fixture.newHandle());
+		return created.accountID;
+	}
+
+	@Benchmark
+	public int createAccountWithDescription(PlatformFixture fixture, Created created) throws Exception {
+		created.accountID = fixture.platform.createAccount(fixture.newHandle(), "description");
+		return created.accountID;
+	}
+
+	@Benchmark
+	public void removeAccountByID(PlatformFixture fixture, Victim victim) throws Exception {
+		fixture.platform.removeAccount(victim.accountID);
+	}
+
+	@Benchmark
+	public void removeAccountByHandle(PlatformFixture fixture, Victim victim) throws Exception {
+		fixture.platform.removeAccount(victim.handle);
+	}
+
+	@Benchmark
+	public void changeAccountHandle(PlatformFixture fixture, Victim victim) throws Exception {
+		fixture.platform.changeAccountHandle(victim.handle, victim.handle + "x");
+	}
+
+	@Benchmark
+	public void updateAccountDescription(PlatformFixture fixture, Victim victim) throws Exception {
+		fixture.platform.updateAccountDescription(victim.handle, "updated");
+	}
+
+	@Benchmark
+	public String showAccount(PlatformFixture fixture) throws Exception {
+		return fixture.platform.showAccount(fixture.randomHandle());
+	}
+
+	@Benchmark
+	public int createPost(PlatformFixture fixture, Created created) throws Exception {
+		created.postID = fixture.platform.createPost(fixture.randomHandle(), "benchmark post");
+		return created.postID;
+	}
+
+	@Benchmark
+	public int endorsePost(PlatformFixture fixture, Created created) throws Exception {
+		created.postID = fixture.platform.endorsePost(fixture.randomHandle(), fixture.randomActionableID());
+		return created.postID;
+	}
+
+	@Benchmark
+	public int commentPost(PlatformFixture fixture, Created created) throws Exception {
+		created.postID = fixture.platform.commentPost(fixture.randomHandle(), fixture.randomActionableID(),
+				"benchmark comment");
+		return created.postID;
+	}
+
+	@Benchmark
+	public void deletePost(PlatformFixture fixture, Victim victim) throws Exception {
+		fixture.platform.deletePost(victim.postID);
+	}
+
+	@Benchmark
+	public String showIndividualPost(PlatformFixture fixture) throws Exception {
+		return fixture.platform.showIndividualPost(fixture.randomActionableID());
+	}
+
+	@Benchmark
+	public StringBuilder showPostChildrenDetails(PlatformFixture fixture) throws Exception {
+		return fixture.platform.showPostChildrenDetails(fixture.randomOriginalID());
+	}
+
+	@Benchmark
+	public int getNumberOfAccounts(PlatformFixture fixture) {
+		return fixture.platform.getNumberOfAccounts();
+	}
+
+	@Benchmark
+	public int getTotalOriginalPosts(PlatformFixture fixture) {
+		return fixture.platform.getTotalOriginalPosts();
+	}
+
+	@Benchmark
+	public int getTotalEndorsmentPosts(PlatformFixture fixture) {
+		return fixture.platform.getTotalEndorsmentPosts();
+	}
+
+	@Benchmark
+	public int getTotalCommentPosts(PlatformFixture fixture) {
+		return fixture.platform.getTotalCommentPosts();
+	}
+
+	@Benchmark
+	public int getMostEndorsedPost(PlatformFixture fixture) {
+		return fixture.platform.getMostEndorsedPost();
+	}
+
+	@Benchmark
+	public int getMostEndorsedAccount(PlatformFixture fixture) {
+		return fixture.platform.getMostEndorsedAccount();
+	}
+}
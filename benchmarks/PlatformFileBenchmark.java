@@ -0,0 +1,126 @@
+package socialmedia.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import socialmedia.SocialMedia;
+
+/**
+ * PlatformFileBenchmark measures saving, loading and erasing the shared PlatformFixture, which take
+ * long enough at the larger sizes to need fewer and longer iterations than the other operations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@Threads(1)
+public class PlatformFileBenchmark {
+
+	/**
+	 * A snapshot of the fixture, saved once per trial for the load and erase benchmarks
+	 */
+	@State(Scope.Benchmark)
+	public static class Snapshot {
+		Path file;
+
+		/**
+		 * Save the fixture to a temporary file
+		 * @param fixture shared platform
+		 * @throws IOException if the file could not be saved
+		 */
+		@Setup(Level.Trial)
+		public void save(PlatformFixture fixture) throws IOException {
+			file = Files.createTempFile("platform", ".snapshot");
+			fixture.platform.savePlatform(file.toString());
+		}
+
+		/**
+		 * Delete the temporary file
+		 * @throws IOException if the file could not be deleted
+		 */
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * A copy of the fixture loaded from the snapshot before each call, for erasePlatform to empty
+	 */
+	@State(Scope.Thread)
+	public static class Loaded {
+		SocialMedia platform;
+
+		/**
+		 * Load the copy
+		 * @param snapshot snapshot of the fixture
+		 * @throws Exception if the snapshot could not be loaded
+		 */
+		@Setup(Level.Invocation)
+		public void load(Snapshot snapshot) throws Exception {
+			platform = new SocialMedia();
+			platform.loadPlatform(snapshot.file.toString());
+		}
+	}
+
+	/**
+	 * The file savePlatform writes to, deleted at the end of the trial
+	 */
+	@State(Scope.Thread)
+	public static class Target {
+		Path file;
+
+		/**
+		 * Pick a temporary file
+		 * @throws IOException if the file could not be created
+		 */
+		@Setup(Level.Trial)
+		public void create() throws IOException {
+			file = Files.createTempFile("platform", ".saved");
+		}
+
+		/**
+		 * Delete the temporary file
+		 * @throws IOException if the file could not be deleted
+		 */
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Benchmark
+	public void savePlatform(PlatformFixture fixture, Target target) throws IOException {
+		fixture.platform.savePlatform(target.file.toString());
+	}
+
+	@Benchmark
+	public SocialMedia loadPlatform(Snapshot snapshot) throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.loadPlatform(snapshot.file.toString());
+		return platform;
+	}
+
+	@Benchmark
+	public SocialMedia erasePlatform(Loaded loaded) {
+		loaded.platform.erasePlatform();
+		return loaded.platform;
+	}
+}
@@ -0,0 +1,169 @@
+package socialmedia.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import socialmedia.BatchResult;
+import socialmedia.SocialMedia;
+
+/**
+ * PlatformFixture is a platform filled with accounts, posts, comments and endorsements, built once per
+ * trial and shared by every benchmark. The dataset size is set by the posts parameter.
+ * <p>
+ * The platform is built with the same seed every time, so each size is the same platform on every run:
+ * half of the posts are original posts, a fifth are comments on earlier posts and the rest are
+ * endorsements, spread over one account for every hundred posts.
+ */
+@State(Scope.Benchmark)
+public class PlatformFixture {
+	// total posts, comments and endorsements in the platform
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int posts;
+
+	private static final long SEED = 42;
+	private static final int POSTS_PER_ACCOUNT = 100;
+	private static final int MIN_ACCOUNTS = 10;
+
+	// items per batch call while building, so the rankings are put in order once per chunk
+	private static final int CHUNK = 10_000;
+
+	public SocialMedia platform;
+	public String[] handles;
+	public int[] originalIDs;
+	// original posts and comments, which can be endorsed and commented
+	public int[] actionableIDs;
+
+	// picks accounts and posts for the benchmarks, seeded so runs pick the same ones
+	private Random random;
+	private int nextHandle = 0;
+
+	/**
+	 * Build the platform
+	 * @throws IllegalStateException if any account or post could not be created
+	 */
+	@Setup(Level.Trial)
+	public void build() {
+		platform = new SocialMedia();
+		random = new Random(SEED);
+
+		handles = new String[Math.max(MIN_ACCOUNTS, posts / POSTS_PER_ACCOUNT)];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = "user" + i;
+		}
+		created(platform.createAccounts(handles, null));
+
+		int numOfComments = posts / 5;
+		originalIDs = new int[posts / 2];
+		actionableIDs = new int[originalIDs.length + numOfComments];
+
+		createOriginals();
+		createComments();
+		createEndorsements(posts - actionableIDs.length);
+	}
+
+	/**
+	 * Create the original posts, by random accounts
+	 */
+	private void createOriginals() {
+		for (int start = 0; start < originalIDs.length; start += CHUNK) {
+			int size = Math.min(CHUNK, originalIDs.length - start);
+			String[] authors = new String[size];
+			String[] messages = new String[size];
+			for (int i = 0; i < size; i++) {
+				authors[i] = randomHandle();
+				messages[i] = "post " + (start + i);
+			}
+			System.arraycopy(created(platform.createPosts(authors, messages)), 0, originalIDs, start, size);
+		}
+		System.arraycopy(originalIDs, 0, actionableIDs, 0, originalIDs.length);
+	}
+
+	/**
+	 * Create the comments, each on an original post or a comment from an earlier chunk, so threads grow deep
+	 */
+	private void createComments() {
+		for (int start = originalIDs.length; start < actionableIDs.length; start += CHUNK) {
+			int size = Math.min(CHUNK, actionableIDs.length - start);
+			String[] authors = new String[size];
+			int[] targets = new int[size];
+			String[] messages = new String[size];
+			for (int i = 0; i < size; i++) {
+				authors[i] = randomHandle();
+				targets[i] = actionableIDs[random.nextInt(start)];
+				messages[i] = "comment " + (start + i);
+			}
+			System.arraycopy(created(platform.commentPosts(authors, targets, messages)), 0, actionableIDs, start, size);
+		}
+	}
+
+	/**
+	 * Create the endorsements, each of a random original post or comment
+	 * @param numOfEndorsements number of endorsements to create
+	 */
+	private void createEndorsements(int numOfEndorsements) {
+		for (int start = 0; start < numOfEndorsements; start += CHUNK) {
+			int size = Math.min(CHUNK, numOfEndorsements - start);
+			String[] authors = new String[size];
+			int[] targets = new int[size];
+			for (int i = 0; i < size; i++) {
+				authors[i] = randomHandle();
+				targets[i] = randomActionableID();
+			}
+			created(platform.endorsePosts(authors, targets));
+		}
+	}
+
+	/**
+	 * Check that every item of a batch was created
+	 * @param result result of the batch
+	 * @return IDs of the created items
+	 * @throws IllegalStateException if any item could not be created
+	 */
+	private static int[] created(BatchResult result) {
+		if (result.getNumOfErrors() > 0) {
+			for (Exception error: result.getErrors()) {
+				if (error != null) {
+					throw new IllegalStateException("Could not build the platform", error);
+				}
+			}
+		}
+		return result.getIDs();
+	}
+
+	/**
+	 * Pick the handle of an account in the fixture
+	 * @return handle
+	 */
+	public String randomHandle() {
+		return handles[random.nextInt(handles.length)];
+	}
+
+	/**
+	 * Pick an original post in the fixture
+	 * @return post id
+	 */
+	public int randomOriginalID() {
+		return originalIDs[random.nextInt(originalIDs.length)];
+	}
+
+	/**
+	 * Pick an original post or comment in the fixture
+	 * @return post id
+	 */
+	public int randomActionableID() {
+		return actionableIDs[random.nextInt(actionableIDs.length)];
+	}
+
+	/**
+	 * Make up a handle that no account has yet
+	 * @return handle
+	 */
+	public String newHandle() {
+		return "new" + (nextHandle++);
+	}
+}
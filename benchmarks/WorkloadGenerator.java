@@ -0,0 +1,172 @@
+package socialmedia.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import socialmedia.ConcurrentSocialMedia;
+
+/**
+ * WorkloadGenerator picks the operations one load test worker makes, and the accounts and posts they
+ * are made with, following a WorkloadMix. Each worker has its own generator, seeded from the test's
+ * seed and the worker's number, so a worker makes the same calls on every run.
+ * <p>
+ * Posts are endorsed, commented and read by a Zipf distribution over the platform's original posts, so a
+ * few of them get most of the traffic. Each worker keeps a comment chain, which its comments either
+ * continue or restart under a popular post, and its own churned accounts, created and removed oldest
+ * first. The accounts the platform was filled with are never removed, so chains only break by chance.
+ */
+public class WorkloadGenerator {
+	private final WorkloadMix mix;
+	private final Random random;
+	private final String prefix;
+
+	private final String[] handles;
+	// original posts, most popular first
+	private final int[] popularIDs;
+
+	// last comment of the worker's chain, or -1 to start a new chain
+	private int chainTip = -1;
+	private final ArrayList<String> churned = new ArrayList<>();
+	private int nextNumber = 0;
+
+	// arguments of the operation picked by next, used by run
+	private Operation operation;
+	private String handle;
+	private int postID;
+
+	/**
+	 * Constructor for a worker's generator
+	 * @param mix traffic to generate
+	 * @param seed seed of the load test
+	 * @param worker number of the worker
+	 * @param handles handles of the accounts the platform was filled with
+	 * @param popularIDs original posts the platform was filled with, most popular first
+	 */
+	public WorkloadGenerator(WorkloadMix mix, long seed, int worker, String[] handles, int[] popularIDs) {
+		this.mix = mix;
+		this.random = new Random(seed * 31 + worker);
+		this.prefix = "w" + worker + "n";
+		this.handles = handles;
+		this.popularIDs = popularIDs;
+	}
+
+	/**
+	 * Pick the next operation and its arguments
+	 * @return operation picked
+	 */
+	public Operation next() {
+		operation = mix.pick(random.nextInt(mix.getTotalWeight()));
+		if (operation == Operation.REMOVE_ACCOUNT && churned.isEmpty()) {
+			// Nothing to remove until an account has been churned in
+			operation = Operation.CREATE_ACCOUNT;
+		}
+
+		switch (operation) {
+			case ENDORSE_POST:
+				handle = !churned.isEmpty() && random.nextDouble() < mix.getChurnedEndorsement()
+						? churned.get(random.nextInt(churned.size())) : randomHandle();
+				postID = popularID();
+				break;
+			case COMMENT_POST:
+				handle = randomHandle();
+				postID = chainTip != -1 && random.nextDouble() < mix.getChainProbability() ? chainTip : popularID();
+				break;
+			case SHOW_POST:
+			case SHOW_THREAD:
+				postID = popularID();
+				break;
+			case CREATE_ACCOUNT:
+				handle = prefix + (nextNumber++);
+				break;
+			case REMOVE_ACCOUNT:
+				handle = churned.get(0);
+				break;
+			default:
+				handle = randomHandle();
+				break;
+		}
+		return operation;
+	}
+
+	/**
+	 * Make the call picked by next on the platform
+	 * @param platform platform under test
+	 * @throws Exception whatever the call threw
+	 */
+	public void run(ConcurrentSocialMedia platform) throws Exception {
+		switch (operation) {
+			case CREATE_POST:
+				platform.createPost(handle, "post " + (nextNumber++));
+				break;
+			case ENDORSE_POST:
+				platform.endorsePost(handle, postID);
+				break;
+			case COMMENT_POST:
+				try {
+					chainTip = platform.commentPost(handle, postID, "comment " + (nextNumber++));
+				} catch (Exception e) {
+					chainTip = -1;
+					throw e;
+				}
+				break;
+			case SHOW_ACCOUNT:
+				platform.showAccount(handle);
+				break;
+			case SHOW_POST:
+				platform.showIndividualPost(postID);
+				break;
+			case SHOW_THREAD:
+				platform.showPostChildrenDetails(postID);
+				break;
+			case MOST_ENDORSED:
+				platform.getMostEndorsedAccount();
+				break;
+			case CREATE_ACCOUNT:
+				platform.createAccount(handle);
+				churned.add(handle);
+				break;
+			case REMOVE_ACCOUNT:
+				// Forgotten even if the removal fails, so a bad account is not tried forever
+				churned.remove(0);
+				platform.removeAccount(handle);
+				break;
+			default:
+				throw new IllegalStateException("This operation (" + operation + ") is not made by workers");
+		}
+	}
+
+	/**
+	 * Pick one of the accounts the platform was filled with
+	 * @return handle
+	 */
+	private String randomHandle() {
+		return handles[random.nextInt(handles.length)];
+	}
+
+	/**
+	 * Pick an original post by popularity
+	 * @return post id
+	 */
+	private int popularID() {
+		return popularIDs[zipf(popularIDs.length, mix.getZipfExponent(), random.nextDouble())];
+	}
+
+	/**
+	 * Turn a uniform random number into a rank from a Zipf distribution, by inverting the continuous
+	 * power law the distribution follows, which is close enough for generating traffic
+	 * @param n number of ranks
+	 * @param s exponent of the distribution
+	 * @param u uniform random number from 0 (inclusive) to 1 (exclusive)
+	 * @return rank from 0 (the most likely) to n - 1
+	 */
+	static int zipf(int n, double s, double u) {
+		double rank;
+		if (Math.abs(s - 1) < 1e-9) {
+			rank = Math.exp(u * Math.log(n + 1.0));
+		} else {
+			double a = 1 - s;
+			rank = Math.pow(u * (Math.pow(n + 1.0, a) - 1) + 1, 1 / a);
+		}
+		return (int) Math.min(n - 1, Math.max(0, (long) rank - 1));
+	}
+}
@@ -0,0 +1,215 @@
+package socialmedia.benchmark;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * WorkloadMix describes the traffic the load test sends: how often each operation is picked, how strongly
+ * endorsements and reads favour the most popular posts, how deep comment chains grow and how often the
+ * platform is saved.
+ * <p>
+ * Mixes are built by chaining setters on a new mix, or taken from one of the standard mixes below.
+ */
+public class WorkloadMix {
+	private final String name;
+	private final EnumMap<Operation, Integer> weights = new EnumMap<>(Operation.class);
+	private int totalWeight = 0;
+
+	// s of the Zipf distribution posts are picked by; 0 picks every post evenly, above 1 a few posts get most picks
+	private double zipfExponent = 1.0;
+	// chance a comment continues the worker's chain rather than starting a new one
+	private double chainProbability = 0.5;
+	// chance an endorsement is made by one of the worker's churned accounts, if it has any
+	private double churnedEndorsement = 0.25;
+	// time between saves, or 0 to never save
+	private long saveIntervalMillis = 0;
+
+	/**
+	 * Constructor for a mix with no operations
+	 * @param name name to report the mix under
+	 */
+	public WorkloadMix(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Set how often an operation is picked, relative to the other operations
+	 * @param operation operation, other than SAVE_PLATFORM
+	 * @param weight relative weight, 0 to never pick it
+	 * @return this mix
+	 * @throws IllegalArgumentException if the operation is SAVE_PLATFORM or the weight is negative
+	 */
+	public WorkloadMix weight(Operation operation, int weight) {
+		if (operation == Operation.SAVE_PLATFORM) {
+			throw new IllegalArgumentException("Saves are set by saveIntervalMillis");
+		}
+		if (weight < 0) {
+			throw new IllegalArgumentException("This weight (" + weight + ") is negative");
+		}
+		Integer old = weights.put(operation, weight);
+		totalWeight += weight - (old == null ? 0 : old);
+		return this;
+	}
+
+	/**
+	 * Set s of the Zipf distribution posts are endorsed, commented and read by
+	 * @param zipfExponent exponent, 0 or more
+	 * @return this mix
+	 */
+	public WorkloadMix zipfExponent(double zipfExponent) {
+		this.zipfExponent = zipfExponent;
+		return this;
+	}
+
+	/**
+	 * Set the chance a comment continues the worker's comment chain
+	 * @param chainProbability chance between 0 and 1
+	 * @return this mix
+	 */
+	public WorkloadMix chainProbability(double chainProbability) {
+		this.chainProbability = chainProbability;
+		return this;
+	}
+
+	/**
+	 * Set the chance an endorsement is made by one of the worker's churned accounts
+	 * @param churnedEndorsement chance between 0 and 1
+	 * @return this mix
+	 */
+	public WorkloadMix churnedEndorsement(double churnedEndorsement) {
+		this.churnedEndorsement = churnedEndorsement;
+		return this;
+	}
+
+	/**
+	 * Set the time between saves of the platform
+	 * @param saveIntervalMillis time in milliseconds, or 0 to never save
+	 * @return this mix
+	 */
+	public WorkloadMix saveIntervalMillis(long saveIntervalMillis) {
+		this.saveIntervalMillis = saveIntervalMillis;
+		return this;
+	}
+
+	/**
+	 * Pick an operation by weight
+	 * @param roll random number from 0 (inclusive) to getTotalWeight() (exclusive)
+	 * @return operation picked
+	 */
+	Operation pick(int roll) {
+		for (Map.Entry<Operation, Integer> entry: weights.entrySet()) {
+			roll -= entry.getValue();
+			if (roll < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new IllegalStateException("This roll is past the total weight");
+	}
+
+	/**
+	 * Get the name the mix is reported under
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the total weight of the operations, see pick
+	 * @return total weight
+	 */
+	public int getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Get the s of the Zipf distribution posts are picked by
+	 * @return exponent
+	 */
+	public double getZipfExponent() {
+		return zipfExponent;
+	}
+
+	/**
+	 * Get the chance a comment continues the worker's comment chain
+	 * @return chance
+	 */
+	public double getChainProbability() {
+		return chainProbability;
+	}
+
+	/**
+	 * Get the chance an endorsement is made by a churned account
+	 * @return chance
+	 */
+	public double getChurnedEndorsement() {
+		return churnedEndorsement;
+	}
+
+	/**
+	 * Get the time between saves of the platform
+	 * @return time in milliseconds, or 0 to never save
+	 */
+	public long getSaveIntervalMillis() {
+		return saveIntervalMillis;
+	}
+
+	/**
+	 * Mostly endorsements of a few viral posts, with some posting and reading
+	 * @return the mix
+	 */
+	public static WorkloadMix viral() {
+		return new WorkloadMix("viral")
+				.weight(Operation.ENDORSE_POST, 60)
+				.weight(Operation.CREATE_POST, 10)
+				.weight(Operation.COMMENT_POST, 10)
+				.weight(Operation.SHOW_POST, 15)
+				.weight(Operation.MOST_ENDORSED, 5)
+				.zipfExponent(1.2);
+	}
+
+	/**
+	 * Long comment chains under popular posts, read back as whole threads
+	 * @return the mix
+	 */
+	public static WorkloadMix deepThreads() {
+		return new WorkloadMix("deep-threads")
+				.weight(Operation.COMMENT_POST, 50)
+				.weight(Operation.ENDORSE_POST, 20)
+				.weight(Operation.SHOW_THREAD, 10)
+				.weight(Operation.SHOW_POST, 20)
+				.chainProbability(0.95);
+	}
+
+	/**
+	 * Accounts coming and going, endorsing posts in between
+	 * @return the mix
+	 */
+	public static WorkloadMix churn() {
+		return new WorkloadMix("churn")
+				.weight(Operation.CREATE_ACCOUNT, 15)
+				.weight(Operation.REMOVE_ACCOUNT, 15)
+				.weight(Operation.ENDORSE_POST, 40)
+				.weight(Operation.CREATE_POST, 15)
+				.weight(Operation.SHOW_ACCOUNT, 15)
+				.churnedEndorsement(0.75);
+	}
+
+	/**
+	 * Every kind of traffic at once, saved once a second
+	 * @return the mix
+	 */
+	public static WorkloadMix mixed() {
+		return new WorkloadMix("mixed")
+				.weight(Operation.CREATE_POST, 15)
+				.weight(Operation.ENDORSE_POST, 30)
+				.weight(Operation.COMMENT_POST, 15)
+				.weight(Operation.SHOW_ACCOUNT, 10)
+				.weight(Operation.SHOW_POST, 15)
+				.weight(Operation.SHOW_THREAD, 2)
+				.weight(Operation.MOST_ENDORSED, 5)
+				.weight(Operation.CREATE_ACCOUNT, 4)
+				.weight(Operation.REMOVE_ACCOUNT, 4)
+				.saveIntervalMillis(1000);
+	}
+}
@@ -0,0 +1,276 @@
+package socialmedia;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * AsyncSocialMediaTest has several threads submit commands to one AsyncSocialMedia at once, through a small
+ * queue, without waiting for each command before submitting the next.
+ * <p>
+ * Each writer renames its account after every post and posts under the new handle straight away, so any
+ * command run out of the order it was submitted in fails. Every so often a writer waits for its last post
+ * and checks that the totals, which are read without going through the queue, already count it. Readers
+ * check that the totals never go backwards while the writers run.
+ * <p>
+ * A platform that throws an Error from a command, and then from the writer itself, checks that every
+ * future is still completed, on the executor given rather than the writer, and that nothing can be
+ * submitted once the writer has failed.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.AsyncSocialMediaTest
+ */
+public class AsyncSocialMediaTest {
+	private static final int WRITERS = 4;
+	private static final int READERS = 2;
+	private static final int POSTS = 5_000;
+	private static final int CAPACITY = 16;
+
+	/**
+	 * Fail the test if two values differ
+	 * @param expected value expected
+	 * @param actual value returned
+	 * @param what what was being checked
+	 */
+	private static void check(long expected, long actual, String what) {
+		if (expected != actual) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * A platform that throws an Error when a post has a chosen message, and fails the writer when
+	 * a batch with such a post ends
+	 */
+	private static final class FailingSocialMedia extends SocialMedia {
+		private volatile boolean failBatch = false;
+
+		@Override
+		public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
+			if (message.equals("error")) {
+				throw new AssertionError("thrown by a command");
+			}
+			if (message.equals("stop the writer")) {
+				failBatch = true;
+			}
+			return super.createPost(handle, message);
+		}
+
+		@Override
+		void endBatch() {
+			super.endBatch();
+			if (failBatch) {
+				throw new OutOfMemoryError("thrown by the writer");
+			}
+		}
+	}
+
+	/**
+	 * Fail the test unless a future completes exceptionally with an exception of the expected class
+	 * @param future future to wait for
+	 * @param expected class of exception expected
+	 * @param what what was submitted
+	 */
+	private static void checkFailed(CompletableFuture<?> future, Class<?> expected, String what) throws Exception {
+		try {
+			future.get();
+			throw new AssertionError(what + " did not fail");
+		} catch (ExecutionException e) {
+			if (!expected.isInstance(e.getCause())) {
+				throw new AssertionError(what + ": expected " + expected.getSimpleName(), e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Check that Errors fail only the futures they should, and that futures are completed on the executor
+	 */
+	private static void checkFailures() throws Exception {
+		AtomicInteger completions = new AtomicInteger();
+		ExecutorService completer = Executors.newSingleThreadExecutor(task -> new Thread(task, "completer"));
+		try (AsyncSocialMedia platform = new AsyncSocialMedia(new FailingSocialMedia(), CAPACITY, task -> {
+			completions.incrementAndGet();
+			completer.execute(task);
+		})) {
+			platform.createAccount("alice");
+			CompletableFuture<String> callback = platform.createPost("alice", "first")
+					.thenApply(id -> Thread.currentThread().getName());
+			if (callback.get().equals("platform-writer")) {
+				throw new AssertionError("a callback ran on the writer");
+			}
+			if (completions.get() == 0) {
+				throw new AssertionError("no future was completed on the executor");
+			}
+
+			// An Error thrown by a command fails its own future and the writer carries on
+			checkFailed(platform.createPost("alice", "error"), AssertionError.class, "a command throwing an Error");
+			platform.createPost("alice", "second").get();
+
+			// An Error thrown by the writer fails its batch, everything waiting behind it, and what comes after
+			CompletableFuture<Integer> stopping = platform.createPost("alice", "stop the writer");
+			ArrayList<CompletableFuture<Integer>> behind = new ArrayList<>();
+			try {
+				for (int i = 0; i < CAPACITY * 4; i++) {
+					behind.add(platform.createPost("alice", "behind " + i));
+				}
+			} catch (IllegalStateException e) {
+				// the writer failed before all were submitted
+			}
+			checkFailed(stopping, OutOfMemoryError.class, "the batch the writer failed in");
+			for (CompletableFuture<Integer> post: behind) {
+				try {
+					post.get();
+				} catch (ExecutionException e) {
+					// failed with the writer, or with the batch it failed in
+				}
+			}
+			try {
+				platform.createPost("alice", "too late");
+				throw new AssertionError("a command was submitted after the writer failed");
+			} catch (IllegalStateException e) {
+				// refused, as it should be
+			}
+		} finally {
+			completer.shutdown();
+		}
+	}
+
+	/**
+	 * Submit posts and renames for one account, checking that they run in order and are counted once done
+	 * @param platform platform under test
+	 * @param writer number of the writer
+	 */
+	private static void write(AsyncSocialMedia platform, int writer) throws Exception {
+		String handle = "writer" + writer;
+		platform.createAccount(handle);
+		ArrayList<CompletableFuture<Integer>> posts = new ArrayList<>();
+		ArrayList<CompletableFuture<Void>> renames = new ArrayList<>();
+
+		for (int i = 0; i < POSTS; i++) {
+			CompletableFuture<Integer> post = platform.createPost(handle, "post " + i);
+			posts.add(post);
+			String renamed = "writer" + writer + "r" + i;
+			renames.add(platform.changeAccountHandle(handle, renamed));
+			handle = renamed;
+
+			if (i % 500 == 499) {
+				// Once a post's future completes, the totals count it and every post submitted before it
+				post.get();
+				if (platform.getTotalOriginalPosts() < i + 1) {
+					throw new AssertionError("a completed post is missing from the totals");
+				}
+				String account = platform.showAccount(handle).get();
+				if (!account.contains("Post count: " + (i + 1) + "\n")) {
+					throw new AssertionError("account does not show the posts submitted before it: " + account);
+				}
+			}
+		}
+
+		// Posts of one writer are given IDs in the order they were submitted
+		int last = 0;
+		for (CompletableFuture<Integer> post: posts) {
+			int id = post.get();
+			if (id <= last) {
+				throw new AssertionError("post " + id + " was created after post " + last);
+			}
+			last = id;
+		}
+		for (CompletableFuture<Void> rename: renames) {
+			rename.get();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		AsyncSocialMedia platform = new AsyncSocialMedia(CAPACITY);
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		ArrayList<Thread> writers = new ArrayList<>();
+		ArrayList<Thread> readers = new ArrayList<>();
+
+		for (int i = 0; i < WRITERS; i++) {
+			int writer = i;
+			writers.add(new Thread(() -> {
+				try {
+					write(platform, writer);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		for (int i = 0; i < READERS; i++) {
+			readers.add(new Thread(() -> {
+				try {
+					int lastPosts = 0;
+					int lastAccounts = 0;
+					while (running.get()) {
+						int posts = platform.getTotalOriginalPosts();
+						int accounts = platform.getNumberOfAccounts();
+						if (posts < lastPosts || accounts < lastAccounts) {
+							throw new AssertionError("totals went backwards");
+						}
+						lastPosts = posts;
+						lastAccounts = accounts;
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+
+		for (Thread thread: readers) {
+			thread.start();
+		}
+		for (Thread thread: writers) {
+			thread.start();
+		}
+		for (Thread thread: writers) {
+			thread.join();
+		}
+		running.set(false);
+		for (Thread thread: readers) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError("a thread failed", failure.get());
+		}
+
+		check(WRITERS, platform.getNumberOfAccounts(), "accounts");
+		check((long) WRITERS * POSTS, platform.getTotalOriginalPosts(), "original posts");
+
+		// A command that fails completes its own future exceptionally and does not stop the ones after it
+		CompletableFuture<Integer> lost = platform.createPost("nobody", "lost");
+		CompletableFuture<Integer> kept = platform.createPost("writer0r" + (POSTS - 1), "kept");
+		try {
+			lost.get();
+			throw new AssertionError("a post by a missing account was created");
+		} catch (ExecutionException e) {
+			if (!(e.getCause() instanceof HandleNotRecognisedException)) {
+				throw new AssertionError("expected HandleNotRecognisedException", e.getCause());
+			}
+		}
+		kept.get();
+		check((long) WRITERS * POSTS + 1, platform.getTotalOriginalPosts(), "original posts after a failure");
+
+		// Commands queued before close are run, and none can be submitted after it
+		CompletableFuture<Integer> beforeClose = platform.createAccount("last");
+		platform.close();
+		if (!beforeClose.isDone() || beforeClose.isCompletedExceptionally()) {
+			throw new AssertionError("a command queued before close was not run");
+		}
+		try {
+			platform.createAccount("too late");
+			throw new AssertionError("a command was submitted after close");
+		} catch (IllegalStateException e) {
+			// refused, as it should be
+		}
+
+		checkFailures();
+
+		System.out.println("AsyncSocialMediaTest passed");
+	}
+}
@@ -0,0 +1,61 @@
+package socialmedia;
+
+import java.util.Arrays;
+
+/**
+ * BaselineSaveTest loads tests/data/baseline-platform.ser, saved with Java serialisation by the first
+ * version of savePlatform, and checks the platform it is turned into.
+ * <p>
+ * The file was saved after creating accounts alice, bob, carol and dave and 13 posts between them, then
+ * deleting post 2, removing carol and renaming dave to dan. Posts 7, 9 and 10 belonged to carol's and
+ * dave's old handles, so are left out, and the comments on posts 2 and 3 are orphans.
+ * <p>
+ * Run from the repository root with the platform's classes on the class path:
+ * java socialmedia.BaselineSaveTest [file]
+ */
+public class BaselineSaveTest {
+
+	/**
+	 * Fail the test if two values differ
+	 * @param expected value expected
+	 * @param actual value returned
+	 * @param what what was being checked
+	 */
+	private static void check(Object expected, Object actual, String what) {
+		if (!expected.equals(actual)) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		String filename = args.length > 0 ? args[0] : "tests/data/baseline-platform.ser";
+
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("replaced");
+		platform.loadPlatform(filename);
+
+		check(3, platform.getNumberOfAccounts(), "accounts");
+		check(2, platform.getTotalOriginalPosts(), "original posts");
+		check(2, platform.getTotalCommentPosts(), "comments");
+		check(2, platform.getTotalEndorsmentPosts(), "endorsements");
+		check(1, platform.getMostEndorsedPost(), "most endorsed post");
+		check(1, platform.getMostEndorsedAccount(), "most endorsed account");
+
+		check("ID: 1\nHandle: alice\nDescription: likes cats\nPost count: 2\nEndorse count: 1",
+				platform.showAccount("alice"), "alice");
+		check("ID: 2\nHandle: bob\nDescription: null\nPost count: 2\nEndorse count: 1",
+				platform.showAccount("bob"), "bob");
+		check("ID: 4\nHandle: dan\nDescription: null\nPost count: 0\nEndorse count: 0",
+				platform.showAccount("dan"), "dan");
+
+		check("[1, 11, 6, 8]", Arrays.toString(platform.getMostEndorsedPosts(10)), "ranked posts");
+		check("ID: 6\nAccount: alice\nNo. endorsements: 0 | No. comments: 0\nthanks",
+				platform.showIndividualPost(6), "orphaned comment");
+
+		// The next IDs carry on from the file, not from the posts that were kept
+		check(5, platform.createAccount("erin"), "next account id");
+		check(14, platform.createPost("erin", "new"), "next post id");
+
+		System.out.println("BaselineSaveTest passed");
+	}
+}
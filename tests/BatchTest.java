@@ -0,0 +1,179 @@
+package socialmedia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * BatchTest runs batches in which some items fail part way through, and checks that each result lines up
+ * with the items of its batch, and that the rankings put back in order when each batch ends match those
+ * of a platform given the same changes one call at a time. It also checks that each batch is journalled as
+ * one record, and that replaying the journal gives the same platform.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.BatchTest
+ */
+public class BatchTest {
+
+	/**
+	 * Fail the test unless a batch result has the expected IDs and fails exactly the expected items
+	 * @param result result of the batch
+	 * @param expectedIDs ID expected for each item, -1 for items expected to fail
+	 * @param expectedErrors exception class expected for each item, null for items expected to succeed
+	 * @param what which batch was run
+	 */
+	private static void checkResult(BatchResult result, int[] expectedIDs, Class<?>[] expectedErrors, String what) {
+		if (result.size() != expectedIDs.length || !Arrays.equals(expectedIDs, result.getIDs())) {
+			throw new AssertionError(what + ": expected IDs " + Arrays.toString(expectedIDs) + " but was "
+					+ Arrays.toString(result.getIDs()));
+		}
+		int numOfErrors = 0;
+		for (int i = 0; i < expectedErrors.length; i++) {
+			Exception error = result.getErrors()[i];
+			if (expectedErrors[i] == null ? error != null : !expectedErrors[i].isInstance(error)) {
+				throw new AssertionError(what + ", item " + i + ": expected " + expectedErrors[i] + " but was " + error);
+			}
+			if (error != null) {
+				numOfErrors++;
+			}
+		}
+		if (result.getNumOfErrors() != numOfErrors) {
+			throw new AssertionError(what + ": expected " + numOfErrors + " errors but was " + result.getNumOfErrors());
+		}
+	}
+
+	/**
+	 * Fail the test unless two platforms rank their posts and accounts the same
+	 * @param expected platform given the changes one call at a time
+	 * @param actual platform given the changes in batches
+	 * @param what what was last done to the platforms
+	 */
+	private static void checkRankings(SocialMedia expected, SocialMedia actual, String what) throws Exception {
+		if (expected.getMostEndorsedPost() != actual.getMostEndorsedPost()
+				|| expected.getMostEndorsedAccount() != actual.getMostEndorsedAccount()
+				|| !Arrays.equals(expected.getMostEndorsedPosts(10), actual.getMostEndorsedPosts(10))
+				|| expected.getTotalEndorsmentPosts() != actual.getTotalEndorsmentPosts()
+				|| expected.getTotalCommentPosts() != actual.getTotalCommentPosts()) {
+			throw new AssertionError(what + ": rankings differ, expected top posts "
+					+ Arrays.toString(expected.getMostEndorsedPosts(10)) + " but was "
+					+ Arrays.toString(actual.getMostEndorsedPosts(10)));
+		}
+		for (String handle: new String[] {"alice", "bob", "carol"}) {
+			if (!expected.showAccount(handle).equals(actual.showAccount(handle))) {
+				throw new AssertionError(what + ": account " + handle + " differs");
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocialMedia batched = new SocialMedia();
+		SocialMedia single = new SocialMedia();
+
+		// The repeated handle and the handle with a space fail, and the items after them carry on
+		BatchResult accounts = batched.createAccounts(new String[] {"alice", "alice", "bob", "has space", "carol"},
+				new String[] {"first", "again", null, "bad", "third"});
+		checkResult(accounts, new int[] {1, -1, 2, -1, 3},
+				new Class<?>[] {null, IllegalHandleException.class, null, InvalidHandleException.class, null},
+				"createAccounts");
+		single.createAccount("alice", "first");
+		single.createAccount("bob", null);
+		single.createAccount("carol", "third");
+
+		BatchResult posts = batched.createPosts(new String[] {"alice", "nobody", "bob", "carol", "carol"},
+				new String[] {"alice's post", "lost", "bob's post", "", "carol's post"});
+		checkResult(posts, new int[] {1, -1, 2, -1, 3},
+				new Class<?>[] {null, HandleNotRecognisedException.class, null, InvalidPostException.class, null},
+				"createPosts");
+		single.createPost("alice", "alice's post");
+		single.createPost("bob", "bob's post");
+		single.createPost("carol", "carol's post");
+
+		// Comments on a comment made earlier in the same batch, and on a post that does not exist
+		BatchResult comments = batched.commentPosts(new String[] {"bob", "carol", "alice", "alice"},
+				new int[] {1, 4, 99, 2}, new String[] {"on alice", "on bob's comment", "lost", "on bob"});
+		checkResult(comments, new int[] {4, 5, -1, 6},
+				new Class<?>[] {null, null, PostIDNotRecognisedException.class, null}, "commentPosts");
+		single.commentPost("bob", 1, "on alice");
+		single.commentPost("carol", 4, "on bob's comment");
+		single.commentPost("alice", 2, "on bob");
+
+		// Bob's post overtakes alice's part way through the batch, and an endorsement made in the batch
+		// cannot itself be endorsed
+		String[] handles = {"bob", "carol", "alice", "carol", "alice", "bob", "carol", "nobody", "alice"};
+		int[] ids = {1, 1, 2, 2, 7, 2, 2, 3, 5};
+		BatchResult endorsements = batched.endorsePosts(handles, ids);
+		checkResult(endorsements, new int[] {7, 8, 9, 10, -1, 11, 12, -1, 13},
+				new Class<?>[] {null, null, null, null, NotActionablePostException.class, null, null,
+						HandleNotRecognisedException.class, null},
+				"endorsePosts");
+		for (int i = 0; i < handles.length; i++) {
+			if (endorsements.getErrors()[i] == null) {
+				single.endorsePost(handles[i], ids[i]);
+			}
+		}
+		checkRankings(single, batched, "after endorsePosts");
+		if (batched.getMostEndorsedPost() != 2 || batched.getMostEndorsedAccount() != 2) {
+			throw new AssertionError("bob's post should have overtaken alice's");
+		}
+
+		// A batch whose arrays disagree is refused before anything is created
+		try {
+			batched.endorsePosts(new String[] {"alice", "alice"}, new int[] {1});
+			throw new AssertionError("a batch with arrays of different lengths was run");
+		} catch (IllegalArgumentException e) {
+			// refused, as it should be
+		}
+
+		// Changes made one at a time after a batch keep the rankings in order
+		batched.deletePost(2);
+		single.deletePost(2);
+		checkRankings(single, batched, "after deleting the most endorsed post");
+		BatchResult more = batched.endorsePosts(new String[] {"alice", "bob", "carol"}, new int[] {5, 5, 2});
+		checkResult(more, new int[] {14, 15, -1}, new Class<?>[] {null, null, PostIDNotRecognisedException.class},
+				"endorsePosts after a delete");
+		single.endorsePost("alice", 5);
+		single.endorsePost("bob", 5);
+		checkRankings(single, batched, "after a second endorsePosts");
+
+		// Each batch is one record of the journal, and replaying them gives the same IDs and rankings
+		Path directory = Files.createTempDirectory("batch");
+		Path snapshotFile = directory.resolve("platform.snapshot");
+		Path journalFile = directory.resolve("platform.journal");
+		try {
+			SocialMedia journalled = new SocialMedia();
+			journalled.openJournal(snapshotFile.toString(), journalFile.toString(), 1, Long.MAX_VALUE);
+			journalled.createAccounts(new String[] {"alice", "alice", "bob", "carol"}, null);
+			journalled.createPosts(new String[] {"alice", "bob", "nobody"}, new String[] {"a", "b", "lost"});
+			journalled.commentPosts(new String[] {"carol", "alice"}, new int[] {2, 3}, new String[] {"c", "on c"});
+			// Post 5 is the batch's own first endorsement, so alice's endorsement of it fails
+			journalled.endorsePosts(new String[] {"bob", "carol", "alice"}, new int[] {1, 4, 5});
+			// A batch in which every item fails is not journalled at all
+			journalled.createPosts(new String[] {"nobody"}, new String[] {"lost"});
+			journalled.closeJournal();
+
+			SocialMedia replayed = new SocialMedia();
+			PlatformJournal journal = new PlatformJournal(journalFile.toString(), snapshotFile.toString(), 1,
+					Long.MAX_VALUE);
+			int records;
+			try {
+				records = journal.replay(replayed, 0);
+			} finally {
+				journal.close();
+			}
+			if (records != 4) {
+				throw new AssertionError("expected one journal record per batch but there were " + records);
+			}
+			checkRankings(journalled, replayed, "after replaying the batches");
+			for (int id = 1; id <= 6; id++) {
+				if (!journalled.showIndividualPost(id).equals(replayed.showIndividualPost(id))) {
+					throw new AssertionError("post " + id + " differs once replayed");
+				}
+			}
+		} finally {
+			Files.deleteIfExists(journalFile);
+			Files.deleteIfExists(snapshotFile);
+			Files.deleteIfExists(directory);
+		}
+
+		System.out.println("BatchTest passed");
+	}
+}
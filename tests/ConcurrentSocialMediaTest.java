@@ -0,0 +1,262 @@
+package socialmedia;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ConcurrentSocialMediaTest runs writers and readers against one ConcurrentSocialMedia at once, then checks
+ * the platform against what each writer counted it did.
+ * <p>
+ * Every endorsement and comment is of one of a few shared posts, each by its own account, so an account's
+ * endorsement count is the number of endorsements of its post. Readers check that views opened while the
+ * writers run always agree with themselves, and the final platform must match the writers' counts exactly.
+ * Once the writers stop, the view opened since the last change must be handed out again until the next
+ * change, of whatever kind.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.ConcurrentSocialMediaTest
+ */
+public class ConcurrentSocialMediaTest {
+	private static final int SHARED = 8;
+	private static final int WRITERS = 6;
+	private static final int READERS = 2;
+	private static final int CHANGES = 20_000;
+
+	/**
+	 * What one writer did to the platform
+	 */
+	private static class Counts {
+		int originals;
+		int comments;
+		int endorsements;
+		final int[] endorsementsOfShared = new int[SHARED];
+		final ArrayList<Integer> accountIDs = new ArrayList<>();
+		final ArrayList<Integer> postIDs = new ArrayList<>();
+	}
+
+	/**
+	 * Fail the test if two values differ
+	 * @param expected value expected
+	 * @param actual value returned
+	 * @param what what was being checked
+	 */
+	private static void check(long expected, long actual, String what) {
+		if (expected != actual) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * Read an account's endorsement count from what showAccount gives
+	 * @param accountInfo what showAccount gave
+	 * @return endorsement count
+	 */
+	private static int endorseCount(String accountInfo) {
+		return Integer.parseInt(accountInfo.substring(accountInfo.lastIndexOf(' ') + 1));
+	}
+
+	/**
+	 * Make random changes, counting them
+	 * @param platform platform under test
+	 * @param writer number of the writer
+	 * @param sharedIDs IDs of the shared posts
+	 * @param counts filled with what was done
+	 */
+	private static void write(ConcurrentSocialMedia platform, int writer, int[] sharedIDs, Counts counts)
+			throws Exception {
+		Random random = new Random(writer);
+		String handle = "writer" + writer;
+		counts.accountIDs.add(platform.createAccount(handle));
+		ArrayList<Integer> ownPosts = new ArrayList<>();
+
+		for (int i = 0; i < CHANGES; i++) {
+			int shared = random.nextInt(SHARED);
+			switch (random.nextInt(5)) {
+				case 0:
+					int id = platform.createPost(handle, "post " + i);
+					counts.postIDs.add(id);
+					ownPosts.add(id);
+					counts.originals++;
+					break;
+				case 1:
+					counts.postIDs.add(platform.endorsePost(handle, sharedIDs[shared]));
+					counts.endorsements++;
+					counts.endorsementsOfShared[shared]++;
+					break;
+				case 2:
+					counts.postIDs.add(platform.commentPost(handle, sharedIDs[shared], "comment " + i));
+					counts.comments++;
+					break;
+				case 3:
+					if (!ownPosts.isEmpty()) {
+						platform.deletePost(ownPosts.remove(random.nextInt(ownPosts.size())));
+						counts.originals--;
+					}
+					break;
+				default:
+					// An account that comes and goes, taking its post and endorsement with it
+					String churned = handle + "n" + i;
+					counts.accountIDs.add(platform.createAccount(churned));
+					counts.postIDs.add(platform.createPost(churned, "churned"));
+					counts.postIDs.add(platform.endorsePost(churned, sharedIDs[shared]));
+					platform.removeAccount(churned);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Check that a view agrees with itself: every endorsement is of a shared post, so the shared accounts'
+	 * endorsement counts add up to the total, and the most endorsed account has the most of them
+	 * @param view view to check
+	 */
+	private static void checkView(PlatformView view) throws Exception {
+		int sum = 0;
+		int most = -1;
+		for (int j = 0; j < SHARED; j++) {
+			int count = endorseCount(view.showAccount("shared" + j));
+			sum += count;
+			most = Math.max(most, count);
+		}
+		check(view.getTotalEndorsmentPosts(), sum, "endorsements of shared posts in a view");
+
+		// Shared accounts have IDs 1 to SHARED, and only they are endorsed
+		int top = view.getMostEndorsedAccount();
+		if (most > 0) {
+			if (top < 1 || top > SHARED) {
+				throw new AssertionError("most endorsed account of a view (" + top + ") is not a shared account");
+			}
+			check(most, endorseCount(view.showAccount("shared" + (top - 1))), "most endorsed account of a view");
+		}
+		if (view.getMostEndorsedAccounts(1)[0] != top) {
+			throw new AssertionError("most endorsed accounts of a view disagree");
+		}
+		if (view.getNumberOfAccounts() < SHARED || view.getTotalOriginalPosts() < SHARED) {
+			throw new AssertionError("a view lost shared accounts or posts");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		ConcurrentSocialMedia platform = new ConcurrentSocialMedia();
+		int[] sharedIDs = new int[SHARED];
+		for (int j = 0; j < SHARED; j++) {
+			platform.createAccount("shared" + j);
+			sharedIDs[j] = platform.createPost("shared" + j, "shared post " + j);
+		}
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		ArrayList<Thread> writers = new ArrayList<>();
+		ArrayList<Thread> readers = new ArrayList<>();
+		Counts[] counts = new Counts[WRITERS];
+
+		for (int i = 0; i < WRITERS; i++) {
+			int writer = i;
+			counts[i] = new Counts();
+			writers.add(new Thread(() -> {
+				try {
+					write(platform, writer, sharedIDs, counts[writer]);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		for (int i = 0; i < READERS; i++) {
+			readers.add(new Thread(() -> {
+				try {
+					while (running.get()) {
+						checkView(platform.openView());
+						// Totals are published after every change, so never run behind the shared posts
+						if (platform.getTotalOriginalPosts() < SHARED || platform.getNumberOfAccounts() < SHARED) {
+							throw new AssertionError("totals lost shared accounts or posts");
+						}
+						platform.showIndividualPost(sharedIDs[0]);
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+
+		for (Thread thread: readers) {
+			thread.start();
+		}
+		for (Thread thread: writers) {
+			thread.start();
+		}
+		for (Thread thread: writers) {
+			thread.join();
+		}
+		running.set(false);
+		for (Thread thread: readers) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError("a thread failed", failure.get());
+		}
+
+		// Every ID handed out is unique
+		HashSet<Integer> accountIDs = new HashSet<>();
+		HashSet<Integer> postIDs = new HashSet<>();
+		for (int j = 0; j < SHARED; j++) {
+			accountIDs.add(j + 1);
+			postIDs.add(sharedIDs[j]);
+		}
+		int originals = SHARED;
+		int comments = 0;
+		int endorsements = 0;
+		int[] endorsementsOfShared = new int[SHARED];
+		for (Counts writer: counts) {
+			for (int id: writer.accountIDs) {
+				if (!accountIDs.add(id)) {
+					throw new AssertionError("Account ID " + id + " was handed out twice");
+				}
+			}
+			for (int id: writer.postIDs) {
+				if (!postIDs.add(id)) {
+					throw new AssertionError("Post ID " + id + " was handed out twice");
+				}
+			}
+			originals += writer.originals;
+			comments += writer.comments;
+			endorsements += writer.endorsements;
+			for (int j = 0; j < SHARED; j++) {
+				endorsementsOfShared[j] += writer.endorsementsOfShared[j];
+			}
+		}
+
+		check(SHARED + WRITERS, platform.getNumberOfAccounts(), "accounts");
+		check(originals, platform.getTotalOriginalPosts(), "original posts");
+		check(comments, platform.getTotalCommentPosts(), "comments");
+		check(endorsements, platform.getTotalEndorsmentPosts(), "endorsements");
+
+		int mostEndorsed = 0;
+		for (int j = 0; j < SHARED; j++) {
+			check(endorsementsOfShared[j], endorseCount(platform.showAccount("shared" + j)), "endorsements of shared" + j);
+			if (endorsementsOfShared[j] > endorsementsOfShared[mostEndorsed]) {
+				mostEndorsed = j;
+			}
+		}
+		// Ties go to the oldest post and account
+		check(sharedIDs[mostEndorsed], platform.getMostEndorsedPost(), "most endorsed post");
+		check(mostEndorsed + 1, platform.getMostEndorsedAccount(), "most endorsed account");
+
+		PlatformView view = platform.openView();
+		checkView(view);
+		if (platform.openView() != view) {
+			throw new AssertionError("the view opened since the last change was not handed out again");
+		}
+		platform.updateAccountDescription("shared0", "changed");
+		PlatformView described = platform.openView();
+		if (described == view || !described.showAccount("shared0").contains("Description: changed")) {
+			throw new AssertionError("a view from before a new description was handed out");
+		}
+		platform.changeAccountHandle("shared0", "renamed");
+		if (platform.openView() == described || !platform.openView().showAccount("renamed").contains("ID: 1\n")) {
+			throw new AssertionError("a view from before a new handle was handed out");
+		}
+		System.out.println("ConcurrentSocialMediaTest passed");
+	}
+}
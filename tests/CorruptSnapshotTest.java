@@ -0,0 +1,194 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * CorruptSnapshotTest checks that loading or mapping a corrupt snapshot throws an IOException, rather
+ * than running off the end of an array or allocating whatever a bad count asks for. Snapshots whose posts
+ * point to missing accounts or posts must also be rejected by SocialMedia, leaving the platform as it was.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.CorruptSnapshotTest
+ */
+public class CorruptSnapshotTest {
+	// offsets in a snapshot of one account "a" without a description, then its posts
+	private static final int ACCOUNT_COUNT = 32;
+	private static final int HANDLE_LENGTH = 40;
+	private static final int POST_COUNT = 49;
+	private static final int FIRST_POST_TYPE = 53;
+	private static final int FIRST_POST_ACCOUNT = 58;
+	private static final int COMMENT_ID = 81;
+	private static final int COMMENTED_POST = 89;
+	private static final int ENDORSED_POST = 113;
+	// offset of the second handle in a snapshot of accounts "a" and "b" without descriptions
+	private static final int SECOND_HANDLE = 57;
+
+	/**
+	 * Fail the test unless a snapshot is rejected with an IOException by both load and map
+	 * @param file file to write the snapshot to
+	 * @param bytes contents of the snapshot
+	 * @param message message the IOException should have, or null for any IOException
+	 * @param what what was corrupted
+	 */
+	private static void checkRejected(Path file, byte[] bytes, String message, String what) throws IOException {
+		Files.write(file, bytes);
+		for (int mapped = 0; mapped < 2; mapped++) {
+			try {
+				if (mapped == 0) {
+					PlatformSnapshot.load(file.toString());
+				} else {
+					PlatformSnapshot.map(file.toString());
+				}
+			} catch (IOException e) {
+				if (message != null && !message.equals(e.getMessage())) {
+					throw new AssertionError(what + ": expected \"" + message + "\" but was \"" + e.getMessage() + "\"");
+				}
+				continue;
+			}
+			throw new AssertionError(what + ": snapshot was loaded");
+		}
+	}
+
+	/**
+	 * Fail the test unless SocialMedia rejects a snapshot with an IOException, by both loadPlatform and
+	 * mapPlatform, and leaves the platform it was loaded into unchanged
+	 * @param file file to write the snapshot to
+	 * @param bytes contents of the snapshot
+	 * @param message message the cause of the IOException should have
+	 * @param what what was corrupted
+	 */
+	private static void checkLoadRejected(Path file, byte[] bytes, String message, String what) throws Exception {
+		checkRejected(file, bytes, message, what);
+
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("kept", "still here");
+		int post = platform.createPost("kept", "kept post");
+		platform.endorsePost("kept", post);
+		String account = platform.showAccount("kept");
+
+		for (int mapped = 0; mapped < 2; mapped++) {
+			try {
+				if (mapped == 0) {
+					platform.loadPlatform(file.toString());
+				} else {
+					platform.mapPlatform(file.toString());
+				}
+				throw new AssertionError(what + ": platform was loaded");
+			} catch (IOException e) {
+				if (e.getCause() == null || !message.equals(e.getCause().getMessage())) {
+					throw new AssertionError(what + ": expected \"" + message + "\" but was " + e.getCause());
+				}
+			}
+
+			if (platform.getNumberOfAccounts() != 1 || platform.getTotalOriginalPosts() != 1
+					|| platform.getTotalEndorsmentPosts() != 1 || platform.getMostEndorsedPost() != post
+					|| !account.equals(platform.showAccount("kept"))) {
+				throw new AssertionError(what + ": platform was changed by a rejected load");
+			}
+		}
+		if (platform.createPost("kept", "after") != post + 2) {
+			throw new AssertionError(what + ": post IDs were changed by a rejected load");
+		}
+	}
+
+	/**
+	 * Copy a snapshot with an int overwritten
+	 * @param bytes contents of the snapshot
+	 * @param offset position of the int
+	 * @param value value to write
+	 * @return the corrupt copy
+	 */
+	private static byte[] withInt(byte[] bytes, int offset, int value) {
+		byte[] copy = bytes.clone();
+		ByteBuffer.wrap(copy).putInt(offset, value);
+		return copy;
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("a");
+		int post = platform.createPost("a", "first post");
+		platform.commentPost("a", post, "comment");
+		platform.endorsePost("a", post);
+
+		Path file = Files.createTempFile("corrupt", ".snapshot");
+		try {
+			platform.savePlatform(file.toString());
+			byte[] bytes = Files.readAllBytes(file);
+			if (ByteBuffer.wrap(bytes).getInt(POST_COUNT) != 3) {
+				throw new AssertionError("snapshot is not laid out as this test expects");
+			}
+
+			byte[] badType = bytes.clone();
+			badType[FIRST_POST_TYPE] = 7;
+			checkRejected(file, badType, "Corrupt snapshot: bad post type", "post type past the end");
+			badType[FIRST_POST_TYPE] = -1;
+			checkRejected(file, badType, "Corrupt snapshot: bad post type", "negative post type");
+
+			checkRejected(file, withInt(bytes, ACCOUNT_COUNT, -5), "Corrupt snapshot: bad account count",
+					"negative account count");
+			checkRejected(file, withInt(bytes, ACCOUNT_COUNT, Integer.MAX_VALUE), "Corrupt snapshot: bad account count",
+					"huge account count");
+			checkRejected(file, withInt(bytes, POST_COUNT, Integer.MAX_VALUE), "Corrupt snapshot: bad post count",
+					"huge post count");
+			checkRejected(file, withInt(bytes, HANDLE_LENGTH, -2), "Corrupt snapshot: bad string length",
+					"negative string length");
+			checkRejected(file, withInt(bytes, HANDLE_LENGTH, Integer.MAX_VALUE), "Corrupt snapshot: bad string length",
+					"huge string length");
+
+			if (ByteBuffer.wrap(bytes).getInt(COMMENT_ID) != 2 || ByteBuffer.wrap(bytes).getInt(ENDORSED_POST) != post) {
+				throw new AssertionError("snapshot is not laid out as this test expects");
+			}
+			checkLoadRejected(file, withInt(bytes, ENDORSED_POST, 999),
+					"Corrupt snapshot: missing post 999 pointed to by post 3", "endorsement of a missing post");
+			checkLoadRejected(file, withInt(bytes, ENDORSED_POST, 3),
+					"Corrupt snapshot: missing post 3 pointed to by post 3", "endorsement of itself");
+			checkLoadRejected(file, withInt(bytes, COMMENTED_POST, 999),
+					"Corrupt snapshot: missing post 999 pointed to by post 2", "comment on a missing post");
+			checkLoadRejected(file, withInt(bytes, FIRST_POST_ACCOUNT, 999),
+					"Corrupt snapshot: missing account of post 1", "post by a missing account");
+			checkLoadRejected(file, withInt(bytes, COMMENT_ID, 1), "Corrupt snapshot: repeated post ID 1",
+					"repeated post ID");
+
+			SocialMedia twoAccounts = new SocialMedia();
+			twoAccounts.createAccount("a");
+			twoAccounts.createAccount("b");
+			twoAccounts.savePlatform(file.toString());
+			byte[] repeatedHandle = Files.readAllBytes(file);
+			if (repeatedHandle[SECOND_HANDLE] != 'b') {
+				throw new AssertionError("snapshot is not laid out as this test expects");
+			}
+			repeatedHandle[SECOND_HANDLE] = 'a';
+			checkLoadRejected(file, repeatedHandle, "Corrupt snapshot: bad handle of account 2", "repeated handle");
+
+			// Any other corruption either loads or throws an IOException
+			Random random = new Random(42);
+			for (int i = 0; i < 2000; i++) {
+				byte[] corrupt = bytes.clone();
+				int offset = 8 + random.nextInt(corrupt.length - 8);
+				corrupt[offset] = (byte) random.nextInt(256);
+				Files.write(file, corrupt);
+				try {
+					PlatformSnapshot.load(file.toString());
+					PlatformSnapshot.map(file.toString());
+				} catch (IOException e) {
+					// rejected, as it should be
+				}
+			}
+
+			// Truncated at every length
+			for (int length = 0; length < bytes.length; length++) {
+				byte[] truncated = new byte[length];
+				System.arraycopy(bytes, 0, truncated, 0, length);
+				checkRejected(file, truncated, null, "truncated to " + length + " bytes");
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+
+		System.out.println("CorruptSnapshotTest passed");
+	}
+}
@@ -0,0 +1,187 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * DeltaSnapshotTest saves a snapshot, then a chain of delta snapshots after changing the platform, and
+ * checks that loading the snapshot with each prefix of the chain gives the platform as it was when the
+ * last delta was saved. The changes cover deleted posts, changed handles, removed accounts and
+ * endorsements added after the snapshot.
+ * <p>
+ * A delta applied after any file but the one it was saved after is rejected: out of order, twice, or after
+ * a snapshot with the same contents saved separately.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.DeltaSnapshotTest
+ */
+public class DeltaSnapshotTest {
+	// handles used by any version of the platform
+	private static final String[] HANDLES = {"alice", "bob", "robert", "carol", "dave", "erin"};
+	// highest account or post ID any version of the platform reaches
+	private static final int LAST_ID = 16;
+
+	/**
+	 * Describe everything that can be read from a platform, so two platforms can be compared
+	 * @param platform platform to describe
+	 * @return description of the platform
+	 */
+	private static String describe(SocialMedia platform) {
+		StringBuilder description = new StringBuilder();
+		description.append(platform.getNumberOfAccounts()).append(' ')
+				.append(platform.getTotalOriginalPosts()).append(' ')
+				.append(platform.getTotalCommentPosts()).append(' ')
+				.append(platform.getTotalEndorsmentPosts()).append(' ')
+				.append(platform.getMostEndorsedPost()).append(' ')
+				.append(platform.getMostEndorsedAccount()).append('\n');
+
+		for (String handle: HANDLES) {
+			try {
+				description.append(platform.showAccount(handle)).append('\n');
+			} catch (HandleNotRecognisedException e) {
+				description.append("no account ").append(handle).append('\n');
+			}
+		}
+		for (int id = 1; id <= LAST_ID; id++) {
+			try {
+				description.append(platform.showIndividualPost(id)).append('\n');
+				description.append(platform.showPostChildrenDetails(id)).append('\n');
+			} catch (PostIDNotRecognisedException | NotActionablePostException e) {
+				description.append("no thread ").append(id).append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Load a snapshot with a chain of deltas into a new platform, and check it matches what was saved
+	 * @param expected description of the platform when the last delta was saved
+	 * @param base location of the snapshot
+	 * @param deltas locations of the deltas, oldest first
+	 * @param what what was saved
+	 * @return the loaded platform
+	 */
+	private static SocialMedia checkLoaded(String expected, Path base, Path[] deltas, String what)
+			throws Exception {
+		String[] deltaFilenames = new String[deltas.length];
+		for (int i = 0; i < deltas.length; i++) {
+			deltaFilenames[i] = deltas[i].toString();
+		}
+		SocialMedia loaded = new SocialMedia();
+		loaded.loadPlatform(base.toString(), deltaFilenames);
+
+		String actual = describe(loaded);
+		if (!expected.equals(actual)) {
+			throw new AssertionError(what + ": expected\n" + expected + "but was\n" + actual);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Fail the test unless loading a snapshot with deltas throws IOException and leaves the platform as it was
+	 * @param base location of the snapshot
+	 * @param deltas locations of the deltas, oldest first
+	 * @param what what is wrong with the chain
+	 */
+	private static void checkRejected(Path base, Path[] deltas, String what) throws Exception {
+		String[] deltaFilenames = new String[deltas.length];
+		for (int i = 0; i < deltas.length; i++) {
+			deltaFilenames[i] = deltas[i].toString();
+		}
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("zoe");
+		String before = describe(platform);
+		try {
+			platform.loadPlatform(base.toString(), deltaFilenames);
+			throw new AssertionError(what + ": the deltas were applied");
+		} catch (IOException e) {
+			// refused, as it should be
+		}
+		if (!before.equals(describe(platform))) {
+			throw new AssertionError(what + ": platform changed by a failed load");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("delta");
+		Path base = directory.resolve("platform.snapshot");
+		Path first = directory.resolve("platform.delta1");
+		Path second = directory.resolve("platform.delta2");
+		Path third = directory.resolve("platform.delta3");
+		Path copy = directory.resolve("copy.snapshot");
+
+		try {
+			SocialMedia platform = new SocialMedia();
+			platform.createAccount("alice", "first account");
+			platform.createAccount("bob");
+			platform.createAccount("carol", "to be removed");
+			int alicePost = platform.createPost("alice", "alice's post");
+			int bobPost = platform.createPost("bob", "bob's post");
+			int carolPost = platform.createPost("carol", "carol's post");
+			int comment = platform.commentPost("bob", alicePost, "bob on alice");
+			platform.commentPost("carol", comment, "carol on bob");
+			platform.endorsePost("bob", alicePost);
+			platform.endorsePost("alice", carolPost);
+			platform.savePlatform(base.toString());
+			// The same contents again, but not a checkpoint, so no delta follows it
+			platform.savePlatformInBackground(copy.toString()).get();
+			String afterBase = describe(platform);
+
+			// Deleting alice's post orphans bob's comment and removes bob's endorsement of it
+			platform.deletePost(alicePost);
+			platform.changeAccountHandle("bob", "robert");
+			platform.updateAccountDescription("robert", "renamed");
+			platform.endorsePost("alice", bobPost);
+			platform.endorsePost("alice", comment);
+			platform.createAccount("dave");
+			int davePost = platform.createPost("dave", "dave's post");
+			platform.endorsePost("robert", davePost);
+			platform.savePlatformDelta(first.toString());
+			String afterFirst = describe(platform);
+
+			// Removing carol takes her post, her comment and the endorsement of her post with her
+			platform.removeAccount("carol");
+			platform.deletePost(davePost);
+			platform.endorsePost("dave", bobPost);
+			int lastPost = platform.endorsePost("dave", comment);
+			platform.savePlatformDelta(second.toString());
+			String afterSecond = describe(platform);
+
+			// A delta saved after erasing holds the whole platform again
+			platform.erasePlatform();
+			platform.createAccount("erin");
+			int erinPost = platform.createPost("erin", "erin's post");
+			platform.endorsePost("erin", erinPost);
+			platform.savePlatformDelta(third.toString());
+			String afterThird = describe(platform);
+
+			checkLoaded(afterBase, base, new Path[0], "snapshot alone");
+			checkLoaded(afterFirst, base, new Path[] {first}, "snapshot and first delta");
+			SocialMedia loaded = checkLoaded(afterSecond, base, new Path[] {first, second}, "snapshot and two deltas");
+			checkLoaded(afterThird, base, new Path[] {first, second, third}, "snapshot and three deltas");
+
+			// A delta only applies after the file it was saved after
+			checkRejected(copy, new Path[] {first}, "first delta after a copy of the snapshot");
+			checkRejected(base, new Path[] {second}, "second delta without the first");
+			checkRejected(base, new Path[] {first, third, second}, "deltas out of order");
+			checkRejected(base, new Path[] {first, first}, "first delta twice");
+
+			// IDs carry on from where the platform that saved the deltas had got to
+			if (loaded.createPost("alice", "next") != lastPost + 1) {
+				throw new AssertionError("post IDs do not carry on after the deltas");
+			}
+			if (loaded.createAccount("frank") != 5) {
+				throw new AssertionError("account IDs do not carry on after the deltas");
+			}
+		} finally {
+			Files.deleteIfExists(base);
+			Files.deleteIfExists(first);
+			Files.deleteIfExists(second);
+			Files.deleteIfExists(third);
+			Files.deleteIfExists(copy);
+			Files.deleteIfExists(directory);
+		}
+
+		System.out.println("DeltaSnapshotTest passed");
+	}
+}
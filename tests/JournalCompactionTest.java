@@ -0,0 +1,151 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * JournalCompactionTest starts compactions while earlier ones are still being saved, then replays the
+ * snapshot and journal into a new platform, which must hold every post made.
+ * <p>
+ * The first compaction is of a large journal, so the ones started straight after it are queued behind it
+ * and have marked their position before it rewrites the journal.
+ * <p>
+ * A journal whose snapshot cannot be saved, as a directory is in the way of its temporary file, checks that
+ * a failed compaction keeps every record and is not tried again by each change, until the journal is reopened.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.JournalCompactionTest
+ */
+public class JournalCompactionTest {
+	private static final int FIRST_POSTS = 200_000;
+
+	/**
+	 * Fail the test if two values differ
+	 * @param expected value expected
+	 * @param actual value returned
+	 * @param what what was being checked
+	 */
+	private static void check(long expected, long actual, String what) {
+		if (expected != actual) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * Replay a snapshot and journal into a new platform, and check it matches the platform that wrote them
+	 * @param written platform that wrote the journal
+	 * @param snapshot location of the snapshot
+	 * @param journal location of the journal
+	 * @param what what was done before replaying
+	 */
+	private static void checkReplay(SocialMedia written, Path snapshot, Path journal, String what) throws Exception {
+		SocialMedia replayed = new SocialMedia();
+		replayed.openJournal(snapshot.toString(), journal.toString(), 0, Long.MAX_VALUE);
+		try {
+			check(written.getNumberOfAccounts(), replayed.getNumberOfAccounts(), what + ", accounts");
+			check(written.getTotalOriginalPosts(), replayed.getTotalOriginalPosts(), what + ", original posts");
+			check(written.getTotalCommentPosts(), replayed.getTotalCommentPosts(), what + ", comments");
+			check(written.getTotalEndorsmentPosts(), replayed.getTotalEndorsmentPosts(), what + ", endorsements");
+			check(written.getMostEndorsedPost(), replayed.getMostEndorsedPost(), what + ", most endorsed post");
+		} finally {
+			replayed.closeJournal();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("journal");
+		Path snapshot = directory.resolve("platform.snapshot");
+		Path journal = directory.resolve("platform.journal");
+		Path failingSnapshot = directory.resolve("failing.snapshot");
+		Path failingJournal = directory.resolve("failing.journal");
+		Path blocked = directory.resolve("failing.snapshot.tmp");
+
+		try {
+			SocialMedia platform = new SocialMedia();
+			platform.openJournal(snapshot.toString(), journal.toString(), 0, Long.MAX_VALUE);
+			platform.createAccount("a");
+			platform.createAccount("b");
+			for (int i = 0; i < FIRST_POSTS; i++) {
+				platform.createPost("a", "post " + i);
+			}
+
+			// Each compaction is started while the ones before it are still queued or being saved
+			ArrayList<CompletableFuture<Void>> compactions = new ArrayList<>();
+			compactions.add(platform.compactJournalInBackground());
+			int post = platform.createPost("b", "second");
+			for (int i = 0; i < 50; i++) {
+				platform.endorsePost("a", post);
+			}
+			compactions.add(platform.compactJournalInBackground());
+			for (int i = 0; i < 100; i++) {
+				platform.commentPost("a", post, "comment " + i);
+			}
+			compactions.add(platform.compactJournalInBackground());
+			platform.deletePost(1);
+			for (CompletableFuture<Void> compaction: compactions) {
+				compaction.get();
+			}
+			platform.syncJournal();
+			checkReplay(platform, snapshot, journal, "after background compactions");
+
+			// compactJournal waits for its own compaction, which is queued behind one still running
+			for (int i = 0; i < FIRST_POSTS; i++) {
+				platform.createPost("b", "more " + i);
+			}
+			CompletableFuture<Void> running = platform.compactJournalInBackground();
+			platform.endorsePost("b", post);
+			platform.compactJournal();
+			platform.createPost("a", "last");
+			running.get();
+			platform.closeJournal();
+			checkReplay(platform, snapshot, journal, "after compactJournal");
+
+			// Once a compaction fails, changes past the threshold do not start another
+			SocialMedia failing = new SocialMedia();
+			failing.openJournal(failingSnapshot.toString(), failingJournal.toString(), 0, 1024);
+			failing.createAccount("a");
+			Files.createDirectory(blocked);
+			try {
+				failing.compactJournalInBackground().get();
+				throw new AssertionError("a compaction was saved through a directory");
+			} catch (ExecutionException e) {
+				// failed, as it should
+			}
+			Files.delete(blocked);
+			for (int i = 0; i < 1000; i++) {
+				failing.createPost("a", "after the failure " + i);
+			}
+			try {
+				failing.closeJournal();
+				throw new AssertionError("closeJournal did not throw the failed compaction");
+			} catch (IOException e) {
+				// the last compaction is still the failed one
+			}
+			if (Files.exists(failingSnapshot)) {
+				throw new AssertionError("a compaction was started after one failed");
+			}
+			checkReplay(failing, failingSnapshot, failingJournal, "after a failed compaction");
+
+			// Reopening the journal lets it be compacted once it is full again
+			failing.openJournal(failingSnapshot.toString(), failingJournal.toString(), 0, 1024);
+			failing.createPost("a", "after reopening");
+			failing.closeJournal();
+			if (!Files.exists(failingSnapshot)) {
+				throw new AssertionError("the journal was not compacted after being reopened");
+			}
+			checkReplay(failing, failingSnapshot, failingJournal, "after reopening");
+		} finally {
+			Files.deleteIfExists(snapshot);
+			Files.deleteIfExists(journal);
+			Files.deleteIfExists(blocked);
+			Files.deleteIfExists(failingSnapshot);
+			Files.deleteIfExists(failingJournal);
+			Files.deleteIfExists(directory);
+		}
+
+		System.out.println("JournalCompactionTest passed");
+	}
+}
@@ -0,0 +1,86 @@
+package socialmedia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * MappedSnapshotTest maps a snapshot in segments of many small sizes, so that counters, IDs, string lengths
+ * and messages all cross the ends of segments somewhere, and checks that every mapping reads the same
+ * accounts and posts as loading the file without mapping it. Messages are read back from the mapping
+ * lazily, after the whole snapshot has been read.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.MappedSnapshotTest
+ */
+public class MappedSnapshotTest {
+	private static final int[] SEGMENT_SIZES = {1, 2, 3, 4, 5, 7, 8, 9, 13, 31, 64, 1000, MappedSnapshot.SEGMENT_SIZE};
+
+	/**
+	 * Describe the accounts and posts of a snapshot, decoding every message
+	 * @param snapshot the snapshot
+	 * @return description of the snapshot
+	 */
+	private static String describe(PlatformSnapshot snapshot) {
+		StringBuilder description = new StringBuilder();
+		description.append(snapshot.getNextAccountID()).append(' ').append(snapshot.getNextPostID()).append(' ')
+				.append(snapshot.getJournalSequence()).append(' ').append(snapshot.getSaveID()).append('\n');
+		for (Account acc: snapshot.getAccounts()) {
+			description.append(acc.getID()).append(' ').append(acc.getStringHandle()).append(' ')
+					.append(acc.getDescription()).append('\n');
+		}
+		for (PostsParent post: snapshot.getPosts()) {
+			description.append(post.getType()).append(' ').append(post.getID()).append(' ')
+					.append(post.getAccountID()).append(' ').append(post.getPostID()).append(' ')
+					.append(post.getMessage()).append('\n');
+		}
+		return description.toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("a");
+		platform.createAccount("bee", "a description long enough to span several small segments of the file");
+		platform.createAccount("c", "");
+
+		// Messages of every length from one character up, some with characters of more than one byte
+		ArrayList<Integer> posts = new ArrayList<>();
+		StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			message.append(i % 3 == 0 ? 'é' : (char) ('a' + i % 26));
+			posts.add(platform.createPost(i % 2 == 0 ? "a" : "bee", message.toString()));
+		}
+		for (int i = 0; i < 20; i++) {
+			int comment = platform.commentPost("c", posts.get(i), "comment " + i + " ✓");
+			platform.endorsePost("a", comment);
+			platform.endorsePost("bee", posts.get(i));
+		}
+		platform.deletePost(posts.get(3));
+
+		Path file = Files.createTempFile("mapped", ".snapshot");
+		try {
+			platform.savePlatform(file.toString());
+			String expected = describe(PlatformSnapshot.load(file.toString()));
+
+			for (int segmentSize: SEGMENT_SIZES) {
+				String actual = describe(PlatformSnapshot.map(file.toString(), segmentSize));
+				if (!expected.equals(actual)) {
+					throw new AssertionError("segments of " + segmentSize + " bytes: expected\n" + expected
+							+ "but was\n" + actual);
+				}
+			}
+
+			// A platform mapped from the file shows the same posts as the one that saved it
+			SocialMedia mapped = new SocialMedia();
+			mapped.mapPlatform(file.toString());
+			for (int id: posts) {
+				if (id != posts.get(3) && !platform.showIndividualPost(id).equals(mapped.showIndividualPost(id))) {
+					throw new AssertionError("post " + id + " differs once mapped");
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+
+		System.out.println("MappedSnapshotTest passed");
+	}
+}
@@ -0,0 +1,66 @@
+package socialmedia;
+
+import java.util.Arrays;
+
+/**
+ * MostEndorsedPostsTest checks getMostEndorsedPosts: order by endorsements, ties going to the oldest post,
+ * and k larger than the number of posts.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.MostEndorsedPostsTest
+ */
+public class MostEndorsedPostsTest {
+
+	/**
+	 * Fail the test if two arrays of ids differ
+	 * @param expected ids expected
+	 * @param actual ids returned
+	 * @param what what was being checked
+	 */
+	private static void checkIDs(int[] expected, int[] actual, String what) {
+		if (!Arrays.equals(expected, actual)) {
+			throw new AssertionError(what + ": expected " + Arrays.toString(expected) + " but was "
+					+ Arrays.toString(actual));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocialMedia platform = new SocialMedia();
+		checkIDs(new int[0], platform.getMostEndorsedPosts(3), "empty platform");
+
+		platform.createAccount("alice");
+		platform.createAccount("bob");
+		int first = platform.createPost("alice", "first");
+		int second = platform.createPost("bob", "second");
+		int third = platform.createPost("alice", "third");
+		int comment = platform.commentPost("bob", first, "comment");
+
+		// second has 2, first and comment tie on 1 and third has none
+		platform.endorsePost("alice", second);
+		platform.endorsePost("bob", second);
+		platform.endorsePost("bob", comment);
+		platform.endorsePost("alice", first);
+
+		checkIDs(new int[] {second, first, comment, third}, platform.getMostEndorsedPosts(4), "ties to the oldest");
+		checkIDs(new int[] {second, first}, platform.getMostEndorsedPosts(2), "k smaller than the posts");
+		// Endorsements are not actionable, so never ranked
+		checkIDs(new int[] {second, first, comment, third}, platform.getMostEndorsedPosts(100), "k larger than the posts");
+		checkIDs(new int[0], platform.getMostEndorsedPosts(0), "k of 0");
+		checkIDs(new int[0], platform.getMostEndorsedPosts(-1), "negative k");
+
+		if (platform.getMostEndorsedPosts(1)[0] != platform.getMostEndorsedPost()) {
+			throw new AssertionError("top post differs from getMostEndorsedPost");
+		}
+
+		// Deleting the leader moves the tie up
+		platform.deletePost(second);
+		checkIDs(new int[] {first, comment, third}, platform.getMostEndorsedPosts(5), "after deleting the leader");
+
+		checkIDs(new int[] {first, comment, third}, platform.openView().getMostEndorsedPosts(5), "through a view");
+		checkIDs(new int[0], platform.openView().getMostEndorsedPosts(-1), "negative k through a view");
+
+		ConcurrentSocialMedia concurrent = new ConcurrentSocialMedia(platform);
+		checkIDs(new int[] {first, comment}, concurrent.getMostEndorsedPosts(2), "through ConcurrentSocialMedia");
+
+		System.out.println("MostEndorsedPostsTest passed");
+	}
+}
@@ -0,0 +1,189 @@
+package socialmedia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PlatformImageCacheTest makes thousands of random changes to a platform, opening a view after every few
+ * of them, and checks that each view shows the platform as it was when it was opened. Views are captured
+ * from PlatformImageCache, which only copies the changes since the last view, so the test grows the
+ * platform over several chunks, then deletes most of it so that the cache squeezes out empty slots.
+ * <p>
+ * Every view is checked again at the end, after the chunks it shares have been copied and changed, and
+ * the platform is saved and loaded back between phases, which replaces everything the cache holds.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.PlatformImageCacheTest
+ */
+public class PlatformImageCacheTest {
+	private static final int HANDLES = 60;
+	private static final int CHANGES_PER_VIEW = 37;
+
+	/**
+	 * Describe what a platform shows
+	 * @param platform platform to describe
+	 * @return description of the platform
+	 */
+	private static String describe(SocialMedia platform) {
+		StringBuilder description = new StringBuilder();
+		description.append(platform.getNumberOfAccounts()).append(' ')
+				.append(platform.getTotalOriginalPosts()).append(' ')
+				.append(platform.getTotalCommentPosts()).append(' ')
+				.append(platform.getTotalEndorsmentPosts()).append('\n')
+				.append(Arrays.toString(platform.getMostEndorsedPosts(Integer.MAX_VALUE))).append('\n')
+				.append(Arrays.toString(platform.getMostEndorsedAccounts(Integer.MAX_VALUE))).append('\n');
+		for (int i = 0; i < HANDLES; i++) {
+			try {
+				description.append(platform.showAccount("user" + i)).append('\n');
+			} catch (HandleNotRecognisedException e) {
+				description.append("no account user").append(i).append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Describe what a view shows, in the same way as describe(SocialMedia)
+	 * @param view view to describe
+	 * @return description of the view
+	 */
+	private static String describe(PlatformView view) {
+		StringBuilder description = new StringBuilder();
+		description.append(view.getNumberOfAccounts()).append(' ')
+				.append(view.getTotalOriginalPosts()).append(' ')
+				.append(view.getTotalCommentPosts()).append(' ')
+				.append(view.getTotalEndorsmentPosts()).append('\n')
+				.append(Arrays.toString(view.getMostEndorsedPosts(Integer.MAX_VALUE))).append('\n')
+				.append(Arrays.toString(view.getMostEndorsedAccounts(Integer.MAX_VALUE))).append('\n');
+		for (int i = 0; i < HANDLES; i++) {
+			try {
+				description.append(view.showAccount("user" + i)).append('\n');
+			} catch (HandleNotRecognisedException e) {
+				description.append("no account user").append(i).append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Make one random change, which may be refused
+	 * @param platform platform to change
+	 * @param random source of the change
+	 * @param deleting chance out of 100 of deleting a post rather than adding one
+	 */
+	private static void change(SocialMedia platform, Random random, int deleting) {
+		String handle = "user" + random.nextInt(HANDLES);
+		int id = 1 + random.nextInt(Math.max(1, platform.getPostCollection().getNextID() - 1));
+		int choice = random.nextInt(100);
+		try {
+			if (choice < deleting) {
+				platform.deletePost(id);
+			} else if (choice < deleting + 2) {
+				platform.removeAccount(handle);
+			} else if (choice < deleting + 4) {
+				platform.changeAccountHandle(handle, "user" + random.nextInt(HANDLES));
+			} else if (choice < deleting + 8) {
+				platform.updateAccountDescription(handle, "description " + random.nextInt());
+			} else if (choice < deleting + 14) {
+				platform.createAccount(handle);
+			} else if (choice < deleting + 40) {
+				platform.endorsePost(handle, id);
+			} else if (choice < deleting + 60) {
+				platform.commentPost(handle, id, "comment " + random.nextInt());
+			} else {
+				platform.createPost(handle, "post " + random.nextInt());
+			}
+		} catch (HandleNotRecognisedException | IllegalHandleException | InvalidHandleException
+				| PostIDNotRecognisedException | NotActionablePostException | InvalidPostException e) {
+			// refused, which leaves the platform as it was
+		}
+	}
+
+	/**
+	 * Make random changes, checking a view opened after every few of them against the platform
+	 * @param platform platform to change
+	 * @param random source of the changes
+	 * @param changes number of changes to make
+	 * @param deleting chance out of 100 of deleting a post rather than adding one
+	 * @param views views opened so far, which the new ones are added to
+	 * @param expected what each view showed when it was opened
+	 */
+	private static void run(SocialMedia platform, Random random, int changes, int deleting,
+			ArrayList<PlatformView> views, ArrayList<String> expected) {
+		for (int i = 1; i <= changes; i++) {
+			change(platform, random, deleting);
+			if (i % CHANGES_PER_VIEW == 0) {
+				PlatformView view = platform.openView();
+				String description = describe(platform);
+				if (!description.equals(describe(view))) {
+					throw new AssertionError("view " + views.size() + ": expected\n" + description + "but was\n"
+							+ describe(view));
+				}
+				views.add(view);
+				expected.add(description);
+			}
+		}
+	}
+
+	/**
+	 * Save a platform and load it into another, checking that it shows the same
+	 * @param platform platform to save
+	 * @param file file to save it in
+	 * @return the loaded platform
+	 */
+	private static SocialMedia reload(SocialMedia platform, Path file) throws Exception {
+		platform.savePlatform(file.toString());
+		SocialMedia loaded = new SocialMedia();
+		loaded.loadPlatform(file.toString());
+		if (!describe(platform).equals(describe(loaded))) {
+			throw new AssertionError("expected\n" + describe(platform) + "but loaded\n" + describe(loaded));
+		}
+		return loaded;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(16);
+		ArrayList<PlatformView> views = new ArrayList<>();
+		ArrayList<String> expected = new ArrayList<>();
+		Path file = Files.createTempFile("cache", ".snapshot");
+		try {
+			SocialMedia platform = new SocialMedia();
+			for (int i = 0; i < HANDLES; i++) {
+				platform.createAccount("user" + i);
+			}
+
+			// Grow over several chunks, then delete most posts so their slots are squeezed out
+			run(platform, random, 12000, 0, views, expected);
+			SocialMedia loaded = reload(platform, file);
+			run(platform, random, 6000, 70, views, expected);
+			reload(platform, file);
+
+			// A loaded platform starts a new copy, and keeps it up to date from then on
+			run(loaded, random, 3000, 20, views, expected);
+			loaded.loadPlatform(file.toString());
+			run(loaded, random, 3000, 20, views, expected);
+			reload(loaded, file);
+
+			// Emptying the platform starts a new copy too
+			loaded.erasePlatform();
+			for (int i = 0; i < HANDLES; i++) {
+				loaded.createAccount("user" + i);
+			}
+			run(loaded, random, 3000, 10, views, expected);
+			reload(loaded, file);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+
+		// Views opened early still show what they did, though the chunks they share have since changed
+		for (int i = 0; i < views.size(); i++) {
+			if (!expected.get(i).equals(describe(views.get(i)))) {
+				throw new AssertionError("view " + i + " changed after it was opened");
+			}
+		}
+
+		System.out.println("PlatformImageCacheTest passed");
+	}
+}
@@ -0,0 +1,233 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ShardedSocialMediaTest makes the same changes to a ShardedSocialMedia and to a plain SocialMedia, and checks
+ * that every account shows the same counts on both. The changes cross shards: endorsements and comments of posts
+ * in other shards, renaming an account that has stubs, and endorsing a comment made through a stub, so an
+ * account's endorsements are split between its own shard and its stubs.
+ * <p>
+ * It also checks that handles and posts are routed to the shard their ID belongs to, that the most endorsed
+ * account adds up split endorsements and breaks ties by the lowest ID, that a saved platform loads back the
+ * same, and that a load that fails leaves the platform as it was.
+ * <p>
+ * Run with the platform's classes on the class path: java socialmedia.ShardedSocialMediaTest
+ */
+public class ShardedSocialMediaTest {
+	private static final int SHARDS = 3;
+	// handles used by any version of the platform
+	private static final List<String> HANDLES = List.of("alice", "bob", "carol", "dave", "erin", "robert");
+
+	/**
+	 * Fail the test if two values differ
+	 * @param expected value expected
+	 * @param actual value returned
+	 * @param what what was being checked
+	 */
+	private static void check(Object expected, Object actual, String what) {
+		if (!expected.equals(actual)) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * Find the shard an ID belongs to
+	 * @param id account or post ID
+	 * @return position of the shard, from 0
+	 */
+	private static int shardOf(int id) {
+		return (id - 1) % SHARDS;
+	}
+
+	/**
+	 * Describe the accounts and totals of a platform without their IDs, which differ once sharded
+	 * @param platform platform to describe
+	 * @return description of the platform
+	 */
+	private static String describeAccounts(SocialMediaPlatform platform) {
+		StringBuilder description = new StringBuilder();
+		description.append(platform.getNumberOfAccounts()).append(' ')
+				.append(platform.getTotalOriginalPosts()).append(' ')
+				.append(platform.getTotalCommentPosts()).append(' ')
+				.append(platform.getTotalEndorsmentPosts()).append('\n');
+		for (String handle: HANDLES) {
+			try {
+				String account = platform.showAccount(handle);
+				description.append(account.substring(account.indexOf('\n') + 1)).append('\n');
+			} catch (HandleNotRecognisedException e) {
+				description.append("no account ").append(handle).append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Describe everything that can be read from a sharded platform, IDs included
+	 * @param platform platform to describe
+	 * @param postIDs IDs of every post ever made
+	 * @return description of the platform
+	 */
+	private static String describe(ShardedSocialMedia platform, List<Integer> postIDs) throws Exception {
+		StringBuilder description = new StringBuilder(describeAccounts(platform));
+		description.append(platform.getMostEndorsedPost()).append(' ')
+				.append(platform.getMostEndorsedAccount()).append('\n');
+		for (String handle: HANDLES) {
+			try {
+				description.append(platform.showAccount(handle)).append('\n');
+			} catch (HandleNotRecognisedException e) {
+				description.append("no account ").append(handle).append('\n');
+			}
+		}
+		for (int id: postIDs) {
+			try {
+				description.append(platform.showIndividualPost(id)).append('\n');
+				description.append(platform.showPostChildrenDetails(id)).append('\n');
+			} catch (PostIDNotRecognisedException | NotActionablePostException e) {
+				description.append("no thread ").append(id).append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Fail the test unless loading a file throws IOException and leaves the platform as it was
+	 * @param platform platform to load into
+	 * @param filename location of the file to be loaded
+	 * @param expected description of the platform before the load
+	 * @param postIDs IDs of every post ever made
+	 * @param what what is wrong with the file
+	 */
+	private static void checkLoadRejected(ShardedSocialMedia platform, String filename, String expected,
+			List<Integer> postIDs, String what) throws Exception {
+		try {
+			platform.loadPlatform(filename);
+			throw new AssertionError(what + ": the file was loaded");
+		} catch (IOException e) {
+			// refused, as it should be
+		}
+		check(expected, describe(platform, postIDs), what + ": platform after a failed load");
+	}
+
+	public static void main(String[] args) throws Exception {
+		ShardedSocialMedia sharded = new ShardedSocialMedia(SHARDS);
+		SocialMedia single = new SocialMedia();
+		ArrayList<Integer> postIDs = new ArrayList<>();
+
+		// Accounts are dealt out to the shards in turn, and their posts are made in the same shard
+		int alice = sharded.createAccount("alice");
+		int bob = sharded.createAccount("bob");
+		int carol = sharded.createAccount("carol");
+		int dave = sharded.createAccount("dave");
+		for (String handle: new String[] {"alice", "bob", "carol", "dave"}) {
+			single.createAccount(handle);
+		}
+		check(List.of(0, 1, 2, 0), List.of(shardOf(alice), shardOf(bob), shardOf(carol), shardOf(dave)),
+				"shards of the accounts");
+		// No account endorsed yet, so the tie goes to the lowest ID
+		check(alice, sharded.getMostEndorsedAccount(), "most endorsed account with no endorsements");
+
+		int alicePost = sharded.createPost("alice", "alice's post");
+		int bobPost = sharded.createPost("bob", "bob's post");
+		single.createPost("alice", "alice's post");
+		single.createPost("bob", "bob's post");
+		check(shardOf(alice), shardOf(alicePost), "shard of alice's post");
+		check(shardOf(bob), shardOf(bobPost), "shard of bob's post");
+
+		// Bob comments on alice's post through a stub in her shard, and the comment stays in the thread's shard
+		int comment = sharded.commentPost("bob", alicePost, "bob on alice");
+		single.commentPost("bob", 1, "bob on alice");
+		check(shardOf(alicePost), shardOf(comment), "shard of a comment on another shard's post");
+		postIDs.addAll(List.of(alicePost, bobPost, comment));
+
+		// Bob's endorsements are split: one of his post in his shard, one of his comment in alice's shard
+		postIDs.add(sharded.endorsePost("alice", bobPost));
+		postIDs.add(sharded.endorsePost("carol", comment));
+		single.endorsePost("alice", 2);
+		single.endorsePost("carol", 3);
+		postIDs.add(sharded.endorsePost("bob", alicePost));
+		postIDs.add(sharded.endorsePost("carol", alicePost));
+		single.endorsePost("bob", 1);
+		single.endorsePost("carol", 1);
+		check(describeAccounts(single), describeAccounts(sharded), "accounts after cross-shard endorsements");
+		// alice and bob tie on two, and alice has the lower ID
+		check(alice, sharded.getMostEndorsedAccount(), "most endorsed account on a tie");
+		check(alicePost, sharded.getMostEndorsedPost(), "most endorsed post");
+
+		// A third endorsement of bob's comment puts bob ahead, though no shard alone gives him more than two
+		postIDs.add(sharded.endorsePost("dave", comment));
+		single.endorsePost("dave", 3);
+		check(bob, sharded.getMostEndorsedAccount(), "most endorsed account with split endorsements");
+
+		// Renaming bob renames his stubs, so the new handle can act and show in every shard
+		sharded.changeAccountHandle("bob", "robert");
+		single.changeAccountHandle("bob", "robert");
+		postIDs.add(sharded.commentPost("robert", alicePost, "robert on alice"));
+		single.commentPost("robert", 1, "robert on alice");
+		int erin = sharded.createAccount("erin");
+		single.createAccount("erin");
+		postIDs.add(sharded.endorsePost("erin", alicePost));
+		single.endorsePost("erin", 1);
+		check(describeAccounts(single), describeAccounts(sharded), "accounts after renaming an account with stubs");
+		// alice and robert tie on three again
+		check(alice, sharded.getMostEndorsedAccount(), "most endorsed account on a tie across shards");
+		check(shardOf(erin), shardOf(sharded.createPost("erin", "erin's post")), "shard of erin's post");
+		single.createPost("erin", "erin's post");
+
+		Path directory = Files.createTempDirectory("sharded");
+		String filename = directory.resolve("platform").toString();
+		ArrayList<Path> files = new ArrayList<>();
+		files.add(directory.resolve("platform"));
+		for (int i = 0; i < SHARDS; i++) {
+			files.add(directory.resolve("platform.shard" + i));
+		}
+		try {
+			// A saved platform loads back the same, IDs and all, and carries on from where it was
+			String saved = describe(sharded, postIDs);
+			sharded.savePlatform(filename);
+			ShardedSocialMedia loaded = new ShardedSocialMedia(SHARDS);
+			loaded.loadPlatform(filename);
+			check(saved, describe(loaded, postIDs), "platform after a save and load");
+
+			int davePost = loaded.createPost("dave", "dave's post");
+			int singleDavePost = single.createPost("dave", "dave's post");
+			check(shardOf(dave), shardOf(davePost), "shard of a post made after loading");
+			postIDs.add(davePost);
+			postIDs.add(loaded.endorsePost("robert", davePost));
+			single.endorsePost("robert", singleDavePost);
+			loaded.removeAccount("robert");
+			single.removeAccount("robert");
+			check(describeAccounts(single), describeAccounts(loaded), "accounts after changes to a loaded platform");
+
+			// A load that fails leaves the platform as it was
+			String before = describe(loaded, postIDs);
+			checkLoadRejected(loaded, directory.resolve("missing").toString(), before, postIDs, "missing file");
+			checkLoadRejected(new ShardedSocialMedia(SHARDS + 1), filename,
+					describe(new ShardedSocialMedia(SHARDS + 1), postIDs), postIDs, "wrong number of shards");
+
+			// A stub pointing to an account that is not there, the first stub of the first shard being at byte 12
+			try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+				file.seek(12);
+				file.writeInt(1000);
+			}
+			checkLoadRejected(loaded, filename, before, postIDs, "stub with no account");
+
+			// A shard that cannot be read, after the shards before it have loaded
+			sharded.savePlatform(filename);
+			Files.write(files.get(SHARDS), new byte[] {1, 2, 3});
+			checkLoadRejected(loaded, filename, before, postIDs, "unreadable last shard");
+		} finally {
+			for (Path file: files) {
+				Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(directory);
+		}
+
+		System.out.println("ShardedSocialMediaTest passed");
+	}
+}
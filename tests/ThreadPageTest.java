@@ -0,0 +1,192 @@
+package socialmedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ThreadPageTest walks a thread a page at a time with showPostChildrenPage: pages of every size must join
+ * up into showPostChildrenDetails, the last page must have no cursor, and a cursor must carry on past
+ * posts deleted between pages, giving an empty last page if nothing is left after it.
+ * <p>
+ * The thread is a post with three comments, the first with two replies and the second with one:
+ * <pre>
+ * top
+ *   c1
+ *     c11
+ *     c12
+ *   c2
+ *     c21
+ *   c3
+ * </pre>
+ * Run with the platform's classes on the class path: java socialmedia.ThreadPageTest
+ */
+public class ThreadPageTest {
+	private static final List<String> MESSAGES = Arrays.asList("top", "c1", "c11", "c12", "c2", "c21", "c3");
+	private static final int TOP = 0;
+	private static final int C1 = 1;
+	private static final int C11 = 2;
+	private static final int C12 = 3;
+	private static final int C2 = 4;
+	private static final int C21 = 5;
+	private static final int C3 = 6;
+
+	/**
+	 * Build the thread on a new platform
+	 * @param platform platform to build it on
+	 * @return ID of each post, in the order of MESSAGES
+	 */
+	private static int[] buildThread(SocialMedia platform) throws Exception {
+		platform.createAccount("a");
+		int[] ids = new int[MESSAGES.size()];
+		ids[TOP] = platform.createPost("a", "top");
+		ids[C1] = platform.commentPost("a", ids[TOP], "c1");
+		ids[C2] = platform.commentPost("a", ids[TOP], "c2");
+		ids[C11] = platform.commentPost("a", ids[C1], "c11");
+		ids[C3] = platform.commentPost("a", ids[TOP], "c3");
+		ids[C12] = platform.commentPost("a", ids[C1], "c12");
+		ids[C21] = platform.commentPost("a", ids[C2], "c21");
+		return ids;
+	}
+
+	/**
+	 * Get the messages of the posts on a page, in the order they are shown
+	 * @param page the page
+	 * @return messages of the posts shown
+	 */
+	private static List<String> shown(ThreadPage page) {
+		ArrayList<String> messages = new ArrayList<>();
+		for (String line: page.getDetails().toString().split("\n")) {
+			if (MESSAGES.contains(line.trim())) {
+				messages.add(line.trim());
+			}
+		}
+		if (messages.size() != page.getNumOfPosts()) {
+			throw new AssertionError("page claims " + page.getNumOfPosts() + " posts but shows " + messages);
+		}
+		return messages;
+	}
+
+	/**
+	 * Fail the test unless a page shows the expected posts, and has a next page only if expected
+	 * @param page the page
+	 * @param expected messages of the posts it should show
+	 * @param more whether a next page is expected
+	 * @param what which page was checked
+	 */
+	private static void checkPage(ThreadPage page, List<String> expected, boolean more, String what) {
+		if (!expected.equals(shown(page))) {
+			throw new AssertionError(what + ": expected " + expected + " but was " + shown(page));
+		}
+		if (page.hasNextPage() != more || (page.getNextCursor() == null) == more) {
+			throw new AssertionError(what + ": expected " + (more ? "a" : "no") + " next page");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocialMedia platform = new SocialMedia();
+		int[] ids = buildThread(platform);
+		int top = ids[TOP];
+		String details = platform.showPostChildrenDetails(top).toString();
+
+		// Pages of every size join up into the whole thread, and only the last page has no cursor
+		for (int maxPosts = 1; maxPosts <= MESSAGES.size() + 1; maxPosts++) {
+			StringBuilder joined = new StringBuilder();
+			ArrayList<String> messages = new ArrayList<>();
+			ThreadCursor cursor = null;
+			do {
+				ThreadPage page = platform.showPostChildrenPage(top, cursor, Integer.MAX_VALUE, maxPosts);
+				joined.append(page.getDetails());
+				messages.addAll(shown(page));
+				if (page.hasNextPage() && page.getNumOfPosts() != maxPosts) {
+					throw new AssertionError("a page before the last is not full, with " + maxPosts + " posts a page");
+				}
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+
+			if (!details.equals(joined.toString()) || !MESSAGES.equals(messages)) {
+				throw new AssertionError("pages of " + maxPosts + " posts do not join up into the thread: " + messages);
+			}
+		}
+
+		// A page that ends on the last post of the thread is the last page
+		checkPage(platform.showPostChildrenPage(top, null, Integer.MAX_VALUE, MESSAGES.size()), MESSAGES, false,
+				"page exactly the size of the thread");
+		ThreadPage first = platform.showPostChildrenPage(top, null, Integer.MAX_VALUE, MESSAGES.size() - 1);
+		checkPage(platform.showPostChildrenPage(top, first.getNextCursor(), Integer.MAX_VALUE, 10),
+				List.of("c3"), false, "last page of one post");
+
+		// The depth limit skips replies, on the first page and on the pages after it
+		ThreadPage shallow = platform.showPostChildrenPage(top, null, 1, 2);
+		checkPage(shallow, List.of("top", "c1"), true, "first page without replies");
+		checkPage(platform.showPostChildrenPage(top, shallow.getNextCursor(), 1, 5), List.of("c2", "c3"), false,
+				"last page without replies");
+		checkPage(platform.showPostChildrenPage(top, null, 0, 5), List.of("top"), false, "top post only");
+
+		// Deleting the last post shown carries on with its next sibling, its replies being orphaned
+		platform = new SocialMedia();
+		ids = buildThread(platform);
+		ThreadPage page = platform.showPostChildrenPage(ids[TOP], null, Integer.MAX_VALUE, 2);
+		checkPage(page, List.of("top", "c1"), true, "before deleting the last post shown");
+		platform.deletePost(ids[C1]);
+		checkPage(platform.showPostChildrenPage(ids[TOP], page.getNextCursor(), Integer.MAX_VALUE, 10),
+				List.of("c2", "c21", "c3"), false, "after deleting the last post shown");
+
+		// Deleting a post further up the path carries on after it
+		platform = new SocialMedia();
+		ids = buildThread(platform);
+		page = platform.showPostChildrenPage(ids[TOP], null, Integer.MAX_VALUE, 3);
+		checkPage(page, List.of("top", "c1", "c11"), true, "before deleting a post up the path");
+		platform.deletePost(ids[C1]);
+		checkPage(platform.showPostChildrenPage(ids[TOP], page.getNextCursor(), Integer.MAX_VALUE, 10),
+				List.of("c2", "c21", "c3"), false, "after deleting a post up the path");
+
+		// Deleting the next post skips it, and posts added after the cursor are shown
+		platform = new SocialMedia();
+		ids = buildThread(platform);
+		page = platform.showPostChildrenPage(ids[TOP], null, Integer.MAX_VALUE, 3);
+		platform.deletePost(ids[C12]);
+		platform.commentPost("a", ids[C3], "c31");
+		ThreadPage next = platform.showPostChildrenPage(ids[TOP], page.getNextCursor(), Integer.MAX_VALUE, 3);
+		checkPage(next, List.of("c2", "c21", "c3"), true, "after deleting the next post");
+		ThreadPage last = platform.showPostChildrenPage(ids[TOP], next.getNextCursor(), Integer.MAX_VALUE, 3);
+		if (last.getNumOfPosts() != 1 || !last.getDetails().toString().contains("c31") || last.hasNextPage()) {
+			throw new AssertionError("a reply added between pages was not shown on the last page");
+		}
+
+		// Deleting everything after the cursor leaves an empty last page
+		platform = new SocialMedia();
+		ids = buildThread(platform);
+		page = platform.showPostChildrenPage(ids[TOP], null, Integer.MAX_VALUE, 6);
+		checkPage(page, List.of("top", "c1", "c11", "c12", "c2", "c21"), true, "before deleting the rest");
+		platform.deletePost(ids[C3]);
+		ThreadPage empty = platform.showPostChildrenPage(ids[TOP], page.getNextCursor(), Integer.MAX_VALUE, 10);
+		checkPage(empty, List.of(), false, "after deleting the rest");
+		if (empty.getDetails().length() != 0) {
+			throw new AssertionError("an empty page has details: " + empty.getDetails());
+		}
+
+		// A cursor only works for its own thread, which must still exist
+		try {
+			platform.showPostChildrenPage(ids[C2], page.getNextCursor(), Integer.MAX_VALUE, 10);
+			throw new AssertionError("a cursor was used for another thread");
+		} catch (IllegalArgumentException e) {
+			// refused, as it should be
+		}
+		platform.deletePost(ids[TOP]);
+		try {
+			platform.showPostChildrenPage(ids[TOP], page.getNextCursor(), Integer.MAX_VALUE, 10);
+			throw new AssertionError("a page of a deleted thread was shown");
+		} catch (PostIDNotRecognisedException e) {
+			// refused, as it should be
+		}
+		try {
+			platform.showPostChildrenPage(ids[C2], null, Integer.MAX_VALUE, 0);
+			throw new AssertionError("a page of no posts was asked for");
+		} catch (IllegalArgumentException e) {
+			// refused, as it should be
+		}
+
+		System.out.println("ThreadPageTest passed");
+	}
+}